@@ -0,0 +1,53 @@
+package com.interview.test.benchmarks;
+
+import com.interview.test.loadbalancers.ConcurrencyLimitAlgorithm;
+import com.interview.test.loadbalancers.Lease;
+import com.interview.test.loadbalancers.LoadBalancer;
+import com.interview.test.loadbalancers.LoadBalancerBuilder;
+import com.interview.test.loadbalancers.LoadBalancerConfiguration;
+import com.interview.test.loadbalancers.LoadBalancerType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link LoadBalancer#acquire()} followed by the release of the lease with the fixed and the adaptive
+ * concurrency limits, i.e. the cost of taking a permit and of updating the limit of the provider.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdmissionControlBenchmark
+{
+    @Param({"RoundRobin", "PowerOfTwoChoices"})
+    private LoadBalancerType type;
+
+    @Param({"Fixed", "Aimd", "Gradient"})
+    private ConcurrencyLimitAlgorithm algorithm;
+
+    @Param({"100", "10000"})
+    private int numberOfProviders;
+
+    private LoadBalancer loadBalancer;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final LoadBalancerConfiguration configuration = BenchmarkProviders.getConfiguration(numberOfProviders);
+        configuration.setConcurrencyLimitAlgorithm(algorithm);
+        loadBalancer = LoadBalancerBuilder.createLoadBalancer(BenchmarkProviders.getProviders(numberOfProviders),
+                configuration, type);
+    }
+
+    @Benchmark
+    public String acquireAndRelease()
+    {
+        try (Lease lease = loadBalancer.acquire())
+        {
+            return lease.getProviderId();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.interview.test.benchmarks;
+
+import com.interview.test.loadbalancers.LoadBalancer;
+import com.interview.test.loadbalancers.LoadBalancerBuilder;
+import com.interview.test.loadbalancers.LoadBalancerType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the selection of a batch of providers with {@link LoadBalancer#select(int[], int)} against as many calls
+ * of {@link LoadBalancer#select()}. The scores are per selected provider.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchSelectionBenchmark
+{
+    private static final int BATCH_SIZE = 32;
+
+    @Param({"RoundRobin", "StripedRoundRobin", "Random", "WeightedRandom"})
+    private LoadBalancerType type;
+
+    @Param({"100", "10000"})
+    private int numberOfProviders;
+
+    private LoadBalancer loadBalancer;
+
+    @State(Scope.Thread)
+    public static class Handles
+    {
+        private final int[] handles = new int[BATCH_SIZE];
+    }
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        loadBalancer = LoadBalancerBuilder.createLoadBalancer(BenchmarkProviders.getProviders(numberOfProviders),
+                BenchmarkProviders.getConfiguration(numberOfProviders), type);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void select(final Blackhole blackhole)
+    {
+        for (int k = 0; k < BATCH_SIZE; k++)
+        {
+            blackhole.consume(loadBalancer.select());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] selectBatch(final Handles handles)
+    {
+        loadBalancer.select(handles.handles, BATCH_SIZE);
+        return handles.handles;
+    }
+}
@@ -0,0 +1,50 @@
+package com.interview.test.benchmarks;
+
+import com.interview.test.loadbalancers.LoadBalancerConfiguration;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Providers and configurations shared by the benchmarks. The providers are always healthy; the state changes are
+ * driven by the {@link HeartbeatSimulator} so that they are not bound to the one second heartbeat interval. The
+ * weights of the providers are 1, 2 and 3 in turn, so that the weighted load balancers have some work to do, and
+ * the providers are spread over three zones, the first one being the local zone.
+ */
+final class BenchmarkProviders
+{
+    private BenchmarkProviders()
+    {
+    }
+
+    static List<IProvider> getProviders(final int size)
+    {
+        List<IProvider> providerList = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true, i % 3 + 1, "zone-" + i % 3, 0));
+        }
+        return providerList;
+    }
+
+    static List<String> getIds(final int size)
+    {
+        List<String> ids = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++)
+        {
+            ids.add("Provider-" + i);
+        }
+        return ids;
+    }
+
+    static LoadBalancerConfiguration getConfiguration(final int numberOfProviders)
+    {
+        final LoadBalancerConfiguration configuration = new LoadBalancerConfiguration();
+        configuration.setMaxNumberOfProviders(numberOfProviders);
+        configuration.setMaxNumberOfConcurrentRequests(Integer.MAX_VALUE / numberOfProviders);
+        configuration.setLocalZone("zone-0");
+        return configuration;
+    }
+}
@@ -0,0 +1,38 @@
+package com.interview.test.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks at 1, 4, 16 and 64 threads with the gc profiler, so that every run reports the throughput,
+ * the latency percentiles (p99 included) and the allocation rate per operation. The results of each thread count
+ * are written as JSON next to the working directory.
+ *
+ * Usage: BenchmarkRunner [benchmark regexp]
+ */
+public class BenchmarkRunner
+{
+    private static final int[] THREADS = {1, 4, 16, 64};
+
+    public static void main(String[] args) throws RunnerException
+    {
+        final String include = args.length > 0 ? args[0] : LoadBalancerBenchmark.class.getSimpleName();
+
+        for (int threads : THREADS)
+        {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-" + threads + "-threads.json")
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
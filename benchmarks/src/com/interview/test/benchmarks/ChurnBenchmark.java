@@ -0,0 +1,98 @@
+package com.interview.test.benchmarks;
+
+import com.interview.test.loadbalancers.Lease;
+import com.interview.test.loadbalancers.LoadBalancer;
+import com.interview.test.loadbalancers.LoadBalancerBuilder;
+import com.interview.test.loadbalancers.LoadBalancerType;
+import com.interview.test.providers.Provider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures {@link LoadBalancer#get()} and {@link LoadBalancer#acquire()} while a background thread deregisters a
+ * random provider and registers it again (as a new provider with the same id) every interval, like an autoscaling
+ * group replacing instances. Without churn the numbers must match the {@link LoadBalancerBenchmark}; with churn
+ * they show the cost of the registrations on the get() path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChurnBenchmark
+{
+    public static final long CHURN_INTERVAL_IN_MICROS = 1000;
+
+    @Param({"RoundRobin", "WeightedRoundRobin", "LeastOutstanding", "PeakEwma"})
+    private LoadBalancerType type;
+
+    @Param({"100", "10000"})
+    private int numberOfProviders;
+
+    @Param({"false", "true"})
+    private boolean churn;
+
+    private LoadBalancer loadBalancer;
+    private volatile boolean running;
+    private Thread churnThread;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        loadBalancer = LoadBalancerBuilder.createLoadBalancer(BenchmarkProviders.getProviders(numberOfProviders),
+                BenchmarkProviders.getConfiguration(numberOfProviders), type);
+
+        if (churn)
+        {
+            running = true;
+            churnThread = new Thread(this::churn, "churn-simulator");
+            churnThread.setDaemon(true);
+            churnThread.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException
+    {
+        if (churnThread != null)
+        {
+            running = false;
+            churnThread.join();
+            churnThread = null;
+        }
+    }
+
+    @Benchmark
+    public String get()
+    {
+        return loadBalancer.get();
+    }
+
+    @Benchmark
+    public String acquireAndRelease()
+    {
+        try (Lease lease = loadBalancer.acquire())
+        {
+            return lease.getProviderId();
+        }
+    }
+
+    private void churn()
+    {
+        final SplittableRandom random = new SplittableRandom(42);
+        final long intervalInNanos = TimeUnit.MICROSECONDS.toNanos(CHURN_INTERVAL_IN_MICROS);
+        while (running)
+        {
+            final int i = random.nextInt(numberOfProviders) + 1;
+            final String id = "Provider-" + i;
+            // wait for the drain, so that the new provider reuses the index and the number of indices stays the same
+            loadBalancer.deregisterProvider(id).join();
+            loadBalancer.registerProvider(new Provider(id, () -> true, i % 3 + 1));
+            LockSupport.parkNanos(intervalInNanos);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.interview.test.benchmarks;
+
+import com.interview.test.loadbalancers.Lease;
+import com.interview.test.loadbalancers.LoadBalancer;
+import com.interview.test.loadbalancers.LoadBalancerBuilder;
+import com.interview.test.loadbalancers.LoadBalancerConfiguration;
+import com.interview.test.loadbalancers.LoadBalancerType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link LoadBalancer#get(String)} and {@link LoadBalancer#acquire(String)} of the consistent hash load
+ * balancers over a fixed set of keys, with unbounded loads (load factor 0) and bounded loads, with and without a
+ * concurrently running heartbeat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsistentHashBenchmark
+{
+    private static final int NUMBER_OF_KEYS = 1 << 16;
+
+    @Param({"RingHash", "Maglev"})
+    private LoadBalancerType type;
+
+    @Param({"100", "10000"})
+    private int numberOfProviders;
+
+    @Param({"0", "1.25"})
+    private double loadFactor;
+
+    @Param({"false", "true"})
+    private boolean heartbeat;
+
+    private LoadBalancer loadBalancer;
+    private HeartbeatSimulator heartbeatSimulator;
+    private String[] keys;
+
+    @State(Scope.Thread)
+    public static class Keys
+    {
+        private int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final LoadBalancerConfiguration configuration = BenchmarkProviders.getConfiguration(numberOfProviders);
+        if (loadFactor > 0)
+        {
+            configuration.setHashLoadFactor(loadFactor);
+        }
+        loadBalancer = LoadBalancerBuilder.createLoadBalancer(BenchmarkProviders.getProviders(numberOfProviders),
+                configuration, type);
+
+        keys = new String[NUMBER_OF_KEYS];
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = "key-" + i;
+        }
+
+        if (heartbeat)
+        {
+            heartbeatSimulator = new HeartbeatSimulator(loadBalancer, BenchmarkProviders.getIds(numberOfProviders),
+                    HeartbeatSimulator.DEFAULT_FLIP_INTERVAL_IN_MICROS);
+            heartbeatSimulator.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException
+    {
+        if (heartbeatSimulator != null)
+        {
+            heartbeatSimulator.stop();
+            heartbeatSimulator = null;
+        }
+    }
+
+    @Benchmark
+    public String get(final Keys state)
+    {
+        return loadBalancer.get(keys[state.next++ & (NUMBER_OF_KEYS - 1)]);
+    }
+
+    @Benchmark
+    public String acquireAndRelease(final Keys state)
+    {
+        try (Lease lease = loadBalancer.acquire(keys[state.next++ & (NUMBER_OF_KEYS - 1)]))
+        {
+            return lease.getProviderId();
+        }
+    }
+}
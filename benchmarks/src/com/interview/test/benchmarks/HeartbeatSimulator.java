@@ -0,0 +1,58 @@
+package com.interview.test.benchmarks;
+
+import com.interview.test.loadbalancers.LoadBalancer;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background thread that behaves like a very aggressive heartbeat: every interval it marks a random provider as
+ * unhealthy through {@link LoadBalancer#removeProvider(String)} and after the next interval it adds it back through
+ * {@link LoadBalancer#addProvider(String)}. It keeps the providers flipping during the whole measurement so that the
+ * cost of the membership changes on the get() path is visible.
+ */
+final class HeartbeatSimulator
+{
+    public static final long DEFAULT_FLIP_INTERVAL_IN_MICROS = 100;
+
+    private final LoadBalancer loadBalancer;
+    private final String[] ids;
+    private final long flipIntervalInNanos;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    HeartbeatSimulator(final LoadBalancer loadBalancer, final List<String> ids, final long flipIntervalInMicros)
+    {
+        this.loadBalancer = loadBalancer;
+        this.ids = ids.toArray(new String[0]);
+        this.flipIntervalInNanos = TimeUnit.MICROSECONDS.toNanos(flipIntervalInMicros);
+    }
+
+    void start()
+    {
+        thread = new Thread(this::run, "heartbeat-simulator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() throws InterruptedException
+    {
+        running = false;
+        thread.join();
+    }
+
+    private void run()
+    {
+        final SplittableRandom random = new SplittableRandom(42);
+        while (running)
+        {
+            final String id = ids[random.nextInt(ids.length)];
+            loadBalancer.removeProvider(id);
+            LockSupport.parkNanos(flipIntervalInNanos);
+            loadBalancer.addProvider(id);
+            LockSupport.parkNanos(flipIntervalInNanos);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.interview.test.benchmarks;
+
+import com.interview.test.loadbalancers.Lease;
+import com.interview.test.loadbalancers.LoadBalancer;
+import com.interview.test.loadbalancers.LoadBalancerBuilder;
+import com.interview.test.loadbalancers.LoadBalancerType;
+import com.interview.test.providers.IProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures {@link LoadBalancer#select()}, {@link LoadBalancer#get()} and {@link LoadBalancer#acquire()} followed by
+ * the release of the lease for every load balancer type with and without a concurrently running heartbeat. The number
+ * of threads is given by the runner (see {@link BenchmarkRunner}); with the gc profiler select() and get() must report
+ * 0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBalancerBenchmark
+{
+    @Param({"Random", "RoundRobin", "StripedRoundRobin", "WeightedRandom", "WeightedRoundRobin", "LeastOutstanding",
+            "PowerOfTwoChoices", "PeakEwma", "RingHash", "Maglev", "LocalityAware"})
+    private LoadBalancerType type;
+
+    @Param({"7", "100", "10000", "100000"})
+    private int numberOfProviders;
+
+    @Param({"false", "true"})
+    private boolean heartbeat;
+
+    private LoadBalancer loadBalancer;
+    private HeartbeatSimulator heartbeatSimulator;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final List<IProvider> providers = BenchmarkProviders.getProviders(numberOfProviders);
+        loadBalancer = LoadBalancerBuilder.createLoadBalancer(providers,
+                BenchmarkProviders.getConfiguration(numberOfProviders), type);
+
+        if (heartbeat)
+        {
+            heartbeatSimulator = new HeartbeatSimulator(loadBalancer,
+                    providers.stream().map(IProvider::get).collect(Collectors.toList()),
+                    HeartbeatSimulator.DEFAULT_FLIP_INTERVAL_IN_MICROS);
+            heartbeatSimulator.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException
+    {
+        if (heartbeatSimulator != null)
+        {
+            heartbeatSimulator.stop();
+            heartbeatSimulator = null;
+        }
+    }
+
+    @Benchmark
+    public int select()
+    {
+        return loadBalancer.select();
+    }
+
+    @Benchmark
+    public String get()
+    {
+        return loadBalancer.get();
+    }
+
+    @Benchmark
+    public String acquireAndRelease()
+    {
+        try (Lease lease = loadBalancer.acquire())
+        {
+            return lease.getProviderId();
+        }
+    }
+}
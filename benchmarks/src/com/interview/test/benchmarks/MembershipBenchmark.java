@@ -0,0 +1,83 @@
+package com.interview.test.benchmarks;
+
+import com.interview.test.loadbalancers.LoadBalancer;
+import com.interview.test.loadbalancers.LoadBalancerBuilder;
+import com.interview.test.loadbalancers.LoadBalancerType;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the membership changes up to 100,000 providers: a removeProvider/addProvider pair for one
+ * provider, a pair of no-op calls (addProvider for a healthy provider and removeProvider for an unhealthy one, the
+ * steady state of the health checks), a batch that flips a hundred providers at once through applyHealthChanges and
+ * the deregistration and registration of a provider.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MembershipBenchmark
+{
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"7", "10000", "100000"})
+    private int numberOfProviders;
+
+    private LoadBalancer loadBalancer;
+    private String id;
+    private String unhealthyId;
+    private IProvider provider;
+    private List<String> batch;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        loadBalancer = LoadBalancerBuilder.createLoadBalancer(BenchmarkProviders.getProviders(numberOfProviders),
+                BenchmarkProviders.getConfiguration(numberOfProviders), LoadBalancerType.RoundRobin);
+        id = "Provider-" + (numberOfProviders / 2 + 1);
+        provider = new Provider(id, () -> true);
+        unhealthyId = "Provider-" + numberOfProviders;
+        loadBalancer.removeProvider(unhealthyId);
+        batch = new ArrayList<>();
+        for (int i = 1; i <= Math.min(BATCH_SIZE, numberOfProviders); i++)
+        {
+            batch.add("Provider-" + i);
+        }
+    }
+
+    @Benchmark
+    public void removeAndAddProvider()
+    {
+        loadBalancer.removeProvider(id);
+        loadBalancer.addProvider(id);
+    }
+
+    @Benchmark
+    public void addAndRemoveUnchangedProvider()
+    {
+        loadBalancer.addProvider(id);
+        loadBalancer.removeProvider(unhealthyId);
+    }
+
+    @Benchmark
+    public void applyHealthChangesBatch()
+    {
+        loadBalancer.applyHealthChanges(batch, Collections.emptyList());
+        loadBalancer.applyHealthChanges(Collections.emptyList(), batch);
+    }
+
+    @Benchmark
+    public void deregisterAndRegisterProvider()
+    {
+        loadBalancer.deregisterProvider(id);
+        loadBalancer.registerProvider(provider);
+    }
+}
@@ -0,0 +1,54 @@
+package com.interview.test.benchmarks;
+
+import com.interview.test.loadbalancers.LoadBalancer;
+import com.interview.test.loadbalancers.LoadBalancerBuilder;
+import com.interview.test.loadbalancers.LoadBalancerConfiguration;
+import com.interview.test.loadbalancers.LoadBalancerType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link LoadBalancer#get()} and {@link LoadBalancer#select()} with and without metrics, i.e. the cost of
+ * counting the selection of the provider.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark
+{
+    @Param({"RoundRobin", "PowerOfTwoChoices"})
+    private LoadBalancerType type;
+
+    @Param({"false", "true"})
+    private boolean metricsEnabled;
+
+    @Param({"100", "10000"})
+    private int numberOfProviders;
+
+    private LoadBalancer loadBalancer;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final LoadBalancerConfiguration configuration = BenchmarkProviders.getConfiguration(numberOfProviders);
+        configuration.setMetricsEnabled(metricsEnabled);
+        loadBalancer = LoadBalancerBuilder.createLoadBalancer(BenchmarkProviders.getProviders(numberOfProviders),
+                configuration, type);
+    }
+
+    @Benchmark
+    public String get()
+    {
+        return loadBalancer.get();
+    }
+
+    @Benchmark
+    public int select()
+    {
+        return loadBalancer.select();
+    }
+}
@@ -0,0 +1,62 @@
+package com.interview.test.benchmarks;
+
+import com.interview.test.loadbalancers.LoadBalancer;
+import com.interview.test.loadbalancers.LoadBalancerBuilder;
+import com.interview.test.loadbalancers.LoadBalancerConfiguration;
+import com.interview.test.loadbalancers.LoadBalancerType;
+import com.interview.test.loadbalancers.RandomSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link LoadBalancer#select()} and {@link LoadBalancer#get()} of the random load balancer with the unbiased
+ * bounded nextInt and with the multiply and shift range reduction (fast range reduction), drawing from a
+ * {@link java.util.concurrent.ThreadLocalRandom} per thread or from a single seeded {@link java.util.Random} shared by
+ * all the threads (one CAS updated seed, see {@link RandomSource#seeded(long)}). Run it at several thread counts (see
+ * {@link BenchmarkRunner}) to see the scaling difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RandomSourceBenchmark
+{
+    @Param({"7", "100", "10000"})
+    private int numberOfProviders;
+
+    @Param({"false", "true"})
+    private boolean fastRangeReduction;
+
+    @Param({"false", "true"})
+    private boolean sharedRandom;
+
+    private LoadBalancer loadBalancer;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final LoadBalancerConfiguration configuration = BenchmarkProviders.getConfiguration(numberOfProviders);
+        configuration.setFastRangeReduction(fastRangeReduction);
+        if (sharedRandom)
+        {
+            configuration.setRandomSource(RandomSource.seeded(42));
+        }
+        loadBalancer = LoadBalancerBuilder.createLoadBalancer(BenchmarkProviders.getProviders(numberOfProviders),
+                configuration, LoadBalancerType.Random);
+    }
+
+    @Benchmark
+    public int select()
+    {
+        return loadBalancer.select();
+    }
+
+    @Benchmark
+    public String get()
+    {
+        return loadBalancer.get();
+    }
+}
@@ -3,176 +3,765 @@ package com.interview.test.loadbalancers;
 import com.interview.test.providers.IProvider;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
 
 /**
- * The current implementation uses an arraylist to partition the healthy (left part) and unhealthy (right part)
- * providers. When a provider changes state it is swapped in the list so that the property described above can hold.
- * The get operations are non-blocking between callers except when some partitioning operation has started (which
- * happens periodically when health checks are performed).
+ * The current implementation uses an immutable snapshot (see {@link ProviderSnapshot}) to partition the healthy
+ * (left part) and unhealthy (right part) providers. When a provider changes state a new snapshot is built with the
+ * provider swapped across the partition index and it is published with a compare and set, so that the property
+ * described above can hold. The get operations never block: they read the current snapshot once and select a
+ * provider from it, even while the health checks are updating the providers.
+ * <p>
+ * Providers can be registered and deregistered at runtime. The snapshot holds the registry of the providers, so a
+ * registration is published in the same single step as a health change and the get operations are not blocked by it.
+ * A deregistered provider leaves the partition at once (no new requests are sent to it) and drains: its index is
+ * freed, and can be reused by a new provider, when its last lease is released. Registrations and deregistrations are
+ * serialized among themselves only.
+ * <p>
+ * Every provider has a number of permits, the leases it may have in flight, fixed or adapted to its latencies (see
+ * {@link ConcurrencyLimiter}). A lease takes a permit of the selected provider with a compare and set and holds it
+ * until it is released, so the permits bound the actual concurrency of the downstream calls. When the selected
+ * providers have no permits left the request is shed at once, or waits for a permit in a bounded queue until its
+ * deadline.
+ * <p>
+ * Besides the periodic health checks, a provider whose reported requests fail too often is ejected at once (see
+ * {@link OutlierDetector}). A provider that becomes healthy can get a share of the requests that ramps up over a
+ * slow start window instead of its full share at once (see {@link SlowStart}).
+ * <p>
+ * When the requests queue for too long a growing fraction of them, from the lowest priority, is shed before a
+ * provider is selected (see {@link LoadShedder}).
+ * <p>
+ * If metrics are enabled the selections are counted per provider and the health changes, health checks and
+ * registrations are reported (see {@link LoadBalancerMetrics}); otherwise the selections pay a single null check.
  */
 abstract class AbstractLoadBalancer
 {
     public static final int MAX_CONSECUTIVE_SUCCESSFUL_HEALTH_CHECKS = 2;
     public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 1000;
-    private static final int MAX_PROVIDER_LIST_SIZE = 10;
+    public static final int DEFAULT_MAX_WAITING_REQUESTS = 1000;
 
-    private volatile int size;
+    /**
+     * Number of selections made by acquire() before it sheds a request because the selected providers have no
+     * permits left.
+     */
+    static final int MAX_SELECTIONS_PER_ACQUIRE = 3;
+
+    /**
+     * Number of per provider counters allocated at once when providers are registered.
+     */
+    static final int COUNTERS_PER_CHUNK = 256;
 
     /**
-     * The list is partitioned to two parts. The left part is used for healthy providers and the right part
-     * for the unhealthy ones. Initially all are healthy. The size is used as partition index.
+     * In flight count of a drained provider, so that a caller that selected the provider from an older snapshot sees
+     * a negative count and selects again.
      */
-    private List<IProvider> providerList;
+    private static final long DRAINED = Long.MIN_VALUE / 2;
+
+    private static final long UNHEALTHY_VERDICT = 1L << 32;
+    private static final long CONSECUTIVE_SUCCESSES_MASK = UNHEALTHY_VERDICT - 1;
 
     /**
-     * Provider id to index in the providers list
+     * The current providers and their partition. The left part is used for healthy providers and the right part
+     * for the unhealthy ones. Initially all are healthy.
      */
-    private Map<String, Integer> uidToProviderIndex = new HashMap<>();
+    private final AtomicReference<ProviderSnapshot> snapshot;
 
     /**
-     * Provider id to health check counts
+     * Per provider the state of its health checks, packed in one long and updated with compare and set, so that the
+     * results of the checks are applied without locks and without boxing from any thread: the number of consecutive
+     * successful checks (low 32 bits) and the UNHEALTHY_VERDICT bit, set while the health checks consider the provider
+     * unhealthy (whatever the outlier detection and the manual changes did). Reset when a provider is registered at
+     * the index.
      */
-    private Map<String, Integer> uidToHealthCheckCount = new HashMap<>();
+    private final PaddedCounters healthCheckStates;
 
     /**
-     * Counter for the number of concurrent requests.
+     * Serializes the registrations and deregistrations.
+     */
+    private final Object membershipLock = new Object();
+
+    private final int maxNumberOfProviders;
+
+    /**
+     * Counter for the number of leases in flight.
      */
     private AtomicInteger numberOfConcurrentRequests = new AtomicInteger();
 
     /**
-     * Maximum number of concurrent requests. This is configurable on creating the load balancer.
-     * If not set the maximum default value MAX_PROVIDER_LIST_SIZE is used instead.
+     * Provider index to number of requests in flight, i.e. leases acquired and not released yet.
+     */
+    private final PaddedCounters inFlightRequests;
+
+    /**
+     * Maximum number of concurrent requests per healthy provider. This is configurable on creating the load balancer.
+     * If not set the default value DEFAULT_MAX_CONCURRENT_REQUESTS is used instead.
      */
     private Integer maxNumberOfConcurrentRequests;
 
+    /**
+     * Number of permits of every provider.
+     */
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * The callers of acquire with a timeout waiting for a permit, unparked one per released permit.
+     */
+    private final Queue<Thread> waitingThreads = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numberOfWaitingRequests = new AtomicInteger();
+    private final int maxNumberOfWaitingRequests;
+
     /**
      * Number of seconds between each health check
      */
     private Integer heartbeatIntervalInSeconds;
 
     /**
-     * Lock needed to protect the get() method from changes made when re-partitioning the providers list
-     * due to health checks. When there are no health checks taking place the callers of the get operation of the
-     * load balancer can perform get operations concurrently.
+     * Performs the periodic health checks, null if the heartbeat interval is not configured.
      */
-    private ReentrantReadWriteLock.ReadLock readLock;
+    private HealthChecker healthChecker;
 
     /**
-     * Lock needed to protect block callers of the get operation of the Load balancer while updating the healthy
-     * and unhealthy providers
+     * Ejects the providers from the results of the requests, null if the failure rate threshold is not configured.
      */
-    private ReentrantReadWriteLock.WriteLock writeLock;
+    private final OutlierDetector outlierDetector;
+
+    /**
+     * Ramps up the providers that become healthy, null if the slow start window is not configured.
+     */
+    private final SlowStart slowStart;
+
+    /**
+     * Sheds the requests while the queueing delay stays above its target, null if the target is not configured.
+     */
+    private final LoadShedder loadShedder;
+
+    /**
+     * Counts the selections and receives the events, null if metrics are not enabled.
+     */
+    private final LoadBalancerMetrics metrics;
+
+    /**
+     * Source of the time of the leases, the outlier detection and the slow start.
+     */
+    final Ticker ticker;
+
+    /**
+     * Source of the random numbers of the selections, the slow start and the load shedding.
+     */
+    final RandomSource randomSource;
 
     public AbstractLoadBalancer(List<IProvider> providerList, LoadBalancerConfiguration configuration)
     {
-        ReentrantReadWriteLock reentrantReadWriteLock = new ReentrantReadWriteLock();
-        readLock = reentrantReadWriteLock.readLock();
-        writeLock = reentrantReadWriteLock.writeLock();
-
         this.heartbeatIntervalInSeconds = configuration.getHeartbeatIntervalInSeconds();
-        int maxNumberOfProviders =
-                Optional.ofNullable(configuration.getMaxNumberOfProviders()).orElse(MAX_PROVIDER_LIST_SIZE);
+        ticker = Optional.ofNullable(configuration.getTicker()).orElse(Ticker.SYSTEM);
+        randomSource = Optional.ofNullable(configuration.getRandomSource()).orElse(RandomSource.SYSTEM);
+        maxNumberOfProviders =
+                Optional.ofNullable(configuration.getMaxNumberOfProviders()).orElse(Integer.MAX_VALUE);
 
         maxNumberOfConcurrentRequests = Optional.ofNullable(configuration.getMaxNumberOfConcurrentRequests())
                 .orElse(DEFAULT_MAX_CONCURRENT_REQUESTS);
+        maxNumberOfWaitingRequests = Optional.ofNullable(configuration.getMaxNumberOfWaitingRequests())
+                .orElse(DEFAULT_MAX_WAITING_REQUESTS);
 
         if (providerList.size() > maxNumberOfProviders)
         {
             throw new IllegalArgumentException("Exceeded Maximum Number of Providers");
         }
-        this.providerList = providerList;
-        size = providerList.size();
-
-        for (int i = 0; i < size; i++)
+        if (configuration.getSharedHealthTablePath() != null && heartbeatIntervalInSeconds == null)
+        {
+            throw new IllegalArgumentException("A shared health table needs the heartbeat interval");
+        }
+        final int size = providerList.size();
+        inFlightRequests = new PaddedCounters(COUNTERS_PER_CHUNK, size);
+        concurrencyLimiter = ConcurrencyLimiter.create(configuration, maxNumberOfConcurrentRequests, size);
+        final ProviderRegistry registry = new ProviderRegistry(providerList);
+        checkRegistry(registry);
+        snapshot = new AtomicReference<>(ProviderSnapshot.allHealthy(registry));
+        healthCheckStates = new PaddedCounters(COUNTERS_PER_CHUNK, size);
+        metrics = Boolean.TRUE.equals(configuration.getMetricsEnabled()) || configuration.getListener() != null
+                || configuration.getJmxName() != null
+                ? new LoadBalancerMetrics(this, configuration.getListener(), size) : null;
+        if (configuration.getJmxName() != null)
         {
-            final String id = providerList.get(i).get();
-            uidToProviderIndex.put(id, i);
-            uidToHealthCheckCount.put(id, 0);
+            metrics.registerMBean(configuration.getJmxName());
         }
+        outlierDetector = configuration.getOutlierFailureRateThreshold() == null ? null
+                : new OutlierDetector(this, configuration, size);
+        slowStart = configuration.getSlowStartWindowInMillis() == null ? null
+                : new SlowStart(configuration, ticker, size);
+        loadShedder = configuration.getLoadSheddingTargetDelayInMillis() == null ? null
+                : new LoadShedder(configuration, ticker, randomSource);
 
         if (heartbeatIntervalInSeconds != null)
         {
-            startHeartbeatThread(providerList);
+            healthChecker = new HealthChecker(this, configuration);
+            healthChecker.start();
+        }
+    }
+
+    /**
+     * Select the next provider from the healthy part [0, snapshot.getSize()) of the given snapshot.
+     * The snapshot has at least one healthy provider.
+     *
+     * @param snapshot
+     * @return the index of the selected provider
+     */
+    protected abstract int getNext(ProviderSnapshot snapshot);
+
+    /**
+     * Select the provider of a key from the healthy part of the given snapshot. The load balancers that route by key
+     * override it; by default the key is ignored.
+     *
+     * @param snapshot
+     * @param key null if the caller gave no key
+     * @return the index of the selected provider
+     */
+    protected int getNext(final ProviderSnapshot snapshot, final String key)
+    {
+        return getNext(snapshot);
+    }
+
+    /**
+     * Like getNext(snapshot, key), for a selection that takes a lease of the provider (acquire). The load balancers
+     * that bound the leases in flight of the providers override it; by default it is getNext(snapshot, key).
+     *
+     * @param snapshot
+     * @param key null if the caller gave no key
+     * @return the index of the selected provider
+     */
+    protected int getNextLeased(final ProviderSnapshot snapshot, final String key)
+    {
+        return getNext(snapshot, key);
+    }
+
+    /**
+     * Select count providers from the healthy part of the given snapshot. The load balancers that can select a batch
+     * cheaper than one provider at a time (e.g. with one update of a shared counter) override it; by default it calls
+     * getNext(snapshot) count times.
+     *
+     * @param snapshot
+     * @param providerIndices receives the indices of the selected providers, in [0, count)
+     * @param count
+     */
+    protected void getNext(final ProviderSnapshot snapshot, final int[] providerIndices, final int count)
+    {
+        for (int k = 0; k < count; k++)
+        {
+            providerIndices[k] = getNext(snapshot);
         }
     }
 
-    protected int getSize()
+    /**
+     * Called for the initial providers and before a provider is registered, so that the load balancers with
+     * requirements on the providers (e.g. the weights) can reject them. It is called from the constructor, so it must
+     * not use the state of the subclasses. The default accepts any provider.
+     *
+     * @param registry the registry with the provider
+     * @throws IllegalArgumentException if the providers of the registry are not supported
+     */
+    protected void checkRegistry(final ProviderRegistry registry)
+    {
+    }
+
+    /**
+     * Called before a provider is published at the given index, which may have been used by a deregistered provider.
+     * The load balancers that keep state per provider index override it to reset the state.
+     *
+     * @param providerIndex
+     */
+    protected void onProviderRegistered(final int providerIndex)
+    {
+    }
+
+    protected ProviderSnapshot getSnapshot()
     {
-        return size;
+        return snapshot.get();
     }
 
-    protected abstract int getNext();
+    /**
+     * @return the metrics, or null if they are not enabled
+     */
+    public LoadBalancerMetricsMBean getMetrics()
+    {
+        return metrics;
+    }
 
-    private void swap(int i, int j)
+    /**
+     * @return the receiver of the events, or null if metrics are not enabled
+     */
+    LoadBalancerListener getListener()
     {
-        final IProvider providerI = providerList.get(i);
-        final IProvider providerJ = providerList.get(j);
-        providerList.set(j, providerI);
-        providerList.set(i, providerJ);
-        uidToProviderIndex.put(providerI.get(), j);
-        uidToProviderIndex.put(providerJ.get(), i);
+        return metrics;
     }
 
     /**
-     * Get the next healthy load balancer and if the number of concurrent requests is greater than the
-     * maximum number of concurrent request times the number of healthy providers an error message is returned.
-     * Another option would be to simply throw an exception.
+     * @return the number of leases not released yet
+     */
+    protected int getConcurrentRequests()
+    {
+        return numberOfConcurrentRequests.get();
+    }
+
+    /**
+     * @param providerIndex
+     * @return the number of leases of the provider that are not released yet
+     */
+    protected long getInFlightRequests(final int providerIndex)
+    {
+        return inFlightRequests.get(providerIndex);
+    }
+
+    /**
+     * Get the next healthy provider, or the error message if there is none. Another option would be to simply throw
+     * an exception. The caller holds no permit of the provider, so get() is not limited; the calls that must be
+     * limited use acquire().
      *
      * @return
      */
     public String get()
     {
-        String id = LoadBalancer.ERROR_MESSAGE;
+        return get(null);
+    }
 
-        try
+    /**
+     * Like get(), selecting with {@link #getNext(ProviderSnapshot, String)}.
+     *
+     * @param key
+     * @return
+     */
+    public String get(final String key)
+    {
+        return get(key, RequestPriority.Normal);
+    }
+
+    /**
+     * Like get(key), for a request of the given priority. A shed request reads neither the snapshot nor the providers.
+     *
+     * @param key
+     * @param priority
+     * @return
+     */
+    public String get(final String key, final RequestPriority priority)
+    {
+        if (shed(priority, 1))
+        {
+            return LoadBalancer.ERROR_MESSAGE;
+        }
+        final ProviderSnapshot current = snapshot.get();
+        final int i = select(current, key);
+        if (metrics != null)
+        {
+            metrics.onSelected(i);
+        }
+        return i == LoadBalancer.NO_PROVIDER ? LoadBalancer.ERROR_MESSAGE : current.getRegistry().getId(i);
+    }
+
+    /**
+     * Like get(), returning the handle of the provider (its provider index) instead of its id. It allocates nothing
+     * and looks nothing up.
+     *
+     * @return the handle, or {@link LoadBalancer#NO_PROVIDER}
+     */
+    public int select()
+    {
+        return select(null);
+    }
+
+    public int select(final String key)
+    {
+        return select(key, RequestPriority.Normal);
+    }
+
+    public int select(final String key, final RequestPriority priority)
+    {
+        if (shed(priority, 1))
+        {
+            return LoadBalancer.NO_PROVIDER;
+        }
+        final int i = select(snapshot.get(), key);
+        if (metrics != null)
         {
-            readLock.lock();
+            metrics.onSelected(i);
+        }
+        return i;
+    }
 
-            int numOfAliveProviders = size;
-            final int requests = numberOfConcurrentRequests.incrementAndGet();
+    /**
+     * Like select(), for count providers selected from one snapshot with
+     * {@link #getNext(ProviderSnapshot, int[], int)}.
+     *
+     * @param handles
+     * @param count
+     * @return count, or 0 if no provider is available
+     */
+    public int select(final int[] handles, final int count)
+    {
+        if (count < 0 || count > handles.length)
+        {
+            throw new IndexOutOfBoundsException("Count " + count + " out of [0, " + handles.length + "]");
+        }
+        if (shed(RequestPriority.Normal, count))
+        {
+            return 0;
+        }
+        final ProviderSnapshot current = snapshot.get();
+        if (current.getSize() == 0)
+        {
+            if (metrics != null)
+            {
+                metrics.onRejected(count);
+            }
+            return 0;
+        }
+        getNext(current, handles, count);
+        if (slowStart != null && slowStart.isWarming())
+        {
+            final Random random = randomSource.current();
+            for (int k = 0; k < count; k++)
+            {
+                int i = handles[k];
+                for (int selections = 1; selections < SlowStart.MAX_SELECTIONS && !slowStart.admit(i, random);
+                     selections++)
+                {
+                    i = getNext(current);
+                }
+                handles[k] = i;
+            }
+        }
+        if (metrics != null)
+        {
+            metrics.onSelected(handles, count);
+        }
+        return count;
+    }
 
-            if (requests <= maxNumberOfConcurrentRequests * numOfAliveProviders)
+    /**
+     * @param priority
+     * @param count number of requests
+     * @return true if the requests are shed, counted in the metrics
+     */
+    private boolean shed(final RequestPriority priority, final int count)
+    {
+        if (loadShedder == null || !loadShedder.shed(priority))
+        {
+            return false;
+        }
+        if (metrics != null)
+        {
+            metrics.onShed(count);
+        }
+        return true;
+    }
+
+    /**
+     * Report the time a request waited in a queue of the caller before it was given to the load balancer, or until
+     * it was dropped, so that the requests are shed while the queue does not drain. The waits in
+     * acquire(timeout, unit) are reported by the load balancer itself.
+     *
+     * @param delayInNanos
+     */
+    public void recordQueueingDelay(final long delayInNanos)
+    {
+        if (loadShedder != null)
+        {
+            loadShedder.record(delayInNanos, ticker.nanoTime());
+        }
+    }
+
+    public IProvider getProvider(final int handle)
+    {
+        final ProviderRegistry registry = snapshot.get().getRegistry();
+        return handle >= 0 && handle < registry.capacity() ? registry.getProvider(handle) : null;
+    }
+
+    private int select(final ProviderSnapshot current, final String key)
+    {
+        return current.getSize() == 0 ? LoadBalancer.NO_PROVIDER : getNextWarm(current, key, false);
+    }
+
+    /**
+     * Like getNext(snapshot, key), or getNextLeased(snapshot, key) for a lease, selecting again while a provider that
+     * is warming up is not kept (see {@link SlowStart}). The selections with a key are kept, so that the keys do not
+     * move during the slow start.
+     */
+    private int getNextWarm(final ProviderSnapshot current, final String key, final boolean leased)
+    {
+        int i = leased ? getNextLeased(current, key) : getNext(current, key);
+        if (slowStart != null && key == null && slowStart.isWarming())
+        {
+            final Random random = randomSource.current();
+            for (int selections = 1; selections < SlowStart.MAX_SELECTIONS && !slowStart.admit(i, random);
+                 selections++)
             {
-                int i = getNext();
-                id = providerList.get(i).get();
+                i = leased ? getNextLeased(current, null) : getNext(current, null);
             }
+        }
+        return i;
+    }
+
+    /**
+     * Get the next healthy provider like get() does and take one of its permits until the returned lease is
+     * released. If the selected provider has no permits left another one is selected, up to
+     * MAX_SELECTIONS_PER_ACQUIRE times; after that, or if there are no healthy providers, the lease has the error
+     * message as provider id.
+     *
+     * @return
+     */
+    public Lease acquire()
+    {
+        return acquire(null);
+    }
 
-            numberOfConcurrentRequests.decrementAndGet();
+    /**
+     * Like acquire(), selecting with {@link #getNext(ProviderSnapshot, String)}.
+     *
+     * @param key
+     * @return
+     */
+    public Lease acquire(final String key)
+    {
+        return acquire(key, RequestPriority.Normal);
+    }
+
+    public Lease acquire(final String key, final RequestPriority priority)
+    {
+        if (shed(priority, 1))
+        {
+            return Lease.NONE;
         }
-        finally
+        final Lease lease = tryAcquire(key);
+        if (metrics != null)
         {
-            readLock.unlock();
+            metrics.onSelected(lease.getProviderHandle());
         }
+        return lease;
+    }
 
-        return id;
+    private Lease tryAcquire(final String key)
+    {
+        ProviderSnapshot current = snapshot.get();
+        for (int selections = 0; selections < MAX_SELECTIONS_PER_ACQUIRE && current.getSize() > 0; selections++)
+        {
+            final int i = getNextWarm(current, key, true);
+            final IProvider provider = current.getRegistry().getProvider(i);
+            if (tryTakePermit(i))
+            {
+                // the provider may have drained (and its index been reused) since the snapshot was read
+                final ProviderSnapshot latest = snapshot.get();
+                if (latest.getRegistry().getProvider(i) == provider)
+                {
+                    numberOfConcurrentRequests.incrementAndGet();
+                    return new Lease(this, i, provider.get());
+                }
+                releasePermit(i);
+            }
+            current = snapshot.get();
+        }
+        return Lease.NONE;
     }
 
     /**
-     * Manually remove a provider by id. The method is called also from the health checks that occur periodically
-     * every X seconds.
+     * Like acquire(), waiting up to the timeout for a permit if there is none. A released permit unparks one waiting
+     * caller, which selects again; the number of waiting callers is bounded by the maximum number of waiting
+     * requests. Providers turning healthy do not unpark the waiting callers, they see them on their next wake up.
+     * The waits are the queueing delays the load shedding is driven by.
      *
-     * @param id
+     * @param timeout
+     * @param unit
+     * @return
      */
-    public void removeProvider(String id)
+    public Lease acquire(final long timeout, final TimeUnit unit)
     {
+        return acquire(null, timeout, unit);
+    }
+
+    public Lease acquire(final String key, final long timeout, final TimeUnit unit)
+    {
+        return acquire(key, RequestPriority.Normal, timeout, unit);
+    }
+
+    public Lease acquire(final String key, final RequestPriority priority, final long timeout, final TimeUnit unit)
+    {
+        if (shed(priority, 1))
+        {
+            return Lease.NONE;
+        }
+        final Lease lease = waitAndAcquire(key, timeout, unit);
+        if (metrics != null)
+        {
+            metrics.onSelected(lease.getProviderHandle());
+        }
+        return lease;
+    }
+
+    private Lease waitAndAcquire(final String key, final long timeout, final TimeUnit unit)
+    {
+        Lease lease = tryAcquire(key);
+        if (lease.isAcquired())
+        {
+            recordQueueingDelay(0);
+            return lease;
+        }
+        if (timeout <= 0 || !tryReserveWaitingRequest())
+        {
+            return lease;
+        }
+
+        final long queuedAt = ticker.nanoTime();
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final Thread thread = Thread.currentThread();
         try
         {
-            writeLock.lock();
-            final Integer i = uidToProviderIndex.get(id);
-            if (i != null && i < size)
+            while (true)
             {
-                swap(i, size - 1);
-                size--;
+                // selecting again once queued, so that a permit released in between is not missed
+                waitingThreads.add(thread);
+                lease = tryAcquire(key);
+                final long remaining = deadline - System.nanoTime();
+                if (lease.isAcquired() || remaining <= 0 || thread.isInterrupted())
+                {
+                    return lease;
+                }
+                LockSupport.parkNanos(this, remaining);
+                waitingThreads.remove(thread);
             }
         }
         finally
         {
-            writeLock.unlock();
+            waitingThreads.remove(thread);
+            numberOfWaitingRequests.decrementAndGet();
+            recordQueueingDelay(ticker.nanoTime() - queuedAt);
         }
     }
 
+    private boolean tryReserveWaitingRequest()
+    {
+        int waiting;
+        do
+        {
+            waiting = numberOfWaitingRequests.get();
+            if (waiting >= maxNumberOfWaitingRequests)
+            {
+                return false;
+            }
+        }
+        while (!numberOfWaitingRequests.compareAndSet(waiting, waiting + 1));
+        return true;
+    }
+
+    /**
+     * Take a permit of the provider if it has one left and is not drained.
+     *
+     * @param providerIndex
+     * @return
+     */
+    private boolean tryTakePermit(final int providerIndex)
+    {
+        final int limit = concurrencyLimiter.getLimit(providerIndex);
+        long inFlight;
+        do
+        {
+            inFlight = inFlightRequests.get(providerIndex);
+            if (inFlight < 0 || inFlight >= limit)
+            {
+                return false;
+            }
+        }
+        while (!inFlightRequests.compareAndSet(providerIndex, 0, inFlight, inFlight + 1));
+        return true;
+    }
+
+    private void releasePermit(final int providerIndex)
+    {
+        if (inFlightRequests.decrementAndGet(providerIndex) == 0
+                && snapshot.get().getRegistry().getDrain(providerIndex) != null)
+        {
+            completeDrain(providerIndex);
+        }
+        if (numberOfWaitingRequests.get() > 0)
+        {
+            LockSupport.unpark(waitingThreads.poll());
+        }
+    }
+
+    void release(final int providerIndex, final long latencyInNanos, final boolean failed, final boolean dropped)
+    {
+        // before the count drops, the index of a drained provider can be reused at once
+        onRequestCompleted(providerIndex, latencyInNanos);
+        if (outlierDetector != null)
+        {
+            outlierDetector.record(providerIndex, !failed);
+        }
+        concurrencyLimiter.onRequestCompleted(providerIndex, latencyInNanos, inFlightRequests.get(providerIndex),
+                dropped);
+        numberOfConcurrentRequests.decrementAndGet();
+        releasePermit(providerIndex);
+    }
+
+    /**
+     * Return the permit of a lease whose request was abandoned, without reporting its latency or result.
+     *
+     * @param providerIndex
+     */
+    void cancel(final int providerIndex)
+    {
+        numberOfConcurrentRequests.decrementAndGet();
+        releasePermit(providerIndex);
+    }
+
+    /**
+     * Report the result of a request sent to a provider selected by select() or get(), which holds no lease.
+     *
+     * @param handle
+     * @param success
+     * @param latencyInNanos
+     */
+    public void recordResult(final int handle, final boolean success, final long latencyInNanos)
+    {
+        final ProviderRegistry registry = snapshot.get().getRegistry();
+        if (handle >= 0 && handle < registry.capacity() && registry.isRegistered(handle))
+        {
+            onRequestCompleted(handle, latencyInNanos);
+            if (outlierDetector != null)
+            {
+                outlierDetector.record(handle, success);
+            }
+        }
+    }
+
+    public void recordResult(final String providerId, final boolean success, final long latencyInNanos)
+    {
+        recordResult(snapshot.get().getRegistry().indexOf(providerId), success, latencyInNanos);
+    }
+
+    /**
+     * Called when a lease is released or the result of a request is reported. The load balancers that select by
+     * latency override it.
+     *
+     * @param providerIndex
+     * @param latencyInNanos time between the acquisition and the release of the lease
+     */
+    protected void onRequestCompleted(final int providerIndex, final long latencyInNanos)
+    {
+    }
+
+    /**
+     * Manually remove a provider by id. The method is called also from the health checks that occur periodically
+     * every X seconds.
+     *
+     * @param id
+     */
+    public void removeProvider(String id)
+    {
+        updateHealth(id, false);
+    }
+
     /**
      * Manually ad a provider by id. The method is called also from the health checks that occur periodically
      * every X seconds.
@@ -181,82 +770,538 @@ abstract class AbstractLoadBalancer
      */
     public void addProvider(String id)
     {
-        try
+        updateHealth(id, true);
+    }
+
+    /**
+     * Move one provider to the healthy or unhealthy part. The index of the provider is resolved again only if the
+     * registry changes between the attempts, and nothing is allocated when the provider is already in the requested
+     * part, the steady state of the health checks.
+     *
+     * @param id
+     * @param healthy
+     */
+    private void updateHealth(final String id, final boolean healthy)
+    {
+        ProviderSnapshot current = snapshot.get();
+        ProviderRegistry registry = current.getRegistry();
+        int providerIndex = registry.indexOf(id);
+        ProviderSnapshot next;
+        while (true)
         {
-            writeLock.lock();
-            final Integer i = uidToProviderIndex.get(id);
-            if (i != null && i >= size)
+            if (providerIndex < 0 || current.isHealthy(providerIndex) == healthy)
+            {
+                return;
+            }
+            next = healthy ? current.withProviderAdded(providerIndex) : current.withProviderRemoved(providerIndex);
+            if (next == current || snapshot.compareAndSet(current, next))
+            {
+                break;
+            }
+            current = snapshot.get();
+            if (current.getRegistry() != registry)
             {
-                swap(i, size);
-                size++;
+                registry = current.getRegistry();
+                providerIndex = registry.indexOf(id);
             }
         }
-        finally
+        if (next != current)
         {
-            writeLock.unlock();
+            onHealthChanged(current, next, providerIndex);
         }
     }
 
     /**
-     * Start a separate thread to periodically perform the health checks on the providers
+     * Remove and add a number of providers at once, publishing a single new snapshot.
      *
-     * @param providerList
+     * @param removedProviderIds
+     * @param addedProviderIds
      */
-    private void startHeartbeatThread(final List<IProvider> providerList)
+    public void applyHealthChanges(final Collection<String> removedProviderIds,
+                                   final Collection<String> addedProviderIds)
     {
-        Runnable healthCheck = () -> performHealthChecks(providerList, heartbeatIntervalInSeconds);
-        Thread healthCheckThread = new Thread(healthCheck);
-        healthCheckThread.setDaemon(true);
-        healthCheckThread.start();
+        final ProviderRegistry registry = snapshot.get().getRegistry();
+        final int[] reportedRemoved = toProviderIndices(registry, removedProviderIds);
+        final int[] reportedAdded = toProviderIndices(registry, addedProviderIds);
+        updatePartition(current ->
+        {
+            final int[] removed = toProviderIndices(current.getRegistry(), removedProviderIds);
+            final int[] added = toProviderIndices(current.getRegistry(), addedProviderIds);
+            return current.withChanges(removed, removed.length, added, added.length);
+        }, reportedRemoved, reportedRemoved.length, reportedAdded, reportedAdded.length);
     }
 
-    private void performHealthChecks(final List<IProvider> providerList, final int checkTimeInSeconds)
+    private static int[] toProviderIndices(final ProviderRegistry registry, final Collection<String> ids)
     {
-        while (true)
+        return ids.stream().mapToInt(registry::indexOf).filter(i -> i >= 0).toArray();
+    }
+
+    /**
+     * Publish a change of the partition of the providers, and report the providers at the given indices that changed
+     * part. The indices may be resolved from an older snapshot than the one changed: only actual changes are
+     * reported.
+     *
+     * @param change
+     * @param removed
+     * @param numberOfRemoved
+     * @param added
+     * @param numberOfAdded
+     */
+    private void updatePartition(final UnaryOperator<ProviderSnapshot> change, final int[] removed,
+                                 final int numberOfRemoved, final int[] added, final int numberOfAdded)
+    {
+        ProviderSnapshot current;
+        ProviderSnapshot next;
+        do
+        {
+            current = snapshot.get();
+            next = change.apply(current);
+        }
+        while (next != current && !snapshot.compareAndSet(current, next));
+
+        if ((metrics != null || slowStart != null) && next != current)
+        {
+            onHealthChanges(current, next, removed, numberOfRemoved);
+            onHealthChanges(current, next, added, numberOfAdded);
+        }
+    }
+
+    private void onHealthChanges(final ProviderSnapshot previous, final ProviderSnapshot next,
+                                 final int[] providerIndices, final int length)
+    {
+        for (int k = 0; k < length; k++)
+        {
+            onHealthChanged(previous, next, providerIndices[k]);
+        }
+    }
+
+    private void onHealthChanged(final ProviderSnapshot previous, final ProviderSnapshot next, final int providerIndex)
+    {
+        final boolean healthy = providerIndex >= 0 && next.isHealthy(providerIndex);
+        if (providerIndex >= 0 && previous.isHealthy(providerIndex) != healthy)
         {
-            for (IProvider provider : providerList)
+            if (slowStart != null)
             {
-                checkProvider(provider);
+                slowStart.onHealthChanged(providerIndex, healthy);
             }
+            if (metrics != null)
+            {
+                metrics.onHealthChanged(next.getRegistry().getId(providerIndex), healthy);
+            }
+        }
+    }
 
+    private void onMembershipLockReleased(final long lockedAt)
+    {
+        if (metrics != null)
+        {
+            metrics.onMembershipLockReleased(System.nanoTime() - lockedAt);
+        }
+    }
+
+    /**
+     * Add a new provider. It is healthy until its health checks say otherwise.
+     *
+     * @param provider
+     * @throws IllegalArgumentException if a provider with the same id is registered, the maximum number of providers
+     * is reached or the load balancer does not support the provider
+     */
+    public void registerProvider(final IProvider provider)
+    {
+        synchronized (membershipLock)
+        {
+            final long lockedAt = System.nanoTime();
             try
             {
-                Thread.sleep(1000L * checkTimeInSeconds);
+                final ProviderRegistry newRegistry = snapshot.get().getRegistry().withProvider(provider);
+                if (newRegistry.size() > maxNumberOfProviders)
+                {
+                    throw new IllegalArgumentException("Exceeded Maximum Number of Providers");
+                }
+                checkRegistry(newRegistry);
+
+                final int i = newRegistry.indexOf(provider.get());
+                inFlightRequests.ensureCapacity(newRegistry.capacity());
+                healthCheckStates.ensureCapacity(newRegistry.capacity());
+                healthCheckStates.set(i, 0);
+                if (inFlightRequests.get(i) < 0)
+                {
+                    // no permit is taken while the count is negative
+                    inFlightRequests.set(i, 0);
+                }
+                concurrencyLimiter.onProviderRegistered(i);
+                if (outlierDetector != null)
+                {
+                    outlierDetector.onProviderRegistered(i);
+                }
+                if (slowStart != null)
+                {
+                    slowStart.onProviderRegistered(i);
+                }
+                if (metrics != null)
+                {
+                    metrics.resetPicks(i);
+                }
+                onProviderRegistered(i);
+
+                // only the registry changes are serialized, the health changes may still race
+                snapshot.updateAndGet(current -> current.withProviderRegistered(newRegistry, i));
             }
-            catch (InterruptedException e)
+            finally
             {
-                // TODO: Log error
+                onMembershipLockReleased(lockedAt);
             }
         }
+        if (metrics != null)
+        {
+            metrics.onProviderRegistered(provider.get());
+        }
+    }
+
+    /**
+     * Remove a provider: no new requests are sent to it and the returned future completes when the leases in flight
+     * of the provider are released.
+     *
+     * @param id
+     * @return completed at once if the provider has no leases in flight or there is no registered provider with the
+     * given id
+     */
+    public CompletableFuture<Void> deregisterProvider(final String id)
+    {
+        final CompletableFuture<Void> drain = new CompletableFuture<>();
+        synchronized (membershipLock)
+        {
+            final long lockedAt = System.nanoTime();
+            try
+            {
+                final ProviderRegistry registry = snapshot.get().getRegistry();
+                final int i = registry.indexOf(id);
+                if (i < 0)
+                {
+                    drain.complete(null);
+                    return drain;
+                }
+
+                final ProviderRegistry newRegistry = registry.withProviderDraining(i, drain);
+                snapshot.updateAndGet(current -> current.withProviderDeregistered(newRegistry, i));
+                if (outlierDetector != null)
+                {
+                    outlierDetector.onReturned(i);
+                }
+                if (slowStart != null)
+                {
+                    slowStart.onHealthChanged(i, false);
+                }
+                if (inFlightRequests.get(i) == 0)
+                {
+                    completeDrain(i);
+                }
+            }
+            finally
+            {
+                onMembershipLockReleased(lockedAt);
+            }
+        }
+        if (metrics != null)
+        {
+            metrics.onProviderDeregistered(id);
+        }
+        return drain;
     }
 
     /**
-     * Check provider health and update counter and update the provider as healthy or unhealthy as needed,
-     * depending on the health check result and the number of consecutive successful health checks in case the provider
-     * was previously unhealthy.
+     * Free the index of a draining provider if it has no leases in flight, and complete its future. Called when the
+     * count of a draining provider drops to zero, possibly more than once.
      *
+     * @param providerIndex
+     */
+    private void completeDrain(final int providerIndex)
+    {
+        final CompletableFuture<?> drain;
+        synchronized (membershipLock)
+        {
+            final long lockedAt = System.nanoTime();
+            try
+            {
+                final ProviderRegistry registry = snapshot.get().getRegistry();
+                drain = registry.getDrain(providerIndex);
+                if (drain == null || !inFlightRequests.compareAndSet(providerIndex, 0, 0, DRAINED))
+                {
+                    return;
+                }
+                final ProviderRegistry newRegistry = registry.withoutProvider(providerIndex);
+                snapshot.updateAndGet(current -> current.withRegistry(newRegistry));
+            }
+            finally
+            {
+                onMembershipLockReleased(lockedAt);
+            }
+        }
+        drain.complete(null);
+    }
+
+    /**
+     * Move a provider that failed too many requests to the unhealthy providers.
+     *
+     * @param providerIndex
+     * @return the ejected provider
+     */
+    IProvider ejectProvider(final int providerIndex)
+    {
+        final IProvider provider = snapshot.get().getRegistry().getProvider(providerIndex);
+        updatePartition(current -> current.getRegistry().getProvider(providerIndex) == provider
+                ? current.withProviderRemoved(providerIndex) : current, new int[]{providerIndex}, 1, null, 0);
+        return provider;
+    }
+
+    /**
+     * Move an ejected provider back to the healthy providers, if it is still registered at the given index and
+     * ejected. Used when there are no health checks to bring it back.
+     *
+     * @param providerIndex
      * @param provider
      */
-    private void checkProvider(final IProvider provider)
+    void returnProvider(final int providerIndex, final IProvider provider)
     {
-        final boolean check = provider.check();
-        final String id = provider.get();
-        Integer count = uidToHealthCheckCount.get(id);
-        int newCount = check ? count + 1 : count - 1;
+        if (snapshot.get().getRegistry().getProvider(providerIndex) == provider
+                && outlierDetector.onReturned(providerIndex))
+        {
+            updatePartition(current -> current.getRegistry().getProvider(providerIndex) == provider
+                    ? current.withProviderAdded(providerIndex) : current, null, 0, new int[]{providerIndex}, 1);
+        }
+    }
 
-        newCount = Math.min(Math.max(0, newCount), MAX_CONSECUTIVE_SUCCESSFUL_HEALTH_CHECKS);
+    /**
+     * Stop the health checks and unregister the MBean. The load balancer keeps selecting from the providers as they
+     * were last checked.
+     */
+    public void close()
+    {
+        if (healthChecker != null)
+        {
+            healthChecker.close();
+        }
+        if (outlierDetector != null)
+        {
+            outlierDetector.close();
+        }
+        if (metrics != null)
+        {
+            metrics.unregisterMBean();
+        }
+    }
 
-        // TODO : Log health check and counter for given provider
-        if (!check)
+    public void checkHealth()
+    {
+        if (healthChecker != null)
         {
-            removeProvider(id);
+            throw new IllegalStateException("The health checks are run by the heartbeat");
         }
-        else if (newCount == MAX_CONSECUTIVE_SUCCESSFUL_HEALTH_CHECKS)
+        final ProviderRegistry registry = snapshot.get().getRegistry();
+        final Boolean[] results = new Boolean[registry.capacity()];
+        for (int i = 0; i < results.length; i++)
         {
-            newCount = 0;
-            addProvider(id);
+            if (!registry.isRegistered(i))
+            {
+                continue;
+            }
+            final long start = ticker.nanoTime();
+            try
+            {
+                results[i] = registry.getProvider(i).check();
+            }
+            catch (RuntimeException e)
+            {
+                results[i] = Boolean.FALSE;
+            }
+            if (metrics != null)
+            {
+                metrics.onHealthCheck(registry.getId(i), results[i], ticker.nanoTime() - start);
+            }
+        }
+        applyHealthChecks(registry, results);
+    }
+
+    /**
+     * Apply the results of a round of health checks. For each provider the health check counter is updated and the
+     * provider is marked as healthy or unhealthy as needed, depending on the health check result and the number of
+     * consecutive successful health checks in case the provider was previously unhealthy. All the changes of the
+     * round are published in a single new snapshot. The states of the providers are updated with compare and set, so
+     * rounds, e.g. of checkHealth(), may be applied concurrently.
+     * <p>
+     * The providers registered during the round are not in the results, and the results of the providers deregistered
+     * during the round are ignored. The providers ejected by the outlier detection are kept unhealthy until their
+     * ejection time elapses, then need the same consecutive successful checks as the others.
+     *
+     * @param checked the registry of the checked providers
+     * @param checks provider index to the result of its health check, null if it has none (e.g. its check did not
+     * start in the round): its state is left as it is
+     */
+    void applyHealthChecks(final ProviderRegistry checked, final Boolean[] checks)
+    {
+        final int[] removed = new int[checks.length];
+        final int[] added = new int[checks.length];
+        int numberOfRemoved = 0;
+        int numberOfAdded = 0;
+        final ProviderRegistry latest = snapshot.get().getRegistry();
+        final long now = ticker.nanoTime();
+
+        for (int i = 0; i < checks.length; i++)
+        {
+            if (checks[i] == null || latest.getProvider(i) != checked.getProvider(i))
+            {
+                // not checked, or deregistered during the round
+                continue;
+            }
+            if (outlierDetector != null && outlierDetector.isEjected(i, now))
+            {
+                resetConsecutiveSuccesses(i);
+                continue;
+            }
+
+            final boolean check = checks[i];
+            if (!check)
+            {
+                recordHealthCheck(i, false);
+                removed[numberOfRemoved++] = i;
+            }
+            else if (recordHealthCheck(i, true))
+            {
+                added[numberOfAdded++] = i;
+                if (outlierDetector != null)
+                {
+                    outlierDetector.onReturned(i);
+                }
+            }
+        }
+
+        if (numberOfRemoved > 0 || numberOfAdded > 0)
+        {
+            final int finalNumberOfRemoved = numberOfRemoved;
+            final int finalNumberOfAdded = numberOfAdded;
+            updatePartition(current ->
+            {
+                if (current.getRegistry() == checked)
+                {
+                    return current.withChanges(removed, finalNumberOfRemoved, added, finalNumberOfAdded);
+                }
+                // providers were registered or deregistered during the round
+                final ProviderRegistry registry = current.getRegistry();
+                return current.withChanges(retainUnchanged(removed, finalNumberOfRemoved, checked, registry),
+                        finalNumberOfRemoved, retainUnchanged(added, finalNumberOfAdded, checked, registry),
+                        finalNumberOfAdded);
+            }, removed, numberOfRemoved, added, numberOfAdded);
+        }
+    }
+
+    /**
+     * Record the result of a health check in the state of the provider.
+     *
+     * @param providerIndex
+     * @param check
+     * @return true if it is the last of the consecutive successful checks that make the provider healthy again
+     */
+    private boolean recordHealthCheck(final int providerIndex, final boolean check)
+    {
+        while (true)
+        {
+            final long state = healthCheckStates.get(providerIndex);
+            final long count = state & CONSECUTIVE_SUCCESSES_MASK;
+            final long newCount = Math.min(Math.max(0, check ? count + 1 : count - 1),
+                    MAX_CONSECUTIVE_SUCCESSFUL_HEALTH_CHECKS);
+            final boolean healthy = check && newCount == MAX_CONSECUTIVE_SUCCESSFUL_HEALTH_CHECKS;
+            final long next;
+            if (!check)
+            {
+                next = UNHEALTHY_VERDICT | newCount;
+            }
+            else if (healthy)
+            {
+                next = 0;
+            }
+            else
+            {
+                next = (state & UNHEALTHY_VERDICT) | newCount;
+            }
+            if (healthCheckStates.compareAndSet(providerIndex, 0, state, next))
+            {
+                return healthy;
+            }
+        }
+    }
+
+    private void resetConsecutiveSuccesses(final int providerIndex)
+    {
+        long state;
+        do
+        {
+            state = healthCheckStates.get(providerIndex);
+        }
+        while (!healthCheckStates.compareAndSet(providerIndex, 0, state, state & UNHEALTHY_VERDICT));
+    }
+
+    /**
+     * @param providerIndex
+     * @return false if the health checks consider the provider unhealthy, whether or not it is in the healthy part
+     */
+    boolean isHealthyByChecks(final int providerIndex)
+    {
+        return (healthCheckStates.get(providerIndex) & UNHEALTHY_VERDICT) == 0;
+    }
+
+    /**
+     * Apply the health of the providers read from the shared health table, as a follower. The providers are matched
+     * by id, the unknown ids are ignored and the providers ejected by the outlier detection of this process stay
+     * ejected.
+     *
+     * @param health provider id to health
+     */
+    void applySharedHealth(final Map<String, Boolean> health)
+    {
+        final ProviderSnapshot current = snapshot.get();
+        final ProviderRegistry registry = current.getRegistry();
+        final List<String> removed = new ArrayList<>();
+        final List<String> added = new ArrayList<>();
+        for (int position = 0; position < current.getCount(); position++)
+        {
+            final int i = current.getProviderIndex(position);
+            final Boolean healthy = health.get(registry.getId(i));
+            if (healthy != null && healthy != position < current.getSize() && !isEjected(i))
+            {
+                (healthy ? added : removed).add(registry.getId(i));
+            }
+        }
+        if (!removed.isEmpty() || !added.isEmpty())
+        {
+            applyHealthChanges(removed, added);
+        }
+    }
+
+    /**
+     * @param providerIndex
+     * @return true if the provider is ejected by the outlier detection
+     */
+    boolean isEjected(final int providerIndex)
+    {
+        return outlierDetector != null && outlierDetector.isEjected(providerIndex, ticker.nanoTime());
+    }
+
+    /**
+     * @return the given provider indices, with -1 instead of the indices where the provider changed
+     */
+    private static int[] retainUnchanged(final int[] providerIndices, final int length,
+                                         final ProviderRegistry checked, final ProviderRegistry current)
+    {
+        final int[] retained = Arrays.copyOf(providerIndices, length);
+        for (int k = 0; k < length; k++)
+        {
+            final int i = retained[k];
+            if (current.getProvider(i) != checked.getProvider(i))
+            {
+                retained[k] = -1;
+            }
         }
-        uidToHealthCheckCount.put(id, newCount);
+        return retained;
     }
 
 }
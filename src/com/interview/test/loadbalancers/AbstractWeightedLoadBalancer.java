@@ -0,0 +1,174 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base class of the weighted load balancers. The weight of each provider is read once from
+ * {@link IProvider#getWeight()}, when the provider is registered. The selection table of the healthy providers is
+ * built once per snapshot: the first get() that sees a new snapshot (after a removeProvider/addProvider) builds the
+ * table and the following calls reuse it, so the cost of building it is paid once per membership change and not on
+ * every call. While one caller builds the table the other callers keep selecting from the table of the previous
+ * snapshot instead of building it again. The tables hold provider indices, so a table stays valid on its own,
+ * whatever the current snapshot is.
+ * <p>
+ * A table is not built again before as much time as its build took has passed, so that the callers do not spend
+ * most of their time building large tables when the membership changes continuously (e.g. during an autoscaling
+ * churn); meanwhile the previous table is used. A provider selected from a previous table that is not healthy in the
+ * current snapshot (removed or deregistered since) is replaced by a healthy provider drawn by weight from the current
+ * snapshot, by rejection: a random healthy provider is kept with the probability of its weight over the largest
+ * weight of the registry, so the replacements keep the weighted shares without building a table. The draws are
+ * bounded, after MAX_REPLACEMENT_DRAWS rejections the last provider drawn is kept.
+ *
+ * @param <T> the selection table type
+ */
+abstract class AbstractWeightedLoadBalancer<T> extends AbstractLoadBalancer
+{
+    /**
+     * Bound of the draws of a replacement provider, for the registries whose largest weight is far above the weights
+     * of the healthy providers.
+     */
+    static final int MAX_REPLACEMENT_DRAWS = 16;
+
+    /**
+     * The table of the last snapshot seen by a get() call.
+     */
+    private volatile SnapshotTable<T> snapshotTable;
+
+    /**
+     * Set while a caller builds the table of a new snapshot.
+     */
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    /**
+     * Time before which the table is not built again, unless there is no table to fall back on.
+     */
+    private volatile long nextBuildTime;
+
+    public AbstractWeightedLoadBalancer(final List<IProvider> providerList,
+                                        final LoadBalancerConfiguration configuration)
+    {
+        super(providerList, configuration);
+    }
+
+    @Override
+    protected void checkRegistry(final ProviderRegistry registry)
+    {
+        if (!registry.hasPositiveWeights())
+        {
+            throw new IllegalArgumentException("Provider weight must be positive");
+        }
+    }
+
+    /**
+     * Build the selection table of the healthy part of the given snapshot. The table must select provider indices.
+     * The weights are in the registry of the snapshot.
+     *
+     * @param snapshot
+     * @return
+     */
+    protected abstract T createTable(ProviderSnapshot snapshot);
+
+    /**
+     * @param table
+     * @return the index of the provider selected from the table
+     */
+    protected abstract int select(T table);
+
+    @Override
+    protected final int getNext(final ProviderSnapshot snapshot)
+    {
+        final int i = select(getTable(snapshot));
+        return snapshot.isHealthy(i) ? i : getReplacement(snapshot);
+    }
+
+    /**
+     * Like getNext(snapshot), with one lookup of the table for the batch.
+     */
+    @Override
+    protected final void getNext(final ProviderSnapshot snapshot, final int[] providerIndices, final int count)
+    {
+        final T table = getTable(snapshot);
+        for (int k = 0; k < count; k++)
+        {
+            final int i = select(table);
+            providerIndices[k] = snapshot.isHealthy(i) ? i : getReplacement(snapshot);
+        }
+    }
+
+    /**
+     * @param snapshot
+     * @return a healthy provider of the snapshot drawn by weight, for a provider of a previous table that is no longer
+     * healthy
+     */
+    private int getReplacement(final ProviderSnapshot snapshot)
+    {
+        final ProviderRegistry registry = snapshot.getRegistry();
+        final int maxWeight = registry.getMaxWeight();
+        final Random random = randomSource.current();
+        int i;
+        int draws = 0;
+        do
+        {
+            i = snapshot.getProviderIndex(random.nextInt(snapshot.getSize()));
+        }
+        while (++draws < MAX_REPLACEMENT_DRAWS && random.nextInt(maxWeight) >= registry.getWeight(i));
+        return i;
+    }
+
+    /**
+     * @param snapshot
+     * @return the selection table of the given snapshot, or the table of a previous snapshot while the table of the
+     * given snapshot is built by another caller or the previous table was built too recently
+     */
+    private T getTable(final ProviderSnapshot snapshot)
+    {
+        final SnapshotTable<T> current = snapshotTable;
+        if (current != null && current.snapshot == snapshot)
+        {
+            return current.table;
+        }
+
+        // only the callers that see the latest snapshot build its table, the others would publish an older one
+        final boolean noFallback = current == null || current.snapshot.getSize() == 0;
+        if (snapshot == getSnapshot() && (noFallback || ticker.nanoTime() >= nextBuildTime)
+                && building.compareAndSet(false, true))
+        {
+            try
+            {
+                final long start = ticker.nanoTime();
+                final SnapshotTable<T> built = new SnapshotTable<>(snapshot, createTable(snapshot));
+                snapshotTable = built;
+                final long end = ticker.nanoTime();
+                nextBuildTime = end + (end - start);
+                return built.table;
+            }
+            finally
+            {
+                building.set(false);
+            }
+        }
+
+        if (noFallback)
+        {
+            // nothing to fall back on
+            return createTable(snapshot);
+        }
+        return current.table;
+    }
+
+    private static final class SnapshotTable<T>
+    {
+        private final ProviderSnapshot snapshot;
+        private final T table;
+
+        private SnapshotTable(final ProviderSnapshot snapshot, final T table)
+        {
+            this.snapshot = snapshot;
+            this.table = table;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.interview.test.loadbalancers;
+
+/**
+ * Keeps a limit per provider, starting at the initial limit and moved between 1 and the maximum number of concurrent
+ * requests by the subclasses. The limits are the double bits of the first field of padded counters (0 meaning the
+ * initial limit) and are updated with a compare and set, without locks or allocations.
+ */
+abstract class AdaptiveConcurrencyLimiter extends ConcurrencyLimiter
+{
+    protected static final int LIMIT = 0;
+
+    protected final PaddedCounters limits;
+    private final double initialLimit;
+
+    AdaptiveConcurrencyLimiter(final int initialLimit, final int maxLimit, final int numberOfProviders)
+    {
+        super(maxLimit);
+        this.initialLimit = initialLimit;
+        limits = new PaddedCounters(AbstractLoadBalancer.COUNTERS_PER_CHUNK, numberOfProviders);
+    }
+
+    /**
+     * @param providerIndex
+     * @param limit current limit of the provider
+     * @param latencyInNanos
+     * @param inFlight
+     * @param dropped
+     * @return the new limit of the provider
+     */
+    protected abstract double getNewLimit(int providerIndex, double limit, long latencyInNanos, long inFlight,
+                                          boolean dropped);
+
+    /**
+     * Called once per completed request that was not dropped, before the new limit is computed. The subclasses that
+     * keep statistics of the latencies override it.
+     *
+     * @param providerIndex
+     * @param latencyInNanos
+     */
+    protected void onLatency(final int providerIndex, final long latencyInNanos)
+    {
+    }
+
+    @Override
+    final int getLimit(final int providerIndex)
+    {
+        return (int) getLimitValue(limits.get(providerIndex, LIMIT));
+    }
+
+    @Override
+    final void onRequestCompleted(final int providerIndex, final long latencyInNanos, final long inFlight,
+                                  final boolean dropped)
+    {
+        if (!dropped)
+        {
+            onLatency(providerIndex, latencyInNanos);
+        }
+        while (true)
+        {
+            final long bits = limits.get(providerIndex, LIMIT);
+            final double limit = getLimitValue(bits);
+            final double newLimit = Math.max(1, Math.min(maxLimit,
+                    getNewLimit(providerIndex, limit, latencyInNanos, inFlight, dropped)));
+            if (newLimit == limit || limits.compareAndSet(providerIndex, LIMIT, bits,
+                    Double.doubleToRawLongBits(newLimit)))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A new provider starts again from the initial limit.
+     */
+    @Override
+    void onProviderRegistered(final int providerIndex)
+    {
+        limits.ensureCapacity(providerIndex + 1);
+        for (int field = 0; field <= getLastField(); field++)
+        {
+            limits.set(providerIndex, field, 0);
+        }
+    }
+
+    /**
+     * @return the last field of the counters used by the subclass
+     */
+    protected int getLastField()
+    {
+        return LIMIT;
+    }
+
+    private double getLimitValue(final long bits)
+    {
+        return bits == 0 ? initialLimit : Double.longBitsToDouble(bits);
+    }
+}
@@ -0,0 +1,28 @@
+package com.interview.test.loadbalancers;
+
+/**
+ * Additive increase, multiplicative decrease like TCP congestion control: a request that completes while the provider
+ * uses at least half of its limit adds 1 / limit (about one per round of requests), a dropped request takes a tenth of
+ * the limit away. Requests completing while the provider is mostly idle say nothing about its capacity and leave the
+ * limit unchanged.
+ */
+final class AimdConcurrencyLimiter extends AdaptiveConcurrencyLimiter
+{
+    private static final double BACKOFF_RATIO = 0.9;
+
+    AimdConcurrencyLimiter(final int initialLimit, final int maxLimit, final int numberOfProviders)
+    {
+        super(initialLimit, maxLimit, numberOfProviders);
+    }
+
+    @Override
+    protected double getNewLimit(final int providerIndex, final double limit, final long latencyInNanos,
+                                 final long inFlight, final boolean dropped)
+    {
+        if (dropped)
+        {
+            return limit * BACKOFF_RATIO;
+        }
+        return inFlight * 2 >= limit ? limit + 1 / limit : limit;
+    }
+}
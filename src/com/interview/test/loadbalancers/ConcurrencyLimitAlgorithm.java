@@ -0,0 +1,24 @@
+package com.interview.test.loadbalancers;
+
+/**
+ * How the number of leases a provider may have in flight (its permits) is limited.
+ */
+public enum ConcurrencyLimitAlgorithm
+{
+    /**
+     * The maximum number of concurrent requests of the configuration.
+     */
+    Fixed,
+
+    /**
+     * Additive increase, multiplicative decrease: the limit grows by one per limit's worth of requests that complete
+     * while the provider is busy and is cut by a tenth for every dropped request.
+     */
+    Aimd,
+
+    /**
+     * The limit follows the ratio of the long term to the short term average latency of the provider, so it shrinks
+     * as soon as the provider starts queueing, before requests are dropped.
+     */
+    Gradient
+}
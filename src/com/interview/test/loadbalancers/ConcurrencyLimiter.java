@@ -0,0 +1,74 @@
+package com.interview.test.loadbalancers;
+
+import java.util.Optional;
+
+/**
+ * Number of permits of every provider, i.e. how many leases it may have in flight. This one gives every provider the
+ * maximum number of concurrent requests; the adaptive limiters adjust the limit of each provider from its completed
+ * requests.
+ */
+class ConcurrencyLimiter
+{
+    public static final int DEFAULT_INITIAL_CONCURRENCY_LIMIT = 20;
+
+    protected final int maxLimit;
+
+    ConcurrencyLimiter(final int maxLimit)
+    {
+        this.maxLimit = maxLimit;
+    }
+
+    static ConcurrencyLimiter create(final LoadBalancerConfiguration configuration, final int maxLimit,
+                                     final int numberOfProviders)
+    {
+        final ConcurrencyLimitAlgorithm algorithm = Optional.ofNullable(configuration.getConcurrencyLimitAlgorithm())
+                .orElse(ConcurrencyLimitAlgorithm.Fixed);
+        final int initialLimit = Math.min(maxLimit, Optional.ofNullable(configuration.getInitialConcurrencyLimit())
+                .orElse(DEFAULT_INITIAL_CONCURRENCY_LIMIT));
+        if (initialLimit < 1)
+        {
+            throw new IllegalArgumentException("Concurrency limit must be positive");
+        }
+
+        if (algorithm == ConcurrencyLimitAlgorithm.Aimd)
+        {
+            return new AimdConcurrencyLimiter(initialLimit, maxLimit, numberOfProviders);
+        }
+        else if (algorithm == ConcurrencyLimitAlgorithm.Gradient)
+        {
+            return new GradientConcurrencyLimiter(initialLimit, maxLimit, numberOfProviders);
+        }
+        return new ConcurrencyLimiter(maxLimit);
+    }
+
+    /**
+     * @param providerIndex
+     * @return the number of leases the provider may have in flight, at least 1
+     */
+    int getLimit(final int providerIndex)
+    {
+        return maxLimit;
+    }
+
+    /**
+     * Called when a lease of the provider is released, before it stops counting as in flight.
+     *
+     * @param providerIndex
+     * @param latencyInNanos time between the acquisition and the release of the lease
+     * @param inFlight leases of the provider in flight, including this one
+     * @param dropped true if the request was rejected by the provider or timed out
+     */
+    void onRequestCompleted(final int providerIndex, final long latencyInNanos, final long inFlight,
+                            final boolean dropped)
+    {
+    }
+
+    /**
+     * Called before a provider is published at the given index, which may have been used by a deregistered provider.
+     *
+     * @param providerIndex
+     */
+    void onProviderRegistered(final int providerIndex)
+    {
+    }
+}
@@ -0,0 +1,225 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base class of the consistent hash load balancers, which select the provider of a key (see
+ * {@link LoadBalancer#get(String)}) from a lookup table of slots holding provider indices: the slot of the key is
+ * found from its hash and the provider of the first slot from it on that is healthy is used. The table holds every
+ * registered provider, healthy or not, so it is built only when the registry changes (once, by the first caller
+ * that sees the new registry; the others keep using the previous table meanwhile). A provider leaving the healthy
+ * part (removeProvider or a failed health check) moves only its own keys, each to the next healthy provider of its
+ * slot, and they move back when it is added again.
+ * <p>
+ * With a load factor c (see {@link LoadBalancerConfiguration#getHashLoadFactor()}) the leases in flight of every
+ * provider are bounded to ceil(c * (m + 1) / n) for m leases in flight over n healthy providers, counting the one
+ * being acquired (consistent hashing with bounded loads): a key whose provider is full goes on to the next slots, so
+ * a hot key spreads over a few providers instead of overloading one. As c > 1 some healthy provider is always under
+ * the bound, so the walk stops after a few slots. The bound applies to the leases of acquire(key) only: get(key) and
+ * select(key) take no lease and go straight to the provider of the key.
+ *
+ * @param <T> the lookup table type
+ */
+abstract class ConsistentHashLoadBalancer<T> extends AbstractLoadBalancer
+{
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * 0 if the loads are not bounded.
+     */
+    private final double loadFactor;
+
+    /**
+     * The table of the last registry seen by a get() call.
+     */
+    private volatile RegistryTable<T> registryTable;
+
+    /**
+     * Set while a caller builds the table of a new registry.
+     */
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    public ConsistentHashLoadBalancer(final List<IProvider> providerList,
+                                      final LoadBalancerConfiguration configuration)
+    {
+        super(providerList, configuration);
+        loadFactor = Optional.ofNullable(configuration.getHashLoadFactor()).orElse(0.0);
+        if (configuration.getHashLoadFactor() != null && loadFactor <= 1)
+        {
+            throw new IllegalArgumentException("Hash load factor must be greater than 1");
+        }
+    }
+
+    /**
+     * Build the lookup table of all the registered providers of the registry.
+     *
+     * @param registry
+     * @return
+     */
+    protected abstract T createTable(ProviderRegistry registry);
+
+    /**
+     * @param table
+     * @return the number of slots of the table
+     */
+    protected abstract int getNumberOfSlots(T table);
+
+    /**
+     * @param table
+     * @param hash hash of a key
+     * @return the slot of the key
+     */
+    protected abstract int getSlot(T table, long hash);
+
+    /**
+     * @param table
+     * @param slot
+     * @return the index of the provider of the slot
+     */
+    protected abstract int getProviderIndex(T table, int slot);
+
+    /**
+     * Without a key the provider of a random key is used.
+     */
+    @Override
+    protected int getNext(final ProviderSnapshot snapshot)
+    {
+        return getNext(snapshot, randomSource.current().nextLong());
+    }
+
+    @Override
+    protected int getNext(final ProviderSnapshot snapshot, final String key)
+    {
+        return key == null ? getNext(snapshot) : getNext(snapshot, hash(key));
+    }
+
+    @Override
+    protected int getNextLeased(final ProviderSnapshot snapshot, final String key)
+    {
+        if (loadFactor == 0)
+        {
+            return getNext(snapshot, key);
+        }
+        final long capacity = (long) Math.ceil(loadFactor * (getConcurrentRequests() + 1) / snapshot.getSize());
+        return getNext(snapshot, key == null ? randomSource.current().nextLong() : hash(key), capacity);
+    }
+
+    private int getNext(final ProviderSnapshot snapshot, final long hash)
+    {
+        return getNext(snapshot, hash, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param snapshot
+     * @param hash
+     * @param capacity bound of the leases in flight of the selected provider
+     * @return the first healthy provider from the slot of the hash that is under the capacity, or the first healthy
+     * one if none is
+     */
+    private int getNext(final ProviderSnapshot snapshot, final long hash, final long capacity)
+    {
+        final T table = getTable(snapshot.getRegistry());
+        final int numberOfSlots = getNumberOfSlots(table);
+
+        int slot = getSlot(table, hash);
+        int firstHealthy = -1;
+        for (int k = 0; k < numberOfSlots; k++)
+        {
+            final int i = getProviderIndex(table, slot);
+            if (snapshot.isHealthy(i))
+            {
+                if (getInFlightRequests(i) < capacity)
+                {
+                    return i;
+                }
+                if (firstHealthy < 0)
+                {
+                    firstHealthy = i;
+                }
+            }
+            if (++slot == numberOfSlots)
+            {
+                slot = 0;
+            }
+        }
+
+        // the healthy providers are not in the table yet, registered while it is built
+        return firstHealthy >= 0 ? firstHealthy
+                : snapshot.getProviderIndex((int) Long.remainderUnsigned(hash, snapshot.getSize()));
+    }
+
+    private T getTable(final ProviderRegistry registry)
+    {
+        final RegistryTable<T> current = registryTable;
+        if (current != null && current.registry == registry)
+        {
+            return current.table;
+        }
+
+        // only the callers that see the latest registry build its table, the others would publish an older one
+        if (registry == getSnapshot().getRegistry() && building.compareAndSet(false, true))
+        {
+            try
+            {
+                final RegistryTable<T> built = new RegistryTable<>(registry, createTable(registry));
+                registryTable = built;
+                return built.table;
+            }
+            finally
+            {
+                building.set(false);
+            }
+        }
+
+        if (current == null)
+        {
+            // nothing to fall back on
+            return createTable(registry);
+        }
+        return current.table;
+    }
+
+    /**
+     * @param key
+     * @return 64 bit FNV-1a hash of the key, mixed with the murmur3 finalizer so that all its bits are usable
+     */
+    static long hash(final String key)
+    {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++)
+        {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * murmur3 64 bit finalizer.
+     */
+    static long mix(long hash)
+    {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class RegistryTable<T>
+    {
+        private final ProviderRegistry registry;
+        private final T table;
+
+        private RegistryTable(final ProviderRegistry registry, final T table)
+        {
+            this.registry = registry;
+            this.table = table;
+        }
+    }
+}
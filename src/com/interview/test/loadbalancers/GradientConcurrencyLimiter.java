@@ -0,0 +1,85 @@
+package com.interview.test.loadbalancers;
+
+/**
+ * Gradient limit in the style of Netflix's concurrency-limits: a short term and a long term moving average of the
+ * latencies of every provider are kept, and while the short term one stays within a tolerance of the long term one
+ * the limit grows by a queue of about its square root. Once the provider starts queueing the short term latency rises
+ * first and the limit shrinks with the ratio (down to half of it per sample, smoothed), before the provider times out
+ * or rejects requests. The long term average drifts down faster when the short term one is far under it, so that the
+ * limit recovers after a long period of high latencies.
+ * <p>
+ * The averages are kept next to the limit and are updated without a compare and set: concurrent samples of a
+ * provider may overwrite each other, which only loses samples.
+ */
+final class GradientConcurrencyLimiter extends AdaptiveConcurrencyLimiter
+{
+    private static final int SHORT_TERM_LATENCY = 1;
+    private static final int LONG_TERM_LATENCY = 2;
+
+    private static final double SHORT_TERM_WINDOW = 10;
+    private static final double LONG_TERM_WINDOW = 600;
+
+    /**
+     * How much higher than the long term latency the short term latency can be before the limit shrinks.
+     */
+    private static final double TOLERANCE = 1.5;
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    GradientConcurrencyLimiter(final int initialLimit, final int maxLimit, final int numberOfProviders)
+    {
+        super(initialLimit, maxLimit, numberOfProviders);
+    }
+
+    @Override
+    protected void onLatency(final int providerIndex, final long latencyInNanos)
+    {
+        final double shortTerm = update(providerIndex, SHORT_TERM_LATENCY, latencyInNanos, SHORT_TERM_WINDOW);
+        final double longTerm = update(providerIndex, LONG_TERM_LATENCY, latencyInNanos, LONG_TERM_WINDOW);
+        if (longTerm > 2 * shortTerm)
+        {
+            limits.lazySet(providerIndex, LONG_TERM_LATENCY, Double.doubleToRawLongBits(longTerm * 0.95));
+        }
+    }
+
+    @Override
+    protected double getNewLimit(final int providerIndex, final double limit, final long latencyInNanos,
+                                 final long inFlight, final boolean dropped)
+    {
+        if (dropped)
+        {
+            return limit * BACKOFF_RATIO;
+        }
+
+        // a mostly idle provider says nothing about its capacity
+        final double shortTerm = Double.longBitsToDouble(limits.get(providerIndex, SHORT_TERM_LATENCY));
+        if (inFlight * 2 < limit || shortTerm == 0)
+        {
+            return limit;
+        }
+
+        final double longTerm = Double.longBitsToDouble(limits.get(providerIndex, LONG_TERM_LATENCY));
+        final double gradient = Math.max(MIN_GRADIENT, Math.min(1, TOLERANCE * longTerm / shortTerm));
+        final double newLimit = limit * gradient + Math.sqrt(limit);
+        return limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    }
+
+    @Override
+    protected int getLastField()
+    {
+        return LONG_TERM_LATENCY;
+    }
+
+    /**
+     * @return the moving average of the field updated with the latency, the latency for the first sample
+     */
+    private double update(final int providerIndex, final int field, final long latencyInNanos, final double window)
+    {
+        final double average = Double.longBitsToDouble(limits.get(providerIndex, field));
+        final double next = average == 0 ? latencyInNanos : average + (latencyInNanos - average) / window;
+        limits.lazySet(providerIndex, field, Double.doubleToRawLongBits(next));
+        return next;
+    }
+}
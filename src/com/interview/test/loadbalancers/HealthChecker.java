@@ -0,0 +1,348 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.BlockingProviderAdapter;
+import com.interview.test.providers.IAsyncProvider;
+import com.interview.test.providers.IProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Performs the periodic health checks of the providers of a load balancer. Every round starts the checks of all the
+ * providers and waits for each of them until the check timeout from the time it started. The non blocking checks (see
+ * {@link IAsyncProvider}) are started from the round thread, so thousands of them can be in flight without a thread
+ * each; the blocking checks are dispatched to a bounded pool of threads, so a provider that hangs does not delay the
+ * checks of the others, and are interrupted when they time out. A check that times out or throws counts as a failed
+ * check. A blocking check still queued for a thread when the round has lasted a heartbeat interval is cancelled without
+ * a result, and the provider keeps its health; so is the check of a provider whose previous check still holds a thread.
+ * The next round starts its checks with the first provider whose check did not start, so that when the pool cannot
+ * check all the providers in an interval every provider is still checked every few rounds. Every check that ran is
+ * reported with its duration if metrics are enabled. The rounds start at a fixed rate (the duration of a round does not
+ * shift the next ones) with a random jitter, so that many load balancers do not probe the providers at the same
+ * instant. The results of a round are collected and applied to the load balancer together, so a round publishes at most
+ * one new partition of the providers. Every round checks the providers registered when it starts; the draining
+ * providers are not checked. A round that throws (e.g. a failing write of the shared health table) is logged, and the
+ * next round runs as scheduled.
+ * <p>
+ * With a shared health table (see {@link SharedHealthTable}) only the leader of the host runs the rounds and writes
+ * their results to the table; the followers read the table every SHARED_HEALTH_POLL_INTERVAL_IN_MILLIS instead, and
+ * take over the rounds when the leader goes away.
+ */
+final class HealthChecker implements AutoCloseable
+{
+    public static final int DEFAULT_HEALTH_CHECK_THREADS = 16;
+
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private static final Logger LOGGER = Logger.getLogger(HealthChecker.class.getName());
+
+    /**
+     * Interval at which the followers read the shared health table, at most the heartbeat interval.
+     */
+    static final long SHARED_HEALTH_POLL_INTERVAL_IN_MILLIS = 100;
+
+    private final AbstractLoadBalancer loadBalancer;
+    private final long intervalInNanos;
+    private final long timeoutInNanos;
+    private final long jitterInNanos;
+
+    /**
+     * Single thread that runs the rounds.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Threads that run the blocking checks.
+     */
+    private final ExecutorService checkExecutor;
+
+    /**
+     * The blocking providers whose check holds a thread of the pool, possibly after it timed out. Such a provider is
+     * not checked again until its check returns, so a check that hangs and ignores the interruption holds one thread
+     * at most.
+     */
+    private final Set<IProvider> runningChecks = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Provider index the checks of the next round start with: the first provider whose check did not start in the
+     * last round. Read and written by the round thread.
+     */
+    private int firstProviderIndex;
+
+    /**
+     * Health shared with the other processes of the host, null if not configured.
+     */
+    private final SharedHealthTable sharedHealthTable;
+
+    HealthChecker(final AbstractLoadBalancer loadBalancer, final LoadBalancerConfiguration configuration)
+    {
+        this.loadBalancer = loadBalancer;
+        intervalInNanos = TimeUnit.SECONDS.toNanos(configuration.getHeartbeatIntervalInSeconds());
+        timeoutInNanos = Optional.ofNullable(configuration.getHealthCheckTimeoutInMillis())
+                .map(TimeUnit.MILLISECONDS::toNanos).orElse(intervalInNanos);
+        jitterInNanos = Optional.ofNullable(configuration.getHealthCheckJitterInMillis())
+                .map(TimeUnit.MILLISECONDS::toNanos).orElse(intervalInNanos / 10);
+        final int numberOfThreads = Math.max(1, Optional
+                .ofNullable(configuration.getNumberOfHealthCheckThreads()).orElse(DEFAULT_HEALTH_CHECK_THREADS));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("heartbeat"));
+        // the number of providers changes, the threads that are not needed stop after a few rounds
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads,
+                3 * intervalInNanos, TimeUnit.NANOSECONDS, new LinkedBlockingQueue<>(),
+                daemonThreadFactory("health-check"));
+        executor.allowCoreThreadTimeOut(true);
+        checkExecutor = executor;
+        sharedHealthTable = configuration.getSharedHealthTablePath() == null ? null
+                : new SharedHealthTable(configuration.getSharedHealthTablePath());
+    }
+
+    void start()
+    {
+        scheduleRound(System.nanoTime());
+        if (sharedHealthTable != null)
+        {
+            final long pollIntervalInNanos = Math.min(intervalInNanos,
+                    TimeUnit.MILLISECONDS.toNanos(SHARED_HEALTH_POLL_INTERVAL_IN_MILLIS));
+            scheduler.scheduleAtFixedRate(this::readSharedHealth, 0, pollIntervalInNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stop the rounds and interrupt the checks in progress.
+     */
+    @Override
+    public void close()
+    {
+        scheduler.shutdownNow();
+        checkExecutor.shutdownNow();
+        if (sharedHealthTable != null)
+        {
+            sharedHealthTable.close();
+        }
+    }
+
+    /**
+     * @param start the time the round should start at, before the jitter is added
+     */
+    private void scheduleRound(final long start)
+    {
+        final long jitter = jitterInNanos > 0 ? ThreadLocalRandom.current().nextLong(jitterInNanos) : 0;
+        try
+        {
+            scheduler.schedule(() ->
+            {
+                try
+                {
+                    performHealthChecks();
+                }
+                catch (RuntimeException e)
+                {
+                    LOGGER.log(Level.WARNING, "Health check round failed", e);
+                }
+                finally
+                {
+                    // a failed round does not stop the heartbeat
+                    scheduleRound(start + intervalInNanos);
+                }
+            }, start + jitter - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // closed
+        }
+    }
+
+    /**
+     * Apply the health written by the leader, if this load balancer is a follower.
+     */
+    private void readSharedHealth()
+    {
+        try
+        {
+            if (!sharedHealthTable.isLeader())
+            {
+                final Map<String, Boolean> health = sharedHealthTable.read();
+                if (health != null)
+                {
+                    loadBalancer.applySharedHealth(health);
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // an exception would cancel the periodic reads
+            LOGGER.log(Level.WARNING, "Reading the shared health table failed", e);
+        }
+    }
+
+    private void performHealthChecks()
+    {
+        if (sharedHealthTable != null && !sharedHealthTable.tryLead())
+        {
+            // a follower: the leader checks the providers
+            return;
+        }
+        final long roundStart = System.nanoTime();
+        final ProviderRegistry registry = loadBalancer.getSnapshot().getRegistry();
+        final LoadBalancerListener listener = loadBalancer.getListener();
+        final int capacity = registry.capacity();
+        final int first = firstProviderIndex < capacity ? firstProviderIndex : 0;
+        final AtomicLongArray startedAt = new AtomicLongArray(capacity);
+        final List<CompletableFuture<Boolean>> checks = new ArrayList<>(Collections.nCopies(capacity, null));
+        for (int k = 0; k < capacity; k++)
+        {
+            startedAt.set(k, NOT_STARTED);
+        }
+        for (int k = 0; k < capacity; k++)
+        {
+            final int i = (first + k) % capacity;
+            final IProvider provider = registry.getProvider(i);
+            if (!registry.isRegistered(i) || runningChecks.contains(provider))
+            {
+                // not registered, or its last check still holds a thread
+                continue;
+            }
+            CompletableFuture<Boolean> check;
+            try
+            {
+                check = Objects.requireNonNull(startCheck(provider, i, startedAt));
+            }
+            catch (RejectedExecutionException e)
+            {
+                // closed
+                runningChecks.remove(provider);
+                checks.stream().filter(Objects::nonNull).forEach(c -> c.cancel(true));
+                return;
+            }
+            catch (RuntimeException e)
+            {
+                check = new CompletableFuture<>();
+                check.completeExceptionally(e);
+            }
+            if (listener != null)
+            {
+                final String id = registry.getId(i);
+                final int index = i;
+                check.whenComplete((healthy, e) ->
+                {
+                    final long started = startedAt.get(index);
+                    if (started != NOT_STARTED)
+                    {
+                        listener.onHealthCheck(id, Boolean.TRUE.equals(healthy), System.nanoTime() - started);
+                    }
+                });
+            }
+            checks.set(i, check);
+        }
+
+        final Boolean[] results = new Boolean[capacity];
+        final long roundDeadline = roundStart + intervalInNanos;
+        int notStarted = -1;
+        for (int k = 0; k < capacity; k++)
+        {
+            final int i = (first + k) % capacity;
+            final CompletableFuture<Boolean> check = checks.get(i);
+            if (check == null)
+            {
+                continue;
+            }
+            try
+            {
+                results[i] = await(check, startedAt, i, roundDeadline);
+                if (notStarted < 0 && startedAt.get(i) == NOT_STARTED)
+                {
+                    notStarted = i;
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // closed
+                checks.stream().filter(Objects::nonNull).forEach(c -> c.cancel(true));
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (notStarted >= 0)
+        {
+            firstProviderIndex = notStarted;
+        }
+        loadBalancer.applyHealthChecks(registry, results);
+        if (sharedHealthTable != null)
+        {
+            sharedHealthTable.write(loadBalancer.getSnapshot(), loadBalancer::isHealthyByChecks);
+        }
+    }
+
+    /**
+     * Start the check of a provider: at once if it is non blocking, otherwise on the pool, where it may queue behind
+     * the checks of other providers. The time it starts is set in startedAt.
+     */
+    private CompletableFuture<Boolean> startCheck(final IProvider provider, final int providerIndex,
+                                                  final AtomicLongArray startedAt)
+    {
+        if (provider instanceof IAsyncProvider)
+        {
+            startedAt.set(providerIndex, System.nanoTime());
+            return ((IAsyncProvider) provider).checkAsync();
+        }
+        runningChecks.add(provider);
+        return new BlockingProviderAdapter(provider, checkExecutor).checkAsync(
+                () -> startedAt.set(providerIndex, System.nanoTime()), () -> runningChecks.remove(provider));
+    }
+
+    /**
+     * Wait for a check until the timeout from its start. A check that has not started by the end of the round is
+     * cancelled without a result.
+     *
+     * @return the result of the check, false if it failed or timed out, null if it did not start
+     */
+    private Boolean await(final CompletableFuture<Boolean> check, final AtomicLongArray startedAt,
+                          final int providerIndex, final long roundDeadline) throws InterruptedException
+    {
+        while (true)
+        {
+            final long started = startedAt.get(providerIndex);
+            final long deadline = started == NOT_STARTED ? roundDeadline : started + timeoutInNanos;
+            try
+            {
+                return Boolean.TRUE.equals(check.get(Math.max(0, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS));
+            }
+            catch (ExecutionException | CancellationException e)
+            {
+                return false;
+            }
+            catch (TimeoutException e)
+            {
+                if (started == NOT_STARTED && startedAt.get(providerIndex) != NOT_STARTED)
+                {
+                    // started while waiting, it has its whole timeout
+                    continue;
+                }
+                check.cancel(true);
+                return started == NOT_STARTED ? null : Boolean.FALSE;
+            }
+        }
+    }
+
+    static ThreadFactory daemonThreadFactory(final String name)
+    {
+        final AtomicInteger number = new AtomicInteger();
+        return runnable ->
+        {
+            Thread thread = new Thread(runnable, name + "-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
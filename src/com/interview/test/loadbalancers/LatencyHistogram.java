@@ -0,0 +1,97 @@
+package com.interview.test.loadbalancers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds with log-linear buckets, like HdrHistogram: every power of two is split in
+ * 32 buckets, so a value is known within about 3% over the whole range of longs, in a fixed array of counts.
+ * Recording is lock free (an atomic increment of the bucket); reading scans the buckets and, while values are being
+ * recorded, may miss the last ones.
+ */
+final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUMBER_OF_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUMBER_OF_BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(final long valueInNanos)
+    {
+        final long value = Math.max(0, valueInNanos);
+        counts.incrementAndGet(getBucket(value));
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value))
+        {
+            // another thread raised the maximum
+        }
+    }
+
+    long getCount()
+    {
+        long count = 0;
+        for (int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++)
+        {
+            count += counts.get(bucket);
+        }
+        return count;
+    }
+
+    long getMax()
+    {
+        return max.get();
+    }
+
+    double getMean()
+    {
+        final long count = getCount();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * @param percentile in [0, 100]
+     * @return the highest value of the bucket of the percentile, at most the maximum; 0 if nothing was recorded
+     */
+    long getValueAtPercentile(final double percentile)
+    {
+        final long count = getCount();
+        final long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < NUMBER_OF_BUCKETS && count > 0; bucket++)
+        {
+            seen += counts.get(bucket);
+            if (seen >= rank)
+            {
+                return Math.min(getHighestValue(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int getBucket(final long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket - SUB_BUCKETS;
+    }
+
+    static long getHighestValue(final int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
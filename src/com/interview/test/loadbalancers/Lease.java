@@ -0,0 +1,104 @@
+package com.interview.test.loadbalancers;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Handle of a request sent to a provider. It is returned by {@link LoadBalancer#acquire()} and the provider is
+ * counted as having one more request in flight until the lease is released, which must happen when the downstream
+ * call finishes. The time between the acquisition and the release is reported to the load balancer as the latency of
+ * the request, and a request that failed is released with {@link #fail()}, or with {@link #drop()} if the provider
+ * rejected it or it timed out so that an adaptive concurrency limit backs off. The failures count towards the outlier
+ * detection. A request abandoned before it completed, e.g. the slower of two hedged requests, is released with
+ * {@link #cancel()}. Releasing a lease more than once has no effect. If no provider was available the provider id is
+ * {@link LoadBalancer#ERROR_MESSAGE} and releasing the lease does nothing.
+ */
+public final class Lease implements AutoCloseable
+{
+    private static final AtomicIntegerFieldUpdater<Lease> RELEASED =
+            AtomicIntegerFieldUpdater.newUpdater(Lease.class, "released");
+
+    static final Lease NONE = new Lease(null, LoadBalancer.NO_PROVIDER, LoadBalancer.ERROR_MESSAGE);
+
+    private final AbstractLoadBalancer loadBalancer;
+    private final int providerIndex;
+    private final String providerId;
+    private final long acquiredAt;
+    private volatile int released;
+
+    Lease(final AbstractLoadBalancer loadBalancer, final int providerIndex, final String providerId)
+    {
+        this.loadBalancer = loadBalancer;
+        this.providerIndex = providerIndex;
+        this.providerId = providerId;
+        acquiredAt = loadBalancer == null ? 0 : loadBalancer.ticker.nanoTime();
+    }
+
+    public String getProviderId()
+    {
+        return providerId;
+    }
+
+    /**
+     * @return the handle of the provider (see {@link LoadBalancer#select()}), or {@link LoadBalancer#NO_PROVIDER}
+     */
+    public int getProviderHandle()
+    {
+        return providerIndex;
+    }
+
+    /**
+     * @return false if no provider was available
+     */
+    public boolean isAcquired()
+    {
+        return loadBalancer != null;
+    }
+
+    public void release()
+    {
+        release(false, false);
+    }
+
+    /**
+     * Release the lease of a request that failed.
+     */
+    public void fail()
+    {
+        release(true, false);
+    }
+
+    /**
+     * Release the lease of a request that failed because of the load of the provider: it was rejected, or it timed
+     * out.
+     */
+    public void drop()
+    {
+        release(true, true);
+    }
+
+    /**
+     * Release the lease of a request that was abandoned before it completed: the permit is returned, but neither a
+     * latency nor a result is reported.
+     */
+    public void cancel()
+    {
+        if (loadBalancer != null && RELEASED.compareAndSet(this, 0, 1))
+        {
+            loadBalancer.cancel(providerIndex);
+        }
+    }
+
+    private void release(final boolean failed, final boolean dropped)
+    {
+        if (loadBalancer != null && RELEASED.compareAndSet(this, 0, 1))
+        {
+            loadBalancer.release(providerIndex, loadBalancer.ticker.nanoTime() - acquiredAt, failed, dropped);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        release();
+    }
+}
@@ -0,0 +1,48 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.List;
+
+/**
+ * The next provider is the healthy provider with the fewest requests in flight (leases acquired through
+ * {@link LoadBalancer#acquire()} and not released yet). The healthy part of the snapshot is scanned starting from a
+ * random position so that ties are broken randomly. The scan is O(number of healthy providers); for large provider
+ * sets the power of two choices load balancer gives most of the benefit in O(1).
+ * <p>
+ * Requests made through get() are never in flight, so the load balancer only balances by load when acquire() is used.
+ */
+final class LeastOutstandingLoadBalancer extends AbstractLoadBalancer implements LoadBalancer
+{
+    public LeastOutstandingLoadBalancer(final List<IProvider> providerList,
+                                        final LoadBalancerConfiguration configuration)
+    {
+        super(providerList, configuration);
+    }
+
+    @Override
+    protected int getNext(final ProviderSnapshot snapshot)
+    {
+        final int size = snapshot.getSize();
+        final int start = randomSource.current().nextInt(size);
+
+        int best = snapshot.getProviderIndex(start);
+        long bestInFlight = getInFlightRequests(best);
+        for (int k = 1; k < size && bestInFlight > 0; k++)
+        {
+            int position = start + k;
+            if (position >= size)
+            {
+                position -= size;
+            }
+            final int i = snapshot.getProviderIndex(position);
+            final long inFlight = getInFlightRequests(i);
+            if (inFlight < bestInFlight)
+            {
+                best = i;
+                bestInFlight = inFlight;
+            }
+        }
+        return best;
+    }
+}
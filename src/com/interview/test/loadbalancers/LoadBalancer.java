@@ -1,12 +1,223 @@
 package com.interview.test.loadbalancers;
 
-public interface LoadBalancer
+import com.interview.test.providers.IProvider;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public interface LoadBalancer extends AutoCloseable
 {
     String ERROR_MESSAGE = "Service Unavailable";
 
+    /**
+     * Handle returned by select() when no provider is available.
+     */
+    int NO_PROVIDER = -1;
+
     String get();
 
+    /**
+     * Select a provider for the given key. The consistent hash load balancers select the same provider for the same
+     * key as long as it is healthy, the others ignore the key. A null key is like get().
+     *
+     * @param key
+     * @return
+     */
+    String get(String key);
+
+    /**
+     * Like get(key), for a request of the given priority. If load shedding is configured the request may be shed
+     * before a provider is selected, the lower priorities first, and the error message is returned; the other
+     * methods select for a {@link RequestPriority#Normal} request.
+     *
+     * @param key null for no key
+     * @param priority
+     * @return
+     */
+    String get(String key, RequestPriority priority);
+
+    /**
+     * Select a provider like get() does and return its handle, a small non negative integer, instead of its id. The
+     * handle of a provider does not change while the provider is registered and is resolved with
+     * {@link #getProvider(int)}; after the provider is deregistered the handle may be given to a new provider. The
+     * selection allocates nothing and does no lookups by id.
+     *
+     * @return the handle of the provider, or {@link #NO_PROVIDER}
+     */
+    int select();
+
+    /**
+     * Like select(), for the given key (see get(key)).
+     *
+     * @param key
+     * @return the handle of the provider, or {@link #NO_PROVIDER}
+     */
+    int select(String key);
+
+    /**
+     * Like select(key), for a request of the given priority (see get(key, priority)).
+     *
+     * @param key null for no key
+     * @param priority
+     * @return the handle of the provider, or {@link #NO_PROVIDER} if none is available or the request is shed
+     */
+    int select(String key, RequestPriority priority);
+
+    /**
+     * Select count providers like select() does, in one call: the providers are selected from one snapshot of the
+     * healthy providers, and the round robin load balancers reserve the count positions of their sequence at once, so
+     * a caller that dispatches requests in batches pays the per call costs once per batch.
+     *
+     * @param handles receives the handles of the selected providers, in [0, count)
+     * @param count number of providers to select, at most handles.length
+     * @return count, or 0 if no provider is available or the batch is shed
+     */
+    int select(int[] handles, int count);
+
+    /**
+     * @param handle handle returned by select()
+     * @return the provider of the handle, or null if the provider was deregistered and its handle is not in use, or
+     * if the handle is not one (e.g. {@link #NO_PROVIDER})
+     */
+    IProvider getProvider(int handle);
+
+    /**
+     * Select a provider like get() does and take one of its permits until the returned lease is released. It never
+     * blocks: if the selected providers have no permits left the request is shed, and the lease is not acquired.
+     *
+     * @return
+     */
+    Lease acquire();
+
+    /**
+     * Select a provider for the given key like get(key) does and keep it counted like acquire() does.
+     *
+     * @param key
+     * @return
+     */
+    Lease acquire(String key);
+
+    /**
+     * Like acquire(key), for a request of the given priority (see get(key, priority)). A shed request is not acquired.
+     *
+     * @param key null for no key
+     * @param priority
+     * @return
+     */
+    Lease acquire(String key, RequestPriority priority);
+
+    /**
+     * Like acquire(), waiting up to the timeout for a permit to be released if the selected providers have none left.
+     * The number of waiting callers is bounded, the callers above the bound are rejected at once.
+     *
+     * @param timeout
+     * @param unit
+     * @return a lease that is not acquired if the timeout elapsed, the waiting callers were too many or the thread was
+     * interrupted
+     */
+    Lease acquire(long timeout, TimeUnit unit);
+
+    /**
+     * Like acquire(timeout, unit), for the given key.
+     *
+     * @param key
+     * @param timeout
+     * @param unit
+     * @return
+     */
+    Lease acquire(String key, long timeout, TimeUnit unit);
+
+    /**
+     * Like acquire(key, timeout, unit), for a request of the given priority (see get(key, priority)). A shed request
+     * does not wait. The time the callers wait for a permit is the queueing delay that drives the load shedding.
+     *
+     * @param key null for no key
+     * @param priority
+     * @param timeout
+     * @param unit
+     * @return
+     */
+    Lease acquire(String key, RequestPriority priority, long timeout, TimeUnit unit);
+
+    /**
+     * Report the time a request waited in a queue of the caller before it was given to the load balancer, or until
+     * it was dropped. If load shedding is configured the requests are shed while these delays stay above the target.
+     *
+     * @param delayInNanos
+     */
+    void recordQueueingDelay(long delayInNanos);
+
+    /**
+     * Report the result of a request sent to a provider selected by select() or get(); the results of the leases are
+     * reported by releasing them. The failures count towards the outlier detection and the latencies towards the load
+     * balancers that select by latency. Unknown handles are ignored.
+     *
+     * @param handle
+     * @param success
+     * @param latencyInNanos
+     */
+    void recordResult(int handle, boolean success, long latencyInNanos);
+
+    /**
+     * Like recordResult(handle, success, latencyInNanos), for the provider with the given id.
+     *
+     * @param providerId
+     * @param success
+     * @param latencyInNanos
+     */
+    void recordResult(String providerId, boolean success, long latencyInNanos);
+
     void removeProvider(String providerId);
 
     void addProvider(String providerId);
+
+    /**
+     * Remove and add a number of providers at once. The new partition of the providers is published in a single
+     * step, so the callers of get() see either none or all of the changes. Unknown ids are ignored.
+     *
+     * @param removedProviderIds
+     * @param addedProviderIds
+     */
+    void applyHealthChanges(Collection<String> removedProviderIds, Collection<String> addedProviderIds);
+
+    /**
+     * Run one round of health checks on the calling thread and apply its results like the periodic rounds of the
+     * heartbeat do, for the callers that schedule the checks themselves (e.g. a simulation on a virtual clock). The
+     * checks run one after the other and are not timed out. Several threads may run rounds at the same time.
+     *
+     * @throws IllegalStateException if the heartbeat interval is configured
+     */
+    void checkHealth();
+
+    /**
+     * Add a provider at runtime, without blocking the callers of get(). The provider is healthy until its health
+     * checks say otherwise.
+     *
+     * @param provider
+     * @throws IllegalArgumentException if a provider with the same id is registered or the maximum number of
+     * providers is reached
+     */
+    void registerProvider(IProvider provider);
+
+    /**
+     * Remove a provider at runtime, without blocking the callers of get(). No new requests are sent to the provider
+     * and the leases already acquired can still be released.
+     *
+     * @param providerId
+     * @return completed when the last lease of the provider is released, at once if there is none or the id is unknown
+     */
+    CompletableFuture<Void> deregisterProvider(String providerId);
+
+    /**
+     * @return the selection counts, health transitions and timings, or null if metrics are not enabled in the
+     * configuration
+     */
+    LoadBalancerMetricsMBean getMetrics();
+
+    /**
+     * Stop the periodic health checks and unregister the metrics MBean.
+     */
+    @Override
+    void close();
 }
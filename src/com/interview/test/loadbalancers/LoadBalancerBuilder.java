@@ -21,6 +21,42 @@ public class LoadBalancerBuilder
         {
             loadBalancer = new RoundRobinLoadBalancer(providers, configuration);
         }
+        else if (type == LoadBalancerType.StripedRoundRobin)
+        {
+            loadBalancer = new StripedRoundRobinLoadBalancer(providers, configuration);
+        }
+        else if (type == LoadBalancerType.WeightedRandom)
+        {
+            loadBalancer = new WeightedRandomLoadBalancer(providers, configuration);
+        }
+        else if (type == LoadBalancerType.WeightedRoundRobin)
+        {
+            loadBalancer = new WeightedRoundRobinLoadBalancer(providers, configuration);
+        }
+        else if (type == LoadBalancerType.LeastOutstanding)
+        {
+            loadBalancer = new LeastOutstandingLoadBalancer(providers, configuration);
+        }
+        else if (type == LoadBalancerType.PowerOfTwoChoices)
+        {
+            loadBalancer = new PowerOfTwoChoicesLoadBalancer(providers, configuration);
+        }
+        else if (type == LoadBalancerType.PeakEwma)
+        {
+            loadBalancer = new PeakEwmaLoadBalancer(providers, configuration);
+        }
+        else if (type == LoadBalancerType.RingHash)
+        {
+            loadBalancer = new RingHashLoadBalancer(providers, configuration);
+        }
+        else if (type == LoadBalancerType.Maglev)
+        {
+            loadBalancer = new MaglevLoadBalancer(providers, configuration);
+        }
+        else if (type == LoadBalancerType.LocalityAware)
+        {
+            loadBalancer = new LocalityAwareLoadBalancer(providers, configuration);
+        }
 
         if (loadBalancer != null)
         {
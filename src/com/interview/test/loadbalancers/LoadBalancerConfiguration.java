@@ -8,7 +8,95 @@ public class LoadBalancerConfiguration
     private Integer maxNumberOfProviders;
     private Integer heartbeatIntervalInSeconds;
     private Integer maxNumberOfConcurrentRequests;
+    private Integer numberOfCounterStripes;
+    private Boolean fastRangeReduction;
+    private Integer latencyDecayTimeInMillis;
+    private Integer healthCheckTimeoutInMillis;
+    private Integer healthCheckJitterInMillis;
+    private Integer numberOfHealthCheckThreads;
+    private Integer numberOfVirtualNodes;
+    private Integer maglevTableSize;
+    private Double hashLoadFactor;
+    private String localZone;
+    private Integer minLocalHealthyPercent;
+    private Integer slowStartWindowInMillis;
+    private SlowStartRamp slowStartRamp;
+    private Integer slowStartMinWeightPercent;
+    private Integer maxAttempts;
+    private Integer retryBudgetPercent;
+    private Double hedgeDelayPercentile;
+    private Integer maxConsecutiveFailures;
+    private ConcurrencyLimitAlgorithm concurrencyLimitAlgorithm;
+    private Integer initialConcurrencyLimit;
+    private Integer maxNumberOfWaitingRequests;
+    private Integer loadSheddingTargetDelayInMillis;
+    private Integer loadSheddingIntervalInMillis;
+    private Double outlierFailureRateThreshold;
+    private Integer outlierMinRequests;
+    private Integer outlierDetectionWindowInMillis;
+    private Integer baseEjectionTimeInMillis;
+    private Integer maxEjectionPercent;
+    private Boolean metricsEnabled;
+    private LoadBalancerListener listener;
+    private String jmxName;
+    private Ticker ticker;
+    private RandomSource randomSource;
+    private String sharedHealthTablePath;
 
+    public LoadBalancerConfiguration()
+    {
+    }
+
+    /**
+     * A copy of the given configuration, e.g. to change a few settings of a shared configuration.
+     *
+     * @param other
+     */
+    public LoadBalancerConfiguration(final LoadBalancerConfiguration other)
+    {
+        maxNumberOfProviders = other.maxNumberOfProviders;
+        heartbeatIntervalInSeconds = other.heartbeatIntervalInSeconds;
+        maxNumberOfConcurrentRequests = other.maxNumberOfConcurrentRequests;
+        numberOfCounterStripes = other.numberOfCounterStripes;
+        fastRangeReduction = other.fastRangeReduction;
+        latencyDecayTimeInMillis = other.latencyDecayTimeInMillis;
+        healthCheckTimeoutInMillis = other.healthCheckTimeoutInMillis;
+        healthCheckJitterInMillis = other.healthCheckJitterInMillis;
+        numberOfHealthCheckThreads = other.numberOfHealthCheckThreads;
+        numberOfVirtualNodes = other.numberOfVirtualNodes;
+        maglevTableSize = other.maglevTableSize;
+        hashLoadFactor = other.hashLoadFactor;
+        localZone = other.localZone;
+        minLocalHealthyPercent = other.minLocalHealthyPercent;
+        slowStartWindowInMillis = other.slowStartWindowInMillis;
+        slowStartRamp = other.slowStartRamp;
+        slowStartMinWeightPercent = other.slowStartMinWeightPercent;
+        maxAttempts = other.maxAttempts;
+        retryBudgetPercent = other.retryBudgetPercent;
+        hedgeDelayPercentile = other.hedgeDelayPercentile;
+        maxConsecutiveFailures = other.maxConsecutiveFailures;
+        concurrencyLimitAlgorithm = other.concurrencyLimitAlgorithm;
+        initialConcurrencyLimit = other.initialConcurrencyLimit;
+        maxNumberOfWaitingRequests = other.maxNumberOfWaitingRequests;
+        loadSheddingTargetDelayInMillis = other.loadSheddingTargetDelayInMillis;
+        loadSheddingIntervalInMillis = other.loadSheddingIntervalInMillis;
+        outlierFailureRateThreshold = other.outlierFailureRateThreshold;
+        outlierMinRequests = other.outlierMinRequests;
+        outlierDetectionWindowInMillis = other.outlierDetectionWindowInMillis;
+        baseEjectionTimeInMillis = other.baseEjectionTimeInMillis;
+        maxEjectionPercent = other.maxEjectionPercent;
+        metricsEnabled = other.metricsEnabled;
+        listener = other.listener;
+        jmxName = other.jmxName;
+        ticker = other.ticker;
+        randomSource = other.randomSource;
+        sharedHealthTablePath = other.sharedHealthTablePath;
+    }
+
+    /**
+     * Number of leases every provider may have in flight (its permits). The adaptive concurrency limits stay under
+     * it.
+     */
     public Integer getMaxNumberOfConcurrentRequests()
     {
         return maxNumberOfConcurrentRequests;
@@ -38,4 +126,476 @@ public class LoadBalancerConfiguration
     {
         this.heartbeatIntervalInSeconds = heartbeatIntervalInSeconds;
     }
+
+    /**
+     * Time after which a health check that has not completed counts as failed. If not set the heartbeat interval is
+     * used.
+     */
+    public Integer getHealthCheckTimeoutInMillis()
+    {
+        return healthCheckTimeoutInMillis;
+    }
+
+    public void setHealthCheckTimeoutInMillis(final int healthCheckTimeoutInMillis)
+    {
+        this.healthCheckTimeoutInMillis = healthCheckTimeoutInMillis;
+    }
+
+    /**
+     * Maximum random delay added to the start of each round of health checks. If not set a tenth of the heartbeat
+     * interval is used.
+     */
+    public Integer getHealthCheckJitterInMillis()
+    {
+        return healthCheckJitterInMillis;
+    }
+
+    public void setHealthCheckJitterInMillis(final int healthCheckJitterInMillis)
+    {
+        this.healthCheckJitterInMillis = healthCheckJitterInMillis;
+    }
+
+    /**
+     * Number of threads that perform the health checks concurrently.
+     */
+    public Integer getNumberOfHealthCheckThreads()
+    {
+        return numberOfHealthCheckThreads;
+    }
+
+    public void setNumberOfHealthCheckThreads(final int numberOfHealthCheckThreads)
+    {
+        this.numberOfHealthCheckThreads = numberOfHealthCheckThreads;
+    }
+
+    /**
+     * Number of counter stripes used by the striped round robin load balancer. It is rounded up to a power of two.
+     * If not set the number of available processors is used.
+     */
+    public Integer getNumberOfCounterStripes()
+    {
+        return numberOfCounterStripes;
+    }
+
+    public void setNumberOfCounterStripes(final int numberOfCounterStripes)
+    {
+        this.numberOfCounterStripes = numberOfCounterStripes;
+    }
+
+    /**
+     * If set the random load balancer maps the random values to the healthy providers with a multiply and shift
+     * instead of the (slower) unbiased bounded random.
+     */
+    public Boolean getFastRangeReduction()
+    {
+        return fastRangeReduction;
+    }
+
+    public void setFastRangeReduction(final boolean fastRangeReduction)
+    {
+        this.fastRangeReduction = fastRangeReduction;
+    }
+
+    /**
+     * Decay time of the moving average of the latencies used by the peak EWMA load balancer. After this time
+     * without requests a provider's latency has decayed to about a third.
+     */
+    public Integer getLatencyDecayTimeInMillis()
+    {
+        return latencyDecayTimeInMillis;
+    }
+
+    public void setLatencyDecayTimeInMillis(final int latencyDecayTimeInMillis)
+    {
+        this.latencyDecayTimeInMillis = latencyDecayTimeInMillis;
+    }
+
+    /**
+     * Number of points of each provider (per unit of weight) on the ring of the ring hash load balancer. If not set
+     * 100 is used, fewer if the ring would be too large.
+     */
+    public Integer getNumberOfVirtualNodes()
+    {
+        return numberOfVirtualNodes;
+    }
+
+    public void setNumberOfVirtualNodes(final int numberOfVirtualNodes)
+    {
+        this.numberOfVirtualNodes = numberOfVirtualNodes;
+    }
+
+    /**
+     * Size of the lookup table of the Maglev load balancer. It is rounded up to a prime and must not be lower than
+     * the number of providers. If not set the lowest prime above 65536 and a hundred times the number of providers
+     * is used.
+     */
+    public Integer getMaglevTableSize()
+    {
+        return maglevTableSize;
+    }
+
+    public void setMaglevTableSize(final int maglevTableSize)
+    {
+        this.maglevTableSize = maglevTableSize;
+    }
+
+    /**
+     * If set the consistent hash load balancers bound the leases in flight of every provider to this factor (greater
+     * than 1) times the average, and a key whose provider is full goes to the next provider of the ring or table.
+     */
+    public Double getHashLoadFactor()
+    {
+        return hashLoadFactor;
+    }
+
+    public void setHashLoadFactor(final double hashLoadFactor)
+    {
+        this.hashLoadFactor = hashLoadFactor;
+    }
+
+    /**
+     * Zone of the caller, whose providers the locality aware load balancer prefers. If not set the providers without
+     * a zone are the local ones.
+     */
+    public String getLocalZone()
+    {
+        return localZone;
+    }
+
+    public void setLocalZone(final String localZone)
+    {
+        this.localZone = localZone;
+    }
+
+    /**
+     * Percentage of the weight of the local zone that must be healthy for the locality aware load balancer to keep all
+     * the requests local; below it the requests spill over to the other zones in proportion. If not set 70 is used.
+     */
+    public Integer getMinLocalHealthyPercent()
+    {
+        return minLocalHealthyPercent;
+    }
+
+    public void setMinLocalHealthyPercent(final int minLocalHealthyPercent)
+    {
+        this.minLocalHealthyPercent = minLocalHealthyPercent;
+    }
+
+    /**
+     * If set a provider that becomes healthy (registered, or back from the unhealthy providers) gets a share of the
+     * requests that ramps up to its full share over this window.
+     */
+    public Integer getSlowStartWindowInMillis()
+    {
+        return slowStartWindowInMillis;
+    }
+
+    public void setSlowStartWindowInMillis(final int slowStartWindowInMillis)
+    {
+        this.slowStartWindowInMillis = slowStartWindowInMillis;
+    }
+
+    /**
+     * How the share of a provider grows over the slow start window. If not set it grows linearly.
+     */
+    public SlowStartRamp getSlowStartRamp()
+    {
+        return slowStartRamp;
+    }
+
+    public void setSlowStartRamp(final SlowStartRamp slowStartRamp)
+    {
+        this.slowStartRamp = slowStartRamp;
+    }
+
+    /**
+     * Percentage of its full share a provider starts its slow start window with. If not set 10 is used.
+     */
+    public Integer getSlowStartMinWeightPercent()
+    {
+        return slowStartMinWeightPercent;
+    }
+
+    public void setSlowStartMinWeightPercent(final int slowStartMinWeightPercent)
+    {
+        this.slowStartMinWeightPercent = slowStartMinWeightPercent;
+    }
+
+    /**
+     * Maximum number of attempts of a request executed by a {@link RequestExecutor}, hedged attempts included. If not
+     * set 3 is used.
+     */
+    public Integer getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(final int maxAttempts)
+    {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Number of retries and hedged attempts a {@link RequestExecutor} may make per hundred requests, besides a small
+     * burst. If not set 20 is used.
+     */
+    public Integer getRetryBudgetPercent()
+    {
+        return retryBudgetPercent;
+    }
+
+    public void setRetryBudgetPercent(final int retryBudgetPercent)
+    {
+        this.retryBudgetPercent = retryBudgetPercent;
+    }
+
+    /**
+     * If set a {@link RequestExecutor} sends a hedged attempt to another provider when an attempt has not completed
+     * after this percentile (e.g. 95) of the latencies of the successful attempts.
+     */
+    public Double getHedgeDelayPercentile()
+    {
+        return hedgeDelayPercentile;
+    }
+
+    public void setHedgeDelayPercentile(final double hedgeDelayPercentile)
+    {
+        this.hedgeDelayPercentile = hedgeDelayPercentile;
+    }
+
+    /**
+     * If set a {@link RequestExecutor} removes a provider from the healthy providers after this number of consecutive
+     * failed attempts; the health checks bring it back.
+     */
+    public Integer getMaxConsecutiveFailures()
+    {
+        return maxConsecutiveFailures;
+    }
+
+    public void setMaxConsecutiveFailures(final int maxConsecutiveFailures)
+    {
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+    }
+
+    /**
+     * How the permits of the providers are limited. If not set every provider has the maximum number of concurrent
+     * requests.
+     */
+    public ConcurrencyLimitAlgorithm getConcurrencyLimitAlgorithm()
+    {
+        return concurrencyLimitAlgorithm;
+    }
+
+    public void setConcurrencyLimitAlgorithm(final ConcurrencyLimitAlgorithm concurrencyLimitAlgorithm)
+    {
+        this.concurrencyLimitAlgorithm = concurrencyLimitAlgorithm;
+    }
+
+    /**
+     * Number of permits a provider starts with when its limit is adaptive. If not set 20 is used, or the maximum
+     * number of concurrent requests if lower.
+     */
+    public Integer getInitialConcurrencyLimit()
+    {
+        return initialConcurrencyLimit;
+    }
+
+    public void setInitialConcurrencyLimit(final int initialConcurrencyLimit)
+    {
+        this.initialConcurrencyLimit = initialConcurrencyLimit;
+    }
+
+    /**
+     * Maximum number of callers waiting for a permit in acquire with a timeout; the callers above it are rejected at
+     * once. If not set 1000 is used.
+     */
+    public Integer getMaxNumberOfWaitingRequests()
+    {
+        return maxNumberOfWaitingRequests;
+    }
+
+    public void setMaxNumberOfWaitingRequests(final int maxNumberOfWaitingRequests)
+    {
+        this.maxNumberOfWaitingRequests = maxNumberOfWaitingRequests;
+    }
+
+    /**
+     * If set the requests are shed before they select a provider, from the lowest priority, while the queueing delay
+     * of the requests stays above this target for whole load shedding intervals. If not set nothing is shed.
+     */
+    public Integer getLoadSheddingTargetDelayInMillis()
+    {
+        return loadSheddingTargetDelayInMillis;
+    }
+
+    public void setLoadSheddingTargetDelayInMillis(final int loadSheddingTargetDelayInMillis)
+    {
+        this.loadSheddingTargetDelayInMillis = loadSheddingTargetDelayInMillis;
+    }
+
+    /**
+     * Interval over which the smallest queueing delay is compared to the load shedding target. If not set 100 is used.
+     */
+    public Integer getLoadSheddingIntervalInMillis()
+    {
+        return loadSheddingIntervalInMillis;
+    }
+
+    public void setLoadSheddingIntervalInMillis(final int loadSheddingIntervalInMillis)
+    {
+        this.loadSheddingIntervalInMillis = loadSheddingIntervalInMillis;
+    }
+
+    /**
+     * If set a provider is ejected as soon as the reported failures reach this fraction (in (0, 1]) of its requests in
+     * the outlier detection window.
+     */
+    public Double getOutlierFailureRateThreshold()
+    {
+        return outlierFailureRateThreshold;
+    }
+
+    public void setOutlierFailureRateThreshold(final double outlierFailureRateThreshold)
+    {
+        this.outlierFailureRateThreshold = outlierFailureRateThreshold;
+    }
+
+    /**
+     * Minimum number of requests of a provider in the outlier detection window before it can be ejected. If not set
+     * 10 is used.
+     */
+    public Integer getOutlierMinRequests()
+    {
+        return outlierMinRequests;
+    }
+
+    public void setOutlierMinRequests(final int outlierMinRequests)
+    {
+        this.outlierMinRequests = outlierMinRequests;
+    }
+
+    /**
+     * Time over which the failure rate of the outlier detection is measured. If not set 10 seconds are used.
+     */
+    public Integer getOutlierDetectionWindowInMillis()
+    {
+        return outlierDetectionWindowInMillis;
+    }
+
+    public void setOutlierDetectionWindowInMillis(final int outlierDetectionWindowInMillis)
+    {
+        this.outlierDetectionWindowInMillis = outlierDetectionWindowInMillis;
+    }
+
+    /**
+     * Time an ejected provider is kept out the first time, doubled for every following ejection. If not set 30
+     * seconds are used.
+     */
+    public Integer getBaseEjectionTimeInMillis()
+    {
+        return baseEjectionTimeInMillis;
+    }
+
+    public void setBaseEjectionTimeInMillis(final int baseEjectionTimeInMillis)
+    {
+        this.baseEjectionTimeInMillis = baseEjectionTimeInMillis;
+    }
+
+    /**
+     * Maximum percentage of the providers ejected at the same time; one provider can always be ejected. If not set 10
+     * is used.
+     */
+    public Integer getMaxEjectionPercent()
+    {
+        return maxEjectionPercent;
+    }
+
+    public void setMaxEjectionPercent(final int maxEjectionPercent)
+    {
+        this.maxEjectionPercent = maxEjectionPercent;
+    }
+
+    /**
+     * Count the selections and rejections per provider and record the health check durations and membership lock hold
+     * times, read through LoadBalancer.getMetrics(). Enabled as well when a listener or a JMX name is set. If not set
+     * no metrics are kept.
+     */
+    public Boolean getMetricsEnabled()
+    {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(final boolean metricsEnabled)
+    {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    /**
+     * Receives the health changes, health checks and registrations of the providers.
+     */
+    public LoadBalancerListener getListener()
+    {
+        return listener;
+    }
+
+    public void setListener(final LoadBalancerListener listener)
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * Name of the metrics MBean registered in the platform MBean server, unregistered on close(). If not set no MBean
+     * is registered.
+     */
+    public String getJmxName()
+    {
+        return jmxName;
+    }
+
+    public void setJmxName(final String jmxName)
+    {
+        this.jmxName = jmxName;
+    }
+
+    /**
+     * Source of the time of the load balancer, the system time if not set.
+     */
+    public Ticker getTicker()
+    {
+        return ticker;
+    }
+
+    public void setTicker(final Ticker ticker)
+    {
+        this.ticker = ticker;
+    }
+
+    /**
+     * Source of the random numbers of the load balancer, a {@link java.util.concurrent.ThreadLocalRandom} per thread
+     * if not set.
+     */
+    public RandomSource getRandomSource()
+    {
+        return randomSource;
+    }
+
+    public void setRandomSource(final RandomSource randomSource)
+    {
+        this.randomSource = randomSource;
+    }
+
+    /**
+     * Path of a file (e.g. under /dev/shm) through which the load balancers of the processes of a host share the
+     * health of their providers: one of them runs the health checks and the others read their results. Needs the
+     * heartbeat interval. If not set every load balancer runs its own health checks.
+     */
+    public String getSharedHealthTablePath()
+    {
+        return sharedHealthTablePath;
+    }
+
+    public void setSharedHealthTablePath(final String sharedHealthTablePath)
+    {
+        this.sharedHealthTablePath = sharedHealthTablePath;
+    }
 }
@@ -0,0 +1,50 @@
+package com.interview.test.loadbalancers;
+
+/**
+ * Receives the events of a load balancer, e.g. to log them or to feed a metrics library. The callbacks are made by
+ * the thread that caused the event (the health checker, or the caller that changed the providers) after the change
+ * is published, and must return quickly. An exception thrown by a callback is logged and dropped: a listener observes
+ * the load balancer and cannot change its behaviour. The selections are not reported one by one, they are counted
+ * (see {@link LoadBalancerMetricsMBean}).
+ */
+public interface LoadBalancerListener
+{
+    /**
+     * A provider moved to the healthy or the unhealthy providers, by the health checks, the outlier detection or a
+     * manual change.
+     *
+     * @param providerId
+     * @param healthy
+     */
+    default void onHealthChanged(final String providerId, final boolean healthy)
+    {
+    }
+
+    /**
+     * A health check completed, failed or timed out.
+     *
+     * @param providerId
+     * @param healthy
+     * @param durationInNanos
+     */
+    default void onHealthCheck(final String providerId, final boolean healthy, final long durationInNanos)
+    {
+    }
+
+    default void onProviderRegistered(final String providerId)
+    {
+    }
+
+    default void onProviderDeregistered(final String providerId)
+    {
+    }
+
+    /**
+     * The lock that serializes the registrations and deregistrations was released.
+     *
+     * @param heldInNanos
+     */
+    default void onMembershipLockReleased(final long heldInNanos)
+    {
+    }
+}
@@ -0,0 +1,445 @@
+package com.interview.test.loadbalancers;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Counts the selections of every provider and the rejections, and records the events of the load balancer before
+ * passing them to the configured listener. The selections are counted in stripes of counts per provider, like the
+ * cells of a LongAdder: there are as many stripes as cores (rounded up to a power of two), a thread counts in the
+ * stripe of its id and a stripe is allocated when a thread first uses it, so the memory is bounded by the number of
+ * cores whatever the number of threads that select. The threads of different stripes do not share cache lines, so
+ * counting a selection is in most cases an uncontended atomic increment. Reading a count sums the stripes in use. The
+ * counts are never cleared: when an index is reused by a newly registered provider, the count at the registration is
+ * subtracted from the reads.
+ * <p>
+ * The events are passed to the listener after they are recorded; an exception thrown by the listener is logged and
+ * dropped, so that it reaches neither the caller that changed the providers nor the health checks.
+ */
+final class LoadBalancerMetrics implements LoadBalancerMetricsMBean, LoadBalancerListener
+{
+    private static final String JMX_DOMAIN = "com.interview.test.loadbalancers";
+
+    private static final Logger LOGGER = Logger.getLogger(LoadBalancerMetrics.class.getName());
+
+    private final AbstractLoadBalancer loadBalancer;
+    private final LoadBalancerListener listener;
+
+    /**
+     * Allocated when first used.
+     */
+    private final AtomicReferenceArray<PickCounts> pickCounts;
+    private final int stripeMask;
+
+    /**
+     * Provider index to its number of selections when it was registered. Grown and written under the membership lock.
+     */
+    private volatile AtomicLongArray pickOffsets;
+
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder shedRequests = new LongAdder();
+    private final LongAdder healthTransitions = new LongAdder();
+    private final LatencyHistogram healthCheckDurations = new LatencyHistogram();
+    private final LatencyHistogram membershipLockHoldTimes = new LatencyHistogram();
+
+    private ObjectName objectName;
+
+    LoadBalancerMetrics(final AbstractLoadBalancer loadBalancer, final LoadBalancerListener listener,
+                        final int numberOfProviders)
+    {
+        this.loadBalancer = loadBalancer;
+        this.listener = listener;
+        pickOffsets = new AtomicLongArray(numberOfProviders);
+        final int numberOfStripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+        pickCounts = new AtomicReferenceArray<>(numberOfStripes);
+        stripeMask = numberOfStripes - 1;
+    }
+
+    /**
+     * Register the metrics in the platform MBean server.
+     *
+     * @param name
+     * @throws IllegalArgumentException if the name is already in use
+     */
+    void registerMBean(final String name)
+    {
+        try
+        {
+            objectName = new ObjectName(JMX_DOMAIN + ":type=LoadBalancer,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(this, LoadBalancerMetricsMBean.class), objectName);
+        }
+        catch (JMException e)
+        {
+            objectName = null;
+            throw new IllegalArgumentException("Cannot register the load balancer MBean " + name, e);
+        }
+    }
+
+    void unregisterMBean()
+    {
+        if (objectName == null)
+        {
+            return;
+        }
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+        catch (JMException e)
+        {
+            // already unregistered
+        }
+        objectName = null;
+    }
+
+    /**
+     * @param providerIndex the selected provider, or {@link LoadBalancer#NO_PROVIDER}
+     */
+    void onSelected(final int providerIndex)
+    {
+        if (providerIndex < 0)
+        {
+            rejections.increment();
+        }
+        else
+        {
+            stripe().increment(providerIndex);
+        }
+    }
+
+    void onSelected(final int[] providerIndices, final int count)
+    {
+        final PickCounts counts = stripe();
+        for (int k = 0; k < count; k++)
+        {
+            counts.increment(providerIndices[k]);
+        }
+    }
+
+    void onRejected(final int count)
+    {
+        rejections.add(count);
+    }
+
+    void onShed(final int count)
+    {
+        shedRequests.add(count);
+    }
+
+    /**
+     * Called before a provider is published at the given index, with the membership lock held.
+     *
+     * @param providerIndex
+     */
+    void resetPicks(final int providerIndex)
+    {
+        AtomicLongArray offsets = pickOffsets;
+        if (providerIndex >= offsets.length())
+        {
+            offsets = grow(offsets, providerIndex + 1);
+            pickOffsets = offsets;
+        }
+        offsets.set(providerIndex, sumPicks(providerIndex));
+    }
+
+    private long sumPicks(final int providerIndex)
+    {
+        long sum = 0;
+        for (int stripe = 0; stripe < pickCounts.length(); stripe++)
+        {
+            final PickCounts counts = pickCounts.get(stripe);
+            if (counts != null)
+            {
+                sum += counts.get(providerIndex);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return the stripe of the current thread
+     */
+    private PickCounts stripe()
+    {
+        final int stripe = (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask;
+        final PickCounts counts = pickCounts.get(stripe);
+        if (counts != null)
+        {
+            return counts;
+        }
+        pickCounts.compareAndSet(stripe, null, new PickCounts(pickOffsets.length()));
+        return pickCounts.get(stripe);
+    }
+
+    private static AtomicLongArray grow(final AtomicLongArray array, final int minLength)
+    {
+        final AtomicLongArray grown = new AtomicLongArray(Math.max(minLength, 2 * array.length()));
+        for (int i = 0; i < array.length(); i++)
+        {
+            grown.set(i, array.get(i));
+        }
+        return grown;
+    }
+
+    @Override
+    public void onHealthChanged(final String providerId, final boolean healthy)
+    {
+        healthTransitions.increment();
+        if (listener != null)
+        {
+            try
+            {
+                listener.onHealthChanged(providerId, healthy);
+            }
+            catch (RuntimeException e)
+            {
+                onListenerFailed(e);
+            }
+        }
+    }
+
+    @Override
+    public void onHealthCheck(final String providerId, final boolean healthy, final long durationInNanos)
+    {
+        healthCheckDurations.record(durationInNanos);
+        if (listener != null)
+        {
+            try
+            {
+                listener.onHealthCheck(providerId, healthy, durationInNanos);
+            }
+            catch (RuntimeException e)
+            {
+                onListenerFailed(e);
+            }
+        }
+    }
+
+    @Override
+    public void onProviderRegistered(final String providerId)
+    {
+        if (listener != null)
+        {
+            try
+            {
+                listener.onProviderRegistered(providerId);
+            }
+            catch (RuntimeException e)
+            {
+                onListenerFailed(e);
+            }
+        }
+    }
+
+    @Override
+    public void onProviderDeregistered(final String providerId)
+    {
+        if (listener != null)
+        {
+            try
+            {
+                listener.onProviderDeregistered(providerId);
+            }
+            catch (RuntimeException e)
+            {
+                onListenerFailed(e);
+            }
+        }
+    }
+
+    @Override
+    public void onMembershipLockReleased(final long heldInNanos)
+    {
+        membershipLockHoldTimes.record(heldInNanos);
+        if (listener != null)
+        {
+            try
+            {
+                listener.onMembershipLockReleased(heldInNanos);
+            }
+            catch (RuntimeException e)
+            {
+                onListenerFailed(e);
+            }
+        }
+    }
+
+    /**
+     * A failing listener does not change the behaviour of the load balancer: its exception is logged and dropped.
+     */
+    private static void onListenerFailed(final RuntimeException e)
+    {
+        LOGGER.log(Level.WARNING, "Load balancer listener failed", e);
+    }
+
+    @Override
+    public long getPicks()
+    {
+        long sum = 0;
+        for (int stripe = 0; stripe < pickCounts.length(); stripe++)
+        {
+            final PickCounts counts = pickCounts.get(stripe);
+            if (counts != null)
+            {
+                sum += counts.sum();
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public long getPicks(final String providerId)
+    {
+        final int i = loadBalancer.getSnapshot().getRegistry().indexOf(providerId);
+        if (i < 0)
+        {
+            return 0;
+        }
+        final AtomicLongArray offsets = pickOffsets;
+        return sumPicks(i) - (i < offsets.length() ? offsets.get(i) : 0);
+    }
+
+    @Override
+    public long getRejections()
+    {
+        return rejections.sum();
+    }
+
+    @Override
+    public long getShedRequests()
+    {
+        return shedRequests.sum();
+    }
+
+    @Override
+    public long getHealthTransitions()
+    {
+        return healthTransitions.sum();
+    }
+
+    @Override
+    public int getHealthyProviders()
+    {
+        return loadBalancer.getSnapshot().getSize();
+    }
+
+    @Override
+    public int getRegisteredProviders()
+    {
+        return loadBalancer.getSnapshot().getRegistry().size();
+    }
+
+    @Override
+    public int getLeasesInFlight()
+    {
+        return loadBalancer.getConcurrentRequests();
+    }
+
+    @Override
+    public long getHealthChecks()
+    {
+        return healthCheckDurations.getCount();
+    }
+
+    @Override
+    public double getHealthCheckDurationMeanInMicros()
+    {
+        return healthCheckDurations.getMean() / 1000;
+    }
+
+    @Override
+    public long getHealthCheckDuration99thPercentileInMicros()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(healthCheckDurations.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getHealthCheckDurationMaxInMicros()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(healthCheckDurations.getMax());
+    }
+
+    @Override
+    public long getMembershipLockHoldTime99thPercentileInMicros()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(membershipLockHoldTimes.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getMembershipLockHoldTimeMaxInMicros()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(membershipLockHoldTimes.getMax());
+    }
+
+    /**
+     * The number of selections of every provider by the threads of one stripe, in chunks of counts that are added as
+     * the provider indices grow and never copied, so that no increment is lost while a chunk is added.
+     */
+    private static final class PickCounts
+    {
+        private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(AbstractLoadBalancer.COUNTERS_PER_CHUNK);
+        private static final int CHUNK_MASK = AbstractLoadBalancer.COUNTERS_PER_CHUNK - 1;
+
+        private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+
+        PickCounts(final int numberOfProviders)
+        {
+            ensureCapacity(numberOfProviders);
+        }
+
+        void increment(final int providerIndex)
+        {
+            AtomicLongArray[] current = chunks;
+            if (providerIndex >>> CHUNK_SHIFT >= current.length)
+            {
+                ensureCapacity(providerIndex + 1);
+                current = chunks;
+            }
+            current[providerIndex >>> CHUNK_SHIFT].getAndIncrement(providerIndex & CHUNK_MASK);
+        }
+
+        long get(final int providerIndex)
+        {
+            final AtomicLongArray[] current = chunks;
+            return providerIndex >>> CHUNK_SHIFT < current.length
+                    ? current[providerIndex >>> CHUNK_SHIFT].get(providerIndex & CHUNK_MASK) : 0;
+        }
+
+        long sum()
+        {
+            long sum = 0;
+            for (AtomicLongArray chunk : chunks)
+            {
+                for (int i = 0; i < chunk.length(); i++)
+                {
+                    sum += chunk.get(i);
+                }
+            }
+            return sum;
+        }
+
+        private synchronized void ensureCapacity(final int numberOfProviders)
+        {
+            final int numberOfChunks = (numberOfProviders + CHUNK_MASK) >>> CHUNK_SHIFT;
+            if (numberOfChunks > chunks.length)
+            {
+                final AtomicLongArray[] newChunks = Arrays.copyOf(chunks, numberOfChunks);
+                for (int chunk = chunks.length; chunk < numberOfChunks; chunk++)
+                {
+                    newChunks[chunk] = new AtomicLongArray(CHUNK_MASK + 1);
+                }
+                chunks = newChunks;
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.interview.test.loadbalancers;
+
+/**
+ * Metrics of a load balancer, also registered as a JMX MBean if a JMX name is configured. The durations are in
+ * microseconds.
+ */
+public interface LoadBalancerMetricsMBean
+{
+    /**
+     * @return the number of providers selected by get(), select() and acquire()
+     */
+    long getPicks();
+
+    /**
+     * @param providerId
+     * @return the number of times the provider was selected since it was registered, 0 if it is unknown
+     */
+    long getPicks(String providerId);
+
+    /**
+     * @return the number of selections that found no provider, and of leases shed for lack of permits
+     */
+    long getRejections();
+
+    /**
+     * @return the number of requests shed by the load shedding, not counted as selections or rejections
+     */
+    long getShedRequests();
+
+    long getHealthTransitions();
+
+    int getHealthyProviders();
+
+    int getRegisteredProviders();
+
+    int getLeasesInFlight();
+
+    long getHealthChecks();
+
+    double getHealthCheckDurationMeanInMicros();
+
+    long getHealthCheckDuration99thPercentileInMicros();
+
+    long getHealthCheckDurationMaxInMicros();
+
+    long getMembershipLockHoldTime99thPercentileInMicros();
+
+    long getMembershipLockHoldTimeMaxInMicros();
+}
@@ -2,5 +2,6 @@ package com.interview.test.loadbalancers;
 
 public enum LoadBalancerType
 {
-    Random, RoundRobin
+    Random, RoundRobin, StripedRoundRobin, WeightedRandom, WeightedRoundRobin,
+    LeastOutstanding, PowerOfTwoChoices, PeakEwma, RingHash, Maglev, LocalityAware
 }
@@ -0,0 +1,107 @@
+package com.interview.test.loadbalancers;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sheds a growing fraction of the requests before they select a provider when the requests queue for too long, in
+ * the manner of CoDel: the queueing delays of the requests (the waits of the callers of acquire with a timeout, and
+ * the delays reported by the callers that queue the requests themselves) are tracked per interval, and an interval
+ * whose smallest delay is above the target, i.e. in which the queue never drained, raises the shedding level by a
+ * step. An interval whose delays went under the target, or that had none, halves it.
+ * <p>
+ * The level is spread over the priority classes (see {@link RequestPriority}): its first SCALE units shed that
+ * fraction of the Low requests, the next ones the Normal requests once all the Low requests are shed, then the High
+ * requests. The Critical requests are never shed. A shed request does not read the snapshot of the providers: while
+ * nothing is shed the decision is a volatile read, otherwise a random draw and a read of the ticker, which also ends
+ * the intervals while the shed requests leave no delays behind them.
+ */
+final class LoadShedder
+{
+    public static final int DEFAULT_INTERVAL_IN_MILLIS = 100;
+
+    /**
+     * Units of the shedding level per priority class: a class is fully shed SCALE units above the start of its range.
+     */
+    static final int SCALE = 1024;
+
+    /**
+     * Raise of the level per interval above the target, so that a class is fully shed after 8 intervals.
+     */
+    static final int STEP = SCALE / 8;
+
+    private static final int MAX_LEVEL = (RequestPriority.values().length - 1) * SCALE;
+
+    private final long targetDelayInNanos;
+    private final long intervalInNanos;
+    private final Ticker ticker;
+    private final RandomSource randomSource;
+
+    /**
+     * Written by the thread that ends an interval.
+     */
+    private volatile int level;
+
+    private final AtomicLong intervalEnd;
+    private final AtomicLong minDelay = new AtomicLong(Long.MAX_VALUE);
+
+    LoadShedder(final LoadBalancerConfiguration configuration, final Ticker ticker, final RandomSource randomSource)
+    {
+        this.ticker = ticker;
+        this.randomSource = randomSource;
+        targetDelayInNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getLoadSheddingTargetDelayInMillis());
+        intervalInNanos = TimeUnit.MILLISECONDS.toNanos(Optional.ofNullable(
+                configuration.getLoadSheddingIntervalInMillis()).orElse(DEFAULT_INTERVAL_IN_MILLIS));
+        if (targetDelayInNanos <= 0 || intervalInNanos <= 0)
+        {
+            throw new IllegalArgumentException("Load shedding target delay and interval must be positive");
+        }
+        intervalEnd = new AtomicLong(ticker.nanoTime() + intervalInNanos);
+    }
+
+    /**
+     * @param priority
+     * @return true if the request is to be rejected at once
+     */
+    boolean shed(final RequestPriority priority)
+    {
+        final int current = level;
+        if (current == 0)
+        {
+            return false;
+        }
+        endInterval(ticker.nanoTime());
+        final int excess = current - (RequestPriority.Low.ordinal() - priority.ordinal()) * SCALE;
+        return excess > 0 && (excess >= SCALE || randomSource.current().nextInt(SCALE) < excess);
+    }
+
+    /**
+     * Record the time a request waited for a provider, or until it gave up.
+     *
+     * @param delayInNanos
+     * @param now the time of the ticker
+     */
+    void record(final long delayInNanos, final long now)
+    {
+        long min = minDelay.get();
+        while (delayInNanos < min && !minDelay.compareAndSet(min, delayInNanos))
+        {
+            min = minDelay.get();
+        }
+        endInterval(now);
+    }
+
+    private void endInterval(final long now)
+    {
+        final long end = intervalEnd.get();
+        if (now - end < 0 || !intervalEnd.compareAndSet(end, now + intervalInNanos))
+        {
+            return;
+        }
+        final long min = minDelay.getAndSet(Long.MAX_VALUE);
+        // the delays of an interval that ended long ago are not from a whole interval
+        final boolean standingQueue = min != Long.MAX_VALUE && min > targetDelayInNanos && now - end < intervalInNanos;
+        level = standingQueue ? Math.min(MAX_LEVEL, level + STEP) : level / 2;
+    }
+}
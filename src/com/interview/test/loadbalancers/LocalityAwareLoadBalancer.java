@@ -0,0 +1,122 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Locality aware weighted random selection. The providers carry a zone and a priority tier (see
+ * {@link IProvider#getZone()} and {@link IProvider#getPriority()}), and the load balancer is configured with the zone
+ * of the caller. The requests go to the highest priority tier that has a healthy provider, so the lower tiers are
+ * used only when every provider of the higher tiers is unhealthy. Within the tier the providers of the local zone are
+ * preferred: as long as the healthy weight of the local zone is at least the configured percentage of its total
+ * weight, all the requests stay local; below it the local zone keeps a share of the requests proportional to its
+ * healthy capacity (healthy fraction / threshold) and the rest spills over to the other zones of the tier, in
+ * proportion to their healthy weights.
+ * <p>
+ * The tiers and zones are derived from the healthy partition of each snapshot: the selection table (an alias table of
+ * the healthy local providers and one of the healthy remote providers of the tier) is built once per snapshot, like
+ * the tables of the other weighted load balancers, so a pick costs two or three random numbers.
+ */
+final class LocalityAwareLoadBalancer
+        extends AbstractWeightedLoadBalancer<LocalityAwareLoadBalancer.LocalityTable> implements LoadBalancer
+{
+    static final int DEFAULT_MIN_LOCAL_HEALTHY_PERCENT = 70;
+
+    private final String localZone;
+    private final double minLocalHealthyFraction;
+
+    public LocalityAwareLoadBalancer(final List<IProvider> providerList,
+                                     final LoadBalancerConfiguration configuration)
+    {
+        super(providerList, configuration);
+        localZone = configuration.getLocalZone();
+        final int minLocalHealthyPercent = Optional.ofNullable(configuration.getMinLocalHealthyPercent())
+                .orElse(DEFAULT_MIN_LOCAL_HEALTHY_PERCENT);
+        if (minLocalHealthyPercent <= 0 || minLocalHealthyPercent > 100)
+        {
+            throw new IllegalArgumentException("Minimum local healthy percent must be in (0, 100]");
+        }
+        minLocalHealthyFraction = minLocalHealthyPercent / 100.0;
+    }
+
+    @Override
+    protected LocalityTable createTable(final ProviderSnapshot snapshot)
+    {
+        return new LocalityTable(snapshot, localZone, minLocalHealthyFraction);
+    }
+
+    @Override
+    protected int select(final LocalityTable table)
+    {
+        final Random random = randomSource.current();
+        return table.remote.size() == 0 || random.nextDouble() < table.localShare
+                ? table.local.select(random) : table.remote.select(random);
+    }
+
+    static final class LocalityTable
+    {
+        private final WeightedRandomLoadBalancer.AliasTable local;
+        private final WeightedRandomLoadBalancer.AliasTable remote;
+
+        /**
+         * Probability of selecting a local provider when there are remote providers, 0 if there is no local one.
+         */
+        private final double localShare;
+
+        LocalityTable(final ProviderSnapshot snapshot, final String localZone, final double minLocalHealthyFraction)
+        {
+            final ProviderRegistry registry = snapshot.getRegistry();
+            final int size = snapshot.getSize();
+            int tier = Integer.MAX_VALUE;
+            for (int position = 0; position < size; position++)
+            {
+                tier = Math.min(tier, registry.getPriority(snapshot.getProviderIndex(position)));
+            }
+
+            // the healthy providers of the tier, local ones first
+            final int[] providers = new int[size];
+            int numberOfLocal = 0;
+            int numberOfTier = 0;
+            long localHealthyWeight = 0;
+            for (int position = 0; position < size; position++)
+            {
+                final int i = snapshot.getProviderIndex(position);
+                if (registry.getPriority(i) != tier)
+                {
+                    continue;
+                }
+                if (Objects.equals(registry.getZone(i), localZone))
+                {
+                    providers[numberOfTier++] = providers[numberOfLocal];
+                    providers[numberOfLocal++] = i;
+                    localHealthyWeight += registry.getWeight(i);
+                }
+                else
+                {
+                    providers[numberOfTier++] = i;
+                }
+            }
+
+            long localWeight = localHealthyWeight;
+            for (int position = size; position < snapshot.getCount(); position++)
+            {
+                final int i = snapshot.getProviderIndex(position);
+                if (registry.getPriority(i) == tier && Objects.equals(registry.getZone(i), localZone))
+                {
+                    localWeight += registry.getWeight(i);
+                }
+            }
+
+            local = new WeightedRandomLoadBalancer.AliasTable(registry, Arrays.copyOf(providers, numberOfLocal));
+            remote = new WeightedRandomLoadBalancer.AliasTable(registry,
+                    Arrays.copyOfRange(providers, numberOfLocal, numberOfTier));
+            localShare = localWeight == 0 ? 0
+                    : Math.min(1.0, (double) localHealthyWeight / localWeight / minLocalHealthyFraction);
+        }
+    }
+}
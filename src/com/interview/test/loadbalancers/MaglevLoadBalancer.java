@@ -0,0 +1,129 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maglev consistent hashing (Eisenbud et al., NSDI 2016) with O(1) picks. The lookup table has a prime number of
+ * slots M and every provider has its own permutation of the slots, given by an offset and a skip derived from its id.
+ * The providers take turns claiming the next free slot of their permutation until the table is full, so every
+ * provider gets M / n slots (proportionally to its weight, the way Envoy weights Maglev), spread over the whole
+ * table. A key goes to the provider of the slot hash mod M. When the table is built again for a new registry most
+ * slots keep their provider, and when a provider leaves the healthy part its slots fall through to the next slots,
+ * which belong to the other providers evenly.
+ */
+final class MaglevLoadBalancer extends ConsistentHashLoadBalancer<int[]> implements LoadBalancer
+{
+    public static final int DEFAULT_TABLE_SIZE = 65537;
+
+    /**
+     * Minimum number of slots per provider of the default table size, for an even spread of the keys.
+     */
+    private static final int DEFAULT_SLOTS_PER_PROVIDER = 100;
+
+    private static final long SKIP_SEED = 0x632BE59BD9B4E019L;
+
+    private final int tableSize;
+
+    public MaglevLoadBalancer(final List<IProvider> providerList, final LoadBalancerConfiguration configuration)
+    {
+        super(providerList, configuration);
+        final long size = configuration.getMaglevTableSize() != null ? configuration.getMaglevTableSize()
+                : Math.max(DEFAULT_TABLE_SIZE, (long) DEFAULT_SLOTS_PER_PROVIDER * providerList.size());
+        tableSize = BigInteger.valueOf(size - 1).nextProbablePrime().intValueExact();
+        if (providerList.size() > tableSize)
+        {
+            throw new IllegalArgumentException("Maglev table size lower than the number of providers");
+        }
+    }
+
+    /**
+     * Every provider needs at least one slot.
+     */
+    @Override
+    protected void checkRegistry(final ProviderRegistry registry)
+    {
+        if (!registry.hasPositiveWeights())
+        {
+            throw new IllegalArgumentException("Provider weight must be positive");
+        }
+        // the table size is not known yet when called from the constructor, which checks it itself
+        if (tableSize > 0 && registry.size() > tableSize)
+        {
+            throw new IllegalArgumentException("Maglev table size lower than the number of providers");
+        }
+    }
+
+    @Override
+    protected int[] createTable(final ProviderRegistry registry)
+    {
+        final int[] providers = new int[registry.size()];
+        final long[] offsets = new long[providers.length];
+        final long[] skips = new long[providers.length];
+        final long[] targetWeights = new long[providers.length];
+        final long[] nexts = new long[providers.length];
+        int maxWeight = 0;
+        int n = 0;
+        for (int i = 0; i < registry.capacity(); i++)
+        {
+            if (registry.isRegistered(i))
+            {
+                // the permutation depends on the id only, so a provider gets the same permutation at any index
+                final long idHash = hash(registry.getId(i));
+                providers[n] = i;
+                offsets[n] = Long.remainderUnsigned(idHash, tableSize);
+                skips[n] = Long.remainderUnsigned(mix(idHash ^ SKIP_SEED), tableSize - 1) + 1;
+                maxWeight = Math.max(maxWeight, registry.getWeight(i));
+                n++;
+            }
+        }
+
+        final int[] table = new int[tableSize];
+        Arrays.fill(table, -1);
+        int filled = 0;
+        for (long iteration = 1; filled < tableSize && n > 0; iteration++)
+        {
+            for (int k = 0; k < n && filled < tableSize; k++)
+            {
+                // a provider with the maximum weight claims a slot every iteration, one with a third of it every
+                // third iteration
+                if (iteration * registry.getWeight(providers[k]) < targetWeights[k])
+                {
+                    continue;
+                }
+                targetWeights[k] += maxWeight;
+
+                int slot;
+                do
+                {
+                    slot = (int) ((offsets[k] + skips[k] * nexts[k]++) % tableSize);
+                }
+                while (table[slot] >= 0);
+                table[slot] = providers[k];
+                filled++;
+            }
+        }
+        return n > 0 ? table : new int[0];
+    }
+
+    @Override
+    protected int getNumberOfSlots(final int[] table)
+    {
+        return table.length;
+    }
+
+    @Override
+    protected int getSlot(final int[] table, final long hash)
+    {
+        return table.length == 0 ? 0 : (int) Long.remainderUnsigned(hash, table.length);
+    }
+
+    @Override
+    protected int getProviderIndex(final int[] table, final int slot)
+    {
+        return table[slot];
+    }
+}
@@ -0,0 +1,251 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Passive health checking from the results of the requests reported by the callers. Every provider has a sliding
+ * window of its successes and failures: two consecutive buckets as long as the window, the previous one weighted by
+ * the part of it still in the window. When a failure brings the failure rate of a provider with enough requests in the
+ * window above the threshold the provider is ejected at once, i.e. removed from the healthy providers, without
+ * waiting for the next health check.
+ * <p>
+ * An ejected provider is kept out for the base ejection time, doubled for every ejection since it was last left alone
+ * for the maximum ejection time. After that it returns through the health checks like any unhealthy provider, after
+ * MAX_CONSECUTIVE_SUCCESSFUL_HEALTH_CHECKS successful checks; without health checks it returns at once. At most a
+ * percentage of the providers (at least one) are ejected at the same time, so a failing dependency of all the
+ * providers does not eject them all.
+ * <p>
+ * The windows are packed counts (successes in the high half, failures in the low half) in padded counters, updated
+ * with an add and rolled over with a compare and set, without locks or allocations.
+ */
+final class OutlierDetector implements AutoCloseable
+{
+    public static final int DEFAULT_MIN_REQUESTS = 10;
+    public static final int DEFAULT_WINDOW_IN_MILLIS = 10_000;
+    public static final int DEFAULT_BASE_EJECTION_TIME_IN_MILLIS = 30_000;
+    public static final int DEFAULT_MAX_EJECTION_PERCENT = 10;
+
+    /**
+     * The ejection time stops doubling at the base ejection time times 2^MAX_EJECTION_DOUBLINGS, the maximum ejection
+     * time.
+     */
+    static final int MAX_EJECTION_DOUBLINGS = 5;
+
+    private static final int BUCKET_START = 0;
+    private static final int CURRENT_BUCKET = 1;
+    private static final int PREVIOUS_BUCKET = 2;
+    private static final int EJECTED_UNTIL = 3;
+    private static final int LAST_EJECTED_UNTIL = 4;
+    private static final int EJECTIONS = 5;
+    private static final int LAST_FIELD = EJECTIONS;
+
+    private static final long SUCCESS = 1L << 32;
+    private static final long FAILURE = 1;
+
+    private final AbstractLoadBalancer loadBalancer;
+    private final double failureRateThreshold;
+    private final int minRequests;
+    private final long windowInNanos;
+    private final long baseEjectionTimeInNanos;
+    private final int maxEjectionPercent;
+
+    /**
+     * Per provider the window of its results and its ejection state. The time it is ejected until is 0 when the
+     * provider is not ejected.
+     */
+    private final PaddedCounters providers;
+
+    private final AtomicInteger numberOfEjected = new AtomicInteger();
+
+    /**
+     * Returns the ejected providers when there are no health checks, null otherwise. The returns are scheduled on the
+     * system time, so with a ticker configured the ejected providers return through checkHealth() instead.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    OutlierDetector(final AbstractLoadBalancer loadBalancer, final LoadBalancerConfiguration configuration,
+                    final int numberOfProviders)
+    {
+        this.loadBalancer = loadBalancer;
+        failureRateThreshold = configuration.getOutlierFailureRateThreshold();
+        minRequests = Math.max(1, Optional.ofNullable(configuration.getOutlierMinRequests())
+                .orElse(DEFAULT_MIN_REQUESTS));
+        windowInNanos = TimeUnit.MILLISECONDS.toNanos(Optional.ofNullable(
+                configuration.getOutlierDetectionWindowInMillis()).orElse(DEFAULT_WINDOW_IN_MILLIS));
+        baseEjectionTimeInNanos = TimeUnit.MILLISECONDS.toNanos(Optional.ofNullable(
+                configuration.getBaseEjectionTimeInMillis()).orElse(DEFAULT_BASE_EJECTION_TIME_IN_MILLIS));
+        maxEjectionPercent = Optional.ofNullable(configuration.getMaxEjectionPercent())
+                .orElse(DEFAULT_MAX_EJECTION_PERCENT);
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1 || windowInNanos <= 0)
+        {
+            throw new IllegalArgumentException("Outlier failure rate threshold must be in (0, 1] and its window "
+                    + "positive");
+        }
+
+        providers = new PaddedCounters(AbstractLoadBalancer.COUNTERS_PER_CHUNK, numberOfProviders);
+        final long now = loadBalancer.ticker.nanoTime();
+        for (int i = 0; i < numberOfProviders; i++)
+        {
+            providers.set(i, BUCKET_START, now);
+        }
+        scheduler = configuration.getHeartbeatIntervalInSeconds() != null || configuration.getTicker() != null ? null
+                : Executors.newSingleThreadScheduledExecutor(HealthChecker.daemonThreadFactory("outlier-detection"));
+    }
+
+    /**
+     * Record the result of a request and eject the provider if it is an outlier.
+     *
+     * @param providerIndex
+     * @param success
+     */
+    void record(final int providerIndex, final boolean success)
+    {
+        final long now = loadBalancer.ticker.nanoTime();
+        final long start = providers.get(providerIndex, BUCKET_START);
+        final long elapsed = now - start;
+        if (elapsed >= windowInNanos && providers.compareAndSet(providerIndex, BUCKET_START, start, now))
+        {
+            final long current = providers.getAndSet(providerIndex, CURRENT_BUCKET, 0);
+            providers.set(providerIndex, PREVIOUS_BUCKET, elapsed < 2 * windowInNanos ? current : 0);
+        }
+
+        final long current = providers.addAndGet(providerIndex, CURRENT_BUCKET, success ? SUCCESS : FAILURE);
+        if (success)
+        {
+            return;
+        }
+
+        final long previous = providers.get(providerIndex, PREVIOUS_BUCKET);
+        final double weight = Math.max(0, 1 - (double) (now - providers.get(providerIndex, BUCKET_START))
+                / windowInNanos);
+        final double failures = (current & 0xFFFFFFFFL) + (previous & 0xFFFFFFFFL) * weight;
+        final double requests = failures + (current >>> 32) + (previous >>> 32) * weight;
+        if (requests >= minRequests && failures >= failureRateThreshold * requests)
+        {
+            eject(providerIndex, now);
+        }
+    }
+
+    private void eject(final int providerIndex, final long now)
+    {
+        final long ejectedUntil = providers.get(providerIndex, EJECTED_UNTIL);
+        if (ejectedUntil != 0 && ejectedUntil - now > 0)
+        {
+            return;
+        }
+        // an expired ejection that has not returned through the health checks (added manually) is still counted
+        if (ejectedUntil == 0 && !tryReserveEjection())
+        {
+            return;
+        }
+
+        final long lastEjectedUntil = providers.get(providerIndex, LAST_EJECTED_UNTIL);
+        final long maxEjectionTimeInNanos = baseEjectionTimeInNanos << MAX_EJECTION_DOUBLINGS;
+        final long ejections = lastEjectedUntil == 0 || now - lastEjectedUntil > maxEjectionTimeInNanos ? 0
+                : providers.get(providerIndex, EJECTIONS);
+        final long until = now + (baseEjectionTimeInNanos << Math.min(ejections, MAX_EJECTION_DOUBLINGS));
+        if (!providers.compareAndSet(providerIndex, EJECTED_UNTIL, ejectedUntil, until))
+        {
+            if (ejectedUntil == 0)
+            {
+                numberOfEjected.decrementAndGet();
+            }
+            return;
+        }
+        providers.set(providerIndex, EJECTIONS, ejections + 1);
+        providers.set(providerIndex, LAST_EJECTED_UNTIL, until);
+        providers.set(providerIndex, CURRENT_BUCKET, 0);
+        providers.set(providerIndex, PREVIOUS_BUCKET, 0);
+
+        final IProvider provider = loadBalancer.ejectProvider(providerIndex);
+        if (scheduler != null && provider != null)
+        {
+            try
+            {
+                scheduler.schedule(() -> loadBalancer.returnProvider(providerIndex, provider), until - now,
+                        TimeUnit.NANOSECONDS);
+            }
+            catch (RejectedExecutionException e)
+            {
+                // closed
+            }
+        }
+    }
+
+    private boolean tryReserveEjection()
+    {
+        final int maxEjected = Math.max(1,
+                (int) ((long) loadBalancer.getSnapshot().getRegistry().size() * maxEjectionPercent / 100));
+        int ejected;
+        do
+        {
+            ejected = numberOfEjected.get();
+            if (ejected >= maxEjected)
+            {
+                return false;
+            }
+        }
+        while (!numberOfEjected.compareAndSet(ejected, ejected + 1));
+        return true;
+    }
+
+    /**
+     * @param providerIndex
+     * @param now
+     * @return true if the provider is ejected and its ejection time has not elapsed
+     */
+    boolean isEjected(final int providerIndex, final long now)
+    {
+        final long ejectedUntil = providers.get(providerIndex, EJECTED_UNTIL);
+        return ejectedUntil != 0 && ejectedUntil - now > 0;
+    }
+
+    /**
+     * Called when a provider is added back to the healthy providers.
+     *
+     * @param providerIndex
+     * @return true if the provider was ejected
+     */
+    boolean onReturned(final int providerIndex)
+    {
+        final long ejectedUntil = providers.get(providerIndex, EJECTED_UNTIL);
+        if (ejectedUntil != 0 && providers.compareAndSet(providerIndex, EJECTED_UNTIL, ejectedUntil, 0))
+        {
+            numberOfEjected.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Called before a provider is published at the given index, which may have been used by a deregistered provider.
+     *
+     * @param providerIndex
+     */
+    void onProviderRegistered(final int providerIndex)
+    {
+        providers.ensureCapacity(providerIndex + 1);
+        onReturned(providerIndex);
+        for (int field = 0; field <= LAST_FIELD; field++)
+        {
+            providers.set(providerIndex, field, 0);
+        }
+        providers.set(providerIndex, BUCKET_START, loadBalancer.ticker.nanoTime());
+    }
+
+    @Override
+    public void close()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.interview.test.loadbalancers;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Array of atomic counters where every counter has its own 128 bytes (two cache lines, because of the adjacent line
+ * prefetch), so that threads updating different counters do not invalidate each other's cache lines. Each counter
+ * slot has room for more than one value (fields), for the users that need to keep a few values per provider.
+ * <p>
+ * The counters are allocated in chunks and the array grows by adding chunks, never by copying the existing ones, so
+ * it can grow while other threads update the counters without losing any update.
+ */
+final class PaddedCounters
+{
+    /**
+     * Number of longs between two counters, i.e. the maximum number of fields of a counter.
+     */
+    private static final int PADDING = 16;
+
+    private final int chunkShift;
+    private final int chunkMask;
+    private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+
+    /**
+     * @param countersPerChunk rounded up to a power of two
+     * @param numberOfCounters initial number of counters
+     */
+    PaddedCounters(final int countersPerChunk, final int numberOfCounters)
+    {
+        chunkShift = 32 - Integer.numberOfLeadingZeros(Math.max(1, countersPerChunk) - 1);
+        chunkMask = (1 << chunkShift) - 1;
+        ensureCapacity(numberOfCounters);
+    }
+
+    /**
+     * Fixed number of counters, in a single chunk.
+     */
+    PaddedCounters(final int numberOfCounters)
+    {
+        this(Math.max(1, numberOfCounters), numberOfCounters);
+    }
+
+    synchronized void ensureCapacity(final int numberOfCounters)
+    {
+        final int numberOfChunks = (numberOfCounters + chunkMask) >>> chunkShift;
+        if (numberOfChunks > chunks.length)
+        {
+            final AtomicLongArray[] newChunks = Arrays.copyOf(chunks, numberOfChunks);
+            for (int chunk = chunks.length; chunk < numberOfChunks; chunk++)
+            {
+                newChunks[chunk] = new AtomicLongArray((chunkMask + 1) * PADDING);
+            }
+            chunks = newChunks;
+        }
+    }
+
+    long get(final int i)
+    {
+        return get(i, 0);
+    }
+
+    long get(final int i, final int field)
+    {
+        return chunk(i).get(offset(i, field));
+    }
+
+    void set(final int i, final long value)
+    {
+        set(i, 0, value);
+    }
+
+    void set(final int i, final int field, final long value)
+    {
+        chunk(i).set(offset(i, field), value);
+    }
+
+    void lazySet(final int i, final int field, final long value)
+    {
+        chunk(i).lazySet(offset(i, field), value);
+    }
+
+    boolean compareAndSet(final int i, final int field, final long expect, final long update)
+    {
+        return chunk(i).compareAndSet(offset(i, field), expect, update);
+    }
+
+    long getAndIncrement(final int i)
+    {
+        return chunk(i).getAndIncrement(offset(i, 0));
+    }
+
+    long incrementAndGet(final int i)
+    {
+        return chunk(i).incrementAndGet(offset(i, 0));
+    }
+
+    long addAndGet(final int i, final long delta)
+    {
+        return chunk(i).addAndGet(offset(i, 0), delta);
+    }
+
+    long addAndGet(final int i, final int field, final long delta)
+    {
+        return chunk(i).addAndGet(offset(i, field), delta);
+    }
+
+    long getAndSet(final int i, final int field, final long value)
+    {
+        return chunk(i).getAndSet(offset(i, field), value);
+    }
+
+    long decrementAndGet(final int i)
+    {
+        return chunk(i).decrementAndGet(offset(i, 0));
+    }
+
+    private AtomicLongArray chunk(final int i)
+    {
+        return chunks[i >>> chunkShift];
+    }
+
+    private int offset(final int i, final int field)
+    {
+        return (i & chunkMask) * PADDING + field;
+    }
+}
@@ -0,0 +1,133 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency aware selection. For every provider a peak exponentially weighted moving average (EWMA) of the latencies
+ * of its requests is kept: a latency above the average replaces it at once, a latency below it is averaged in with a
+ * weight that depends on the time since the previous update. The cost of a provider is its average times the number of
+ * its requests in flight plus one, and the provider with the lower cost of two random healthy providers is used
+ * (power of two choices), like the least outstanding load balancers do with the requests in flight alone.
+ * <p>
+ * The average of a provider decays towards zero while the provider receives no requests, so a provider that was
+ * slow (and therefore avoided) gets traffic back after some time and its average is refreshed by the new requests.
+ * The latencies are reported when the leases of {@link LoadBalancer#acquire()} are released; requests made through
+ * get() are not measured. The averages are updated with a compare and set on a padded primitive array, without locks
+ * or allocations.
+ */
+final class PeakEwmaLoadBalancer extends AbstractLoadBalancer implements LoadBalancer
+{
+    public static final int DEFAULT_LATENCY_DECAY_TIME_IN_MILLIS = 10_000;
+
+    /**
+     * Latency in nanoseconds assumed for a provider that has requests in flight but no latency measured yet, so that
+     * it does not get all the requests before its first one completes. It is large but finite, so that the cost still
+     * grows with the number of requests in flight and the less loaded of two unmeasured providers is used.
+     */
+    private static final double UNMEASURED_PENALTY = Long.MAX_VALUE >> 16;
+
+    private final double decayTimeInNanos;
+
+    private static final int AVERAGE = 0;
+    private static final int LAST_UPDATE = 1;
+
+    /**
+     * Per provider the double bits of the average (in nanoseconds) and the time of its last update.
+     */
+    private final PaddedCounters latencies;
+
+    public PeakEwmaLoadBalancer(final List<IProvider> providerList, final LoadBalancerConfiguration configuration)
+    {
+        super(providerList, configuration);
+        decayTimeInNanos = TimeUnit.MILLISECONDS.toNanos(Optional.ofNullable(
+                configuration.getLatencyDecayTimeInMillis()).orElse(DEFAULT_LATENCY_DECAY_TIME_IN_MILLIS));
+        latencies = new PaddedCounters(COUNTERS_PER_CHUNK, providerList.size());
+    }
+
+    @Override
+    protected int getNext(final ProviderSnapshot snapshot)
+    {
+        final int size = snapshot.getSize();
+        final Random random = randomSource.current();
+        final int first = random.nextInt(size);
+        if (size == 1)
+        {
+            return snapshot.getProviderIndex(first);
+        }
+
+        int second = random.nextInt(size - 1);
+        if (second >= first)
+        {
+            second++;
+        }
+
+        final long now = ticker.nanoTime();
+        final int i = snapshot.getProviderIndex(first);
+        final int j = snapshot.getProviderIndex(second);
+        return getCost(j, now) < getCost(i, now) ? j : i;
+    }
+
+    /**
+     * A new provider has no latency measured yet.
+     */
+    @Override
+    protected void onProviderRegistered(final int providerIndex)
+    {
+        latencies.ensureCapacity(providerIndex + 1);
+        latencies.set(providerIndex, AVERAGE, 0);
+        latencies.set(providerIndex, LAST_UPDATE, 0);
+    }
+
+    @Override
+    protected void onRequestCompleted(final int providerIndex, final long latencyInNanos)
+    {
+        final long now = ticker.nanoTime();
+        while (true)
+        {
+            final long bits = latencies.get(providerIndex, AVERAGE);
+            final double average = Double.longBitsToDouble(bits);
+            final double next;
+            if (latencyInNanos >= average)
+            {
+                next = latencyInNanos;
+            }
+            else
+            {
+                final double weight = getDecayWeight(latencies.get(providerIndex, LAST_UPDATE), now);
+                next = average * weight + latencyInNanos * (1 - weight);
+            }
+
+            if (latencies.compareAndSet(providerIndex, AVERAGE, bits, Double.doubleToRawLongBits(next)))
+            {
+                latencies.lazySet(providerIndex, LAST_UPDATE, now);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param providerIndex
+     * @param now
+     * @return the decayed average latency of the provider times its requests in flight plus one
+     */
+    private double getCost(final int providerIndex, final long now)
+    {
+        final double average = Double.longBitsToDouble(latencies.get(providerIndex, AVERAGE));
+        final long inFlight = getInFlightRequests(providerIndex);
+        if (average == 0)
+        {
+            return inFlight == 0 ? 0 : UNMEASURED_PENALTY * (inFlight + 1);
+        }
+        return average * getDecayWeight(latencies.get(providerIndex, LAST_UPDATE), now) * (inFlight + 1);
+    }
+
+    private double getDecayWeight(final long lastUpdate, final long now)
+    {
+        return Math.exp(-Math.max(now - lastUpdate, 0) / decayTimeInNanos);
+    }
+}
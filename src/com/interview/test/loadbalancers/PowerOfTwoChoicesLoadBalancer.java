@@ -0,0 +1,45 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Power of two random choices: two distinct healthy providers are selected at random and the one with fewer
+ * requests in flight (leases acquired through {@link LoadBalancer#acquire()} and not released yet) is used. It needs
+ * only two reads of the in-flight counters, yet the maximum load is exponentially better than a single random choice.
+ * <p>
+ * Requests made through get() are never in flight, so the load balancer only balances by load when acquire() is used.
+ */
+final class PowerOfTwoChoicesLoadBalancer extends AbstractLoadBalancer implements LoadBalancer
+{
+    public PowerOfTwoChoicesLoadBalancer(final List<IProvider> providerList,
+                                         final LoadBalancerConfiguration configuration)
+    {
+        super(providerList, configuration);
+    }
+
+    @Override
+    protected int getNext(final ProviderSnapshot snapshot)
+    {
+        final int size = snapshot.getSize();
+        final Random random = randomSource.current();
+        final int first = random.nextInt(size);
+        if (size == 1)
+        {
+            return snapshot.getProviderIndex(first);
+        }
+
+        // a second position different from the first one
+        int second = random.nextInt(size - 1);
+        if (second >= first)
+        {
+            second++;
+        }
+
+        final int i = snapshot.getProviderIndex(first);
+        final int j = snapshot.getProviderIndex(second);
+        return getInFlightRequests(j) < getInFlightRequests(i) ? j : i;
+    }
+}
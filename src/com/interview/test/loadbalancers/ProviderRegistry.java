@@ -0,0 +1,346 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The providers of a load balancer. Every provider gets a dense integer id, its provider index; everything else
+ * (snapshots, counters, tables) is kept in primitive arrays indexed by it. Provider ids are resolved to provider
+ * indices with an open addressing hash table of ints, so a lookup neither allocates nor boxes, however many providers
+ * there are.
+ * <p>
+ * The registry is immutable: registering or deregistering a provider creates a new registry, which is published with
+ * the snapshot of the partition (see {@link ProviderSnapshot}). A deregistered provider first drains (it keeps its
+ * index, so that the leases in flight can be released, but it cannot be found by id any more) and then its index is
+ * freed and can be given to a provider registered later.
+ */
+final class ProviderRegistry
+{
+    /**
+     * Provider index to provider, null for free indices.
+     */
+    private final IProvider[] providers;
+    private final String[] ids;
+    private final int[] weights;
+    private final String[] zones;
+    private final int[] priorities;
+
+    /**
+     * Largest weight of the providers registered in this registry or the registries it was created from, an upper
+     * bound of the weights of the registered providers.
+     */
+    private final int maxWeight;
+
+    /**
+     * Provider index to the future completed when the provider has drained, null if the provider is not draining.
+     */
+    private final CompletableFuture<?>[] drains;
+    private final int numberOfRegistered;
+
+    /**
+     * Open addressing hash table (linear probing) of provider index + 1 of the registered (not draining) providers,
+     * 0 marks an empty slot.
+     */
+    private final int[] table;
+    private final int mask;
+
+    ProviderRegistry(final List<IProvider> providerList)
+    {
+        providers = providerList.toArray(new IProvider[0]);
+        drains = new CompletableFuture<?>[providers.length];
+        ids = new String[providers.length];
+        weights = new int[providers.length];
+        zones = new String[providers.length];
+        priorities = new int[providers.length];
+        int max = 0;
+        for (int i = 0; i < providers.length; i++)
+        {
+            ids[i] = providers[i].get();
+            weights[i] = providers[i].getWeight();
+            zones[i] = providers[i].getZone();
+            priorities[i] = providers[i].getPriority();
+            max = Math.max(max, weights[i]);
+        }
+        maxWeight = max;
+        numberOfRegistered = providers.length;
+        table = new int[getTableCapacity(numberOfRegistered)];
+        mask = table.length - 1;
+        for (int i = 0; i < providers.length; i++)
+        {
+            insert(i);
+        }
+    }
+
+    private ProviderRegistry(final IProvider[] providers, final String[] ids, final int[] weights,
+                             final String[] zones, final int[] priorities, final int maxWeight,
+                             final CompletableFuture<?>[] drains, final int numberOfRegistered, final int[] table)
+    {
+        this.providers = providers;
+        this.ids = ids;
+        this.weights = weights;
+        this.zones = zones;
+        this.priorities = priorities;
+        this.maxWeight = maxWeight;
+        this.drains = drains;
+        this.numberOfRegistered = numberOfRegistered;
+        this.table = table;
+        mask = table.length - 1;
+    }
+
+    /**
+     * @return the number of provider indices in use or free, all provider indices are lower than it
+     */
+    int capacity()
+    {
+        return providers.length;
+    }
+
+    /**
+     * @return the number of registered providers, not counting the draining ones
+     */
+    int size()
+    {
+        return numberOfRegistered;
+    }
+
+    /**
+     * @param providerIndex
+     * @return the provider, or null if the index is free
+     */
+    IProvider getProvider(final int providerIndex)
+    {
+        return providers[providerIndex];
+    }
+
+    String getId(final int providerIndex)
+    {
+        return ids[providerIndex];
+    }
+
+    int getWeight(final int providerIndex)
+    {
+        return weights[providerIndex];
+    }
+
+    /**
+     * @return an upper bound of the weights of the registered providers, which does not decrease when providers are
+     * deregistered
+     */
+    int getMaxWeight()
+    {
+        return maxWeight;
+    }
+
+    /**
+     * @param providerIndex
+     * @return the zone of the provider when it was registered, or null
+     */
+    String getZone(final int providerIndex)
+    {
+        return zones[providerIndex];
+    }
+
+    /**
+     * @param providerIndex
+     * @return the priority tier of the provider when it was registered, 0 being the highest
+     */
+    int getPriority(final int providerIndex)
+    {
+        return priorities[providerIndex];
+    }
+
+    /**
+     * @return true if the weights of all the registered providers are positive
+     */
+    boolean hasPositiveWeights()
+    {
+        for (int i = 0; i < providers.length; i++)
+        {
+            if (isRegistered(i) && weights[i] <= 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param providerIndex
+     * @return true if the provider is registered and not draining
+     */
+    boolean isRegistered(final int providerIndex)
+    {
+        return providers[providerIndex] != null && drains[providerIndex] == null;
+    }
+
+    /**
+     * @param providerIndex
+     * @return the future completed when the provider has drained, or null if the provider is not draining
+     */
+    CompletableFuture<?> getDrain(final int providerIndex)
+    {
+        return drains[providerIndex];
+    }
+
+    /**
+     * @param id
+     * @return the provider index of the registered provider with the given id, or -1 if there is no such provider
+     */
+    int indexOf(final String id)
+    {
+        int slot = hash(id) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0)
+        {
+            if (ids[entry - 1].equals(id))
+            {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param provider
+     * @return a registry with the provider registered at the lowest free index
+     */
+    ProviderRegistry withProvider(final IProvider provider)
+    {
+        if (indexOf(provider.get()) >= 0)
+        {
+            throw new IllegalArgumentException("Duplicate provider id " + provider.get());
+        }
+        int index = 0;
+        while (index < providers.length && providers[index] != null)
+        {
+            index++;
+        }
+        final int length = Math.max(providers.length, index + 1);
+        final int weight = provider.getWeight();
+        final ProviderRegistry registry = new ProviderRegistry(Arrays.copyOf(providers, length),
+                Arrays.copyOf(ids, length), Arrays.copyOf(weights, length), Arrays.copyOf(zones, length),
+                Arrays.copyOf(priorities, length), Math.max(maxWeight, weight),
+                Arrays.copyOf(drains, length), numberOfRegistered + 1,
+                new int[Math.max(table.length, getTableCapacity(numberOfRegistered + 1))]);
+        registry.providers[index] = provider;
+        registry.ids[index] = provider.get();
+        registry.weights[index] = weight;
+        registry.zones[index] = provider.getZone();
+        registry.priorities[index] = provider.getPriority();
+        if (registry.table.length == table.length)
+        {
+            System.arraycopy(table, 0, registry.table, 0, table.length);
+            registry.insert(index);
+        }
+        else
+        {
+            registry.insertAll();
+        }
+        return registry;
+    }
+
+    /**
+     * @param providerIndex
+     * @param drain completed when the provider has drained
+     * @return a registry where the provider is draining
+     */
+    ProviderRegistry withProviderDraining(final int providerIndex, final CompletableFuture<?> drain)
+    {
+        final ProviderRegistry registry = new ProviderRegistry(providers, ids, weights, zones, priorities, maxWeight,
+                drains.clone(), numberOfRegistered - 1, table.clone());
+        registry.drains[providerIndex] = drain;
+        registry.delete(providerIndex);
+        return registry;
+    }
+
+    /**
+     * @param providerIndex index of a draining provider
+     * @return a registry where the index of the provider is free
+     */
+    ProviderRegistry withoutProvider(final int providerIndex)
+    {
+        final ProviderRegistry registry = new ProviderRegistry(providers.clone(), ids.clone(), weights, zones,
+                priorities, maxWeight, drains.clone(), numberOfRegistered, table);
+        registry.providers[providerIndex] = null;
+        registry.ids[providerIndex] = null;
+        registry.drains[providerIndex] = null;
+        return registry;
+    }
+
+    /**
+     * @return a power of two table capacity where the given number of entries fill at most half of the table
+     */
+    private static int getTableCapacity(final int numberOfEntries)
+    {
+        return Integer.highestOneBit(Math.max(2, numberOfEntries) * 2 - 1) << 1;
+    }
+
+    private void insertAll()
+    {
+        for (int i = 0; i < providers.length; i++)
+        {
+            if (isRegistered(i))
+            {
+                insert(i);
+            }
+        }
+    }
+
+    /**
+     * Add the provider at the given index to the table, while the registry is built.
+     */
+    private void insert(final int providerIndex)
+    {
+        final String id = ids[providerIndex];
+        int slot = hash(id) & mask;
+        while (table[slot] != 0)
+        {
+            if (ids[table[slot] - 1].equals(id))
+            {
+                throw new IllegalArgumentException("Duplicate provider id " + id);
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = providerIndex + 1;
+    }
+
+    /**
+     * Remove the provider at the given index from the table, while the registry is built. The entries after it in
+     * the probe sequence are shifted back, so the table needs no tombstones.
+     */
+    private void delete(final int providerIndex)
+    {
+        int slot = hash(ids[providerIndex]) & mask;
+        while (table[slot] != providerIndex + 1)
+        {
+            slot = (slot + 1) & mask;
+        }
+        int next = slot;
+        while (true)
+        {
+            table[slot] = 0;
+            do
+            {
+                next = (next + 1) & mask;
+                if (table[next] == 0)
+                {
+                    return;
+                }
+            }
+            // an entry stays if its home slot is cyclically in (slot, next]
+            while (((next - (hash(ids[table[next] - 1]) & mask)) & mask) < ((next - slot) & mask));
+            table[slot] = table[next];
+            slot = next;
+        }
+    }
+
+    private static int hash(final String id)
+    {
+        final int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,328 @@
+package com.interview.test.loadbalancers;
+
+import java.util.Arrays;
+
+/**
+ * Immutable view of the providers and of their healthy/unhealthy partition. The partition array holds provider
+ * indices (see {@link ProviderRegistry}). The left part [0, size) holds the healthy providers and the right part
+ * [size, count) the unhealthy ones, exactly like the swap based list did before; draining providers and free indices
+ * are not in the partition at all. A state change never modifies a snapshot; it creates a new one with the affected
+ * provider swapped across the partition index, so readers that loaded a snapshot always see a consistent array,
+ * count and registry.
+ * <p>
+ * The arrays are split in chunks of CHUNK_SIZE ints. A new snapshot shares the chunks that did not change with the
+ * previous one and copies only the chunk directories and the chunks of the swapped positions, so a state change
+ * costs a few kilobytes of copying even with a hundred thousand providers, instead of a copy of the whole arrays.
+ */
+final class ProviderSnapshot
+{
+    private static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final ProviderRegistry registry;
+
+    /**
+     * Provider indices, healthy providers on the left part and unhealthy on the right part.
+     */
+    private final int[][] partition;
+
+    /**
+     * Provider index to position in the partition array, -1 if the provider is not in the partition.
+     */
+    private final int[][] positions;
+
+    /**
+     * Number of healthy providers. It is used as partition index.
+     */
+    private final int size;
+
+    /**
+     * Number of providers in the partition.
+     */
+    private final int count;
+
+    private ProviderSnapshot(final ProviderRegistry registry, final int[][] partition, final int[][] positions,
+                             final int size, final int count)
+    {
+        this.registry = registry;
+        this.partition = partition;
+        this.positions = positions;
+        this.size = size;
+        this.count = count;
+    }
+
+    /**
+     * Create the initial snapshot where all the providers of the registry are healthy.
+     *
+     * @param registry
+     * @return
+     */
+    static ProviderSnapshot allHealthy(final ProviderRegistry registry)
+    {
+        final int numberOfProviders = registry.capacity();
+        final int numberOfChunks = (numberOfProviders + CHUNK_MASK) >>> CHUNK_SHIFT;
+        final int[][] partition = new int[numberOfChunks][];
+        final int[][] positions = new int[numberOfChunks][];
+        for (int chunk = 0; chunk < numberOfChunks; chunk++)
+        {
+            final int offset = chunk << CHUNK_SHIFT;
+            partition[chunk] = new int[Math.min(CHUNK_SIZE, numberOfProviders - offset)];
+            positions[chunk] = new int[partition[chunk].length];
+            for (int i = 0; i < partition[chunk].length; i++)
+            {
+                partition[chunk][i] = offset + i;
+                positions[chunk][i] = offset + i;
+            }
+        }
+        return new ProviderSnapshot(registry, partition, positions, numberOfProviders, numberOfProviders);
+    }
+
+    ProviderRegistry getRegistry()
+    {
+        return registry;
+    }
+
+    int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * @return the number of providers in the partition, healthy or not; the unhealthy ones are at the positions
+     * [size, count)
+     */
+    int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @param position position in the partition array
+     * @return the index of the provider stored in the given position
+     */
+    int getProviderIndex(final int position)
+    {
+        return partition[position >>> CHUNK_SHIFT][position & CHUNK_MASK];
+    }
+
+    boolean isHealthy(final int providerIndex)
+    {
+        final int position = getPosition(providerIndex);
+        return position >= 0 && position < size;
+    }
+
+    /**
+     * @param providerIndex
+     * @return a snapshot where the provider is moved to the unhealthy part, or this snapshot if it is already there
+     */
+    ProviderSnapshot withProviderRemoved(final int providerIndex)
+    {
+        final int i = getPosition(providerIndex);
+        if (i < 0 || i >= size)
+        {
+            return this;
+        }
+        final Editor editor = new Editor();
+        editor.swap(i, size - 1);
+        return new ProviderSnapshot(registry, editor.partition, editor.positions, size - 1, count);
+    }
+
+    /**
+     * @param providerIndex
+     * @return a snapshot where the provider is moved to the healthy part, or this snapshot if it is already there
+     */
+    ProviderSnapshot withProviderAdded(final int providerIndex)
+    {
+        final int i = getPosition(providerIndex);
+        if (i < size)
+        {
+            return this;
+        }
+        final Editor editor = new Editor();
+        editor.swap(i, size);
+        return new ProviderSnapshot(registry, editor.partition, editor.positions, size + 1, count);
+    }
+
+    /**
+     * Apply a number of state changes at once: every chunk is copied at most once, however many providers change.
+     * Providers that are not in the partition (draining or free indices) are ignored.
+     *
+     * @param removed indices of the providers to move to the unhealthy part
+     * @param numberOfRemoved number of indices to use from the removed array
+     * @param added indices of the providers to move to the healthy part
+     * @param numberOfAdded number of indices to use from the added array
+     * @return the new snapshot, or this snapshot if no provider changes part
+     */
+    ProviderSnapshot withChanges(final int[] removed, final int numberOfRemoved,
+                                 final int[] added, final int numberOfAdded)
+    {
+        Editor editor = null;
+        int newSize = size;
+
+        for (int k = 0; k < numberOfRemoved; k++)
+        {
+            final int i = editor == null ? getPosition(removed[k]) : editor.getPosition(removed[k]);
+            if (i >= 0 && i < newSize)
+            {
+                if (editor == null)
+                {
+                    editor = new Editor();
+                }
+                editor.swap(i, newSize - 1);
+                newSize--;
+            }
+        }
+
+        for (int k = 0; k < numberOfAdded; k++)
+        {
+            final int i = editor == null ? getPosition(added[k]) : editor.getPosition(added[k]);
+            if (i >= newSize)
+            {
+                if (editor == null)
+                {
+                    editor = new Editor();
+                }
+                editor.swap(i, newSize);
+                newSize++;
+            }
+        }
+
+        return editor == null ? this
+                : new ProviderSnapshot(registry, editor.partition, editor.positions, newSize, count);
+    }
+
+    /**
+     * @param newRegistry the registry where the provider was registered
+     * @param providerIndex index of the new provider, not in the partition
+     * @return a snapshot with the new registry and the provider in the healthy part
+     */
+    ProviderSnapshot withProviderRegistered(final ProviderRegistry newRegistry, final int providerIndex)
+    {
+        final Editor editor = new Editor();
+        editor.set(count, providerIndex);
+        editor.swap(count, size);
+        return new ProviderSnapshot(newRegistry, editor.partition, editor.positions, size + 1, count + 1);
+    }
+
+    /**
+     * @param newRegistry the registry where the provider is draining
+     * @param providerIndex index of a provider in the partition
+     * @return a snapshot with the new registry and the provider out of the partition
+     */
+    ProviderSnapshot withProviderDeregistered(final ProviderRegistry newRegistry, final int providerIndex)
+    {
+        final Editor editor = new Editor();
+        int newSize = size;
+        int i = getPosition(providerIndex);
+        if (i < newSize)
+        {
+            editor.swap(i, newSize - 1);
+            newSize--;
+            i = newSize;
+        }
+        editor.swap(i, count - 1);
+        editor.writablePositions(providerIndex)[providerIndex & CHUNK_MASK] = -1;
+        return new ProviderSnapshot(newRegistry, editor.partition, editor.positions, newSize, count - 1);
+    }
+
+    /**
+     * @param newRegistry a registry where only providers out of the partition changed
+     * @return a snapshot with the same partition and the new registry
+     */
+    ProviderSnapshot withRegistry(final ProviderRegistry newRegistry)
+    {
+        return new ProviderSnapshot(newRegistry, partition, positions, size, count);
+    }
+
+    private int getPosition(final int providerIndex)
+    {
+        return getPosition(positions, providerIndex);
+    }
+
+    private static int getPosition(final int[][] positions, final int providerIndex)
+    {
+        final int chunk = providerIndex >>> CHUNK_SHIFT;
+        final int offset = providerIndex & CHUNK_MASK;
+        return chunk < positions.length && offset < positions[chunk].length ? positions[chunk][offset] : -1;
+    }
+
+    /**
+     * Copy on write view of the chunks of this snapshot, used to build the next one. The chunks are grown (and the
+     * directories extended) as needed when providers are registered.
+     */
+    private final class Editor
+    {
+        private int[][] partition = ProviderSnapshot.this.partition.clone();
+        private int[][] positions = ProviderSnapshot.this.positions.clone();
+
+        int getPosition(final int providerIndex)
+        {
+            return ProviderSnapshot.getPosition(positions, providerIndex);
+        }
+
+        /**
+         * Store a provider that is not in the partition at the given position.
+         */
+        void set(final int position, final int providerIndex)
+        {
+            writablePartition(position)[position & CHUNK_MASK] = providerIndex;
+            writablePositions(providerIndex)[providerIndex & CHUNK_MASK] = position;
+        }
+
+        void swap(final int i, final int j)
+        {
+            if (i == j)
+            {
+                return;
+            }
+            final int providerI = partition[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+            final int providerJ = partition[j >>> CHUNK_SHIFT][j & CHUNK_MASK];
+            writablePartition(j)[j & CHUNK_MASK] = providerI;
+            writablePartition(i)[i & CHUNK_MASK] = providerJ;
+            writablePositions(providerI)[providerI & CHUNK_MASK] = j;
+            writablePositions(providerJ)[providerJ & CHUNK_MASK] = i;
+        }
+
+        private int[] writablePartition(final int position)
+        {
+            partition = writable(partition, ProviderSnapshot.this.partition, position);
+            return partition[position >>> CHUNK_SHIFT];
+        }
+
+        private int[] writablePositions(final int providerIndex)
+        {
+            positions = writable(positions, ProviderSnapshot.this.positions, providerIndex);
+            return positions[providerIndex >>> CHUNK_SHIFT];
+        }
+
+        /**
+         * Make the chunk of the given index a copy owned by the editor and long enough to hold the index.
+         *
+         * @return the directory, extended if the index is beyond its chunks
+         */
+        private int[][] writable(int[][] chunks, final int[][] shared, final int index)
+        {
+            final int chunk = index >>> CHUNK_SHIFT;
+            if (chunk >= chunks.length)
+            {
+                chunks = Arrays.copyOf(chunks, chunk + 1);
+            }
+            final int[] current = chunks[chunk];
+            final int length = current == null ? 0 : current.length;
+            if (length <= (index & CHUNK_MASK))
+            {
+                // grow a partial chunk by doubling, like an array list
+                final int newLength = Math.min(CHUNK_SIZE, Math.max((index & CHUNK_MASK) + 1, length * 2));
+                final int[] grown = current == null ? new int[newLength] : Arrays.copyOf(current, newLength);
+                Arrays.fill(grown, length, newLength, -1);
+                chunks[chunk] = grown;
+            }
+            else if (chunk < shared.length && current == shared[chunk])
+            {
+                chunks[chunk] = current.clone();
+            }
+            return chunks;
+        }
+    }
+}
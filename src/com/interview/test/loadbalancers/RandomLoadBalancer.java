@@ -7,22 +7,58 @@ import java.util.Random;
 
 /**
  * The next index in the array of the providers is calculated using a random value between 0 and the number of healthy
- * providers (exclusive). The abstract superclass partition the healthy (left part of the list) and unhealthy
- * (right part of the list) and the partition index is the current value of the size attribute.
- *
+ * providers (exclusive). The abstract superclass partition the healthy (left part of the snapshot) and unhealthy
+ * (right part of the snapshot) and the partition index is the size of the snapshot.
+ * <p>
+ * The random values come from the random source of the configuration (see {@link RandomSource}), by default a
+ * ThreadLocalRandom per thread, so the callers do not share (and CAS) a common seed.
+ * When fast range reduction is configured the random int is mapped to [0, size) with a multiplication and a shift
+ * instead of the modulo and rejection loop of nextInt(bound). The bias of the reduction is at most size / 2^32,
+ * which is negligible for any realistic number of providers.
  */
 final class RandomLoadBalancer extends AbstractLoadBalancer implements LoadBalancer
 {
-    private Random random = new Random();
+    private final boolean fastRangeReduction;
 
     public RandomLoadBalancer(final List<IProvider> providerList, LoadBalancerConfiguration configuration)
     {
         super(providerList, configuration);
+        fastRangeReduction = Boolean.TRUE.equals(configuration.getFastRangeReduction());
     }
 
     @Override
-    protected int getNext()
+    protected int getNext(final ProviderSnapshot snapshot)
     {
-        return random.nextInt(getSize());
+        final int size = snapshot.getSize();
+        if (fastRangeReduction)
+        {
+            return snapshot.getProviderIndex(reduce(randomSource.current().nextInt(), size));
+        }
+        return snapshot.getProviderIndex(randomSource.current().nextInt(size));
+    }
+
+    @Override
+    protected void getNext(final ProviderSnapshot snapshot, final int[] providerIndices, final int count)
+    {
+        final Random random = randomSource.current();
+        final int size = snapshot.getSize();
+        for (int k = 0; k < count; k++)
+        {
+            providerIndices[k] = snapshot.getProviderIndex(fastRangeReduction ? reduce(random.nextInt(), size)
+                    : random.nextInt(size));
+        }
+    }
+
+    /**
+     * Map a uniformly distributed int to [0, bound) using the high bits of the product of its unsigned value
+     * with the bound.
+     *
+     * @param random
+     * @param bound
+     * @return
+     */
+    static int reduce(final int random, final int bound)
+    {
+        return (int) (((random & 0xFFFFFFFFL) * bound) >>> 32);
     }
 }
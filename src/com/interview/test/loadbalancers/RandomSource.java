@@ -0,0 +1,31 @@
+package com.interview.test.loadbalancers;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Source of the random numbers of a load balancer: the random selections, the power of two choices, the weighted
+ * tables, the slow start and the load shedding draw from it. By default every thread draws from its own
+ * {@link ThreadLocalRandom}; a simulation (see {@link Ticker}) uses a seeded source so that its runs can be replayed.
+ */
+@FunctionalInterface
+public interface RandomSource
+{
+    RandomSource SYSTEM = ThreadLocalRandom::current;
+
+    /**
+     * @return the generator of the calling thread
+     */
+    Random current();
+
+    /**
+     * @param seed
+     * @return a source with a single generator, so that a load balancer used from one thread makes the same random
+     * choices for the same seed. The threads that share it contend on its state.
+     */
+    static RandomSource seeded(final long seed)
+    {
+        final Random random = new Random(seed);
+        return () -> random;
+    }
+}
@@ -0,0 +1,359 @@
+package com.interview.test.loadbalancers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Executes requests through a load balancer, so that the callers do not have to hand roll their retries. A request is
+ * an asynchronous call of a provider id; every attempt holds a lease of the provider it calls (see {@link Lease}),
+ * released with the result of the attempt, so the permits, adaptive limits and outlier detection of the load balancer
+ * see every attempt.
+ * <p>
+ * A failed attempt is retried on a provider that the request has not tried yet (as far as the selection allows), up
+ * to the maximum number of attempts. The retries are bounded by a retry budget (see {@link RetryBudget}), so a
+ * failing dependency of all the providers does not turn every request into several ones. If hedging is configured, a
+ * second attempt is sent to another provider when the first one has not completed after the configured percentile of
+ * the latencies of the successful attempts; the first attempt to succeed completes the request and the others are
+ * cancelled. Hedged attempts are taken from the same budget as the retries.
+ * <p>
+ * If a maximum number of consecutive failures is configured, a provider whose attempts failed that many times in a
+ * row is removed from the healthy providers with {@link LoadBalancer#removeProvider(String)}; the health checks bring
+ * it back. Otherwise the failures are left to the outlier detection of the load balancer, if any.
+ */
+public final class RequestExecutor implements AutoCloseable
+{
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * Number of successful attempts before the hedge delay is taken from their latencies; until then no attempt is
+     * hedged.
+     */
+    static final int MIN_HEDGE_SAMPLES = 20;
+
+    /**
+     * Number of selections of a provider the request has already tried before one is kept anyway.
+     */
+    static final int MAX_SELECTIONS_PER_ATTEMPT = 3;
+
+    private final LoadBalancer loadBalancer;
+    private final int maxAttempts;
+    private final RetryBudget retryBudget;
+    private final Double hedgeDelayPercentile;
+    private final Integer maxConsecutiveFailures;
+
+    /**
+     * Latencies of the successful attempts.
+     */
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Provider id to its number of consecutive failed attempts, when a maximum is configured.
+     */
+    private final ConcurrentMap<String, AtomicInteger> consecutiveFailures = new ConcurrentHashMap<>();
+
+    /**
+     * Starts the hedged attempts, null if hedging is not configured.
+     */
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public RequestExecutor(final LoadBalancer loadBalancer, final LoadBalancerConfiguration configuration)
+    {
+        this.loadBalancer = loadBalancer;
+        maxAttempts = Optional.ofNullable(configuration.getMaxAttempts()).orElse(DEFAULT_MAX_ATTEMPTS);
+        retryBudget = new RetryBudget(Optional.ofNullable(configuration.getRetryBudgetPercent())
+                .orElse(RetryBudget.DEFAULT_RETRY_PERCENT));
+        hedgeDelayPercentile = configuration.getHedgeDelayPercentile();
+        maxConsecutiveFailures = configuration.getMaxConsecutiveFailures();
+        if (maxAttempts < 1 || (hedgeDelayPercentile != null && (hedgeDelayPercentile <= 0
+                || hedgeDelayPercentile > 100)) || (maxConsecutiveFailures != null && maxConsecutiveFailures < 1))
+        {
+            throw new IllegalArgumentException("Maximum attempts and consecutive failures must be positive and the "
+                    + "hedge delay percentile in (0, 100]");
+        }
+        if (hedgeDelayPercentile == null)
+        {
+            scheduler = null;
+        }
+        else
+        {
+            scheduler = new ScheduledThreadPoolExecutor(1, HealthChecker.daemonThreadFactory("request-hedging"));
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    /**
+     * Execute a request, retried or hedged on other providers as configured.
+     *
+     * @param call sends the request to the provider of the given id; it must not block
+     * @param <T>
+     * @return the result of the first successful attempt, or the failure of the last attempt; a
+     * RejectedExecutionException if no provider could be acquired for the first attempt. Cancelling it cancels the
+     * attempts in flight.
+     */
+    public <T> CompletableFuture<T> execute(final Function<String, CompletableFuture<T>> call)
+    {
+        retryBudget.onRequest();
+        final Execution<T> execution = new Execution<>(call);
+        execution.start();
+        return execution.result;
+    }
+
+    /**
+     * Stop the hedging. The attempts in flight complete, but are no longer hedged.
+     */
+    @Override
+    public void close()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void onSuccess(final String providerId, final long latencyInNanos)
+    {
+        latencies.record(latencyInNanos);
+        if (maxConsecutiveFailures != null)
+        {
+            final AtomicInteger failures = consecutiveFailures.get(providerId);
+            if (failures != null)
+            {
+                failures.set(0);
+            }
+        }
+    }
+
+    private void onFailure(final String providerId)
+    {
+        if (maxConsecutiveFailures != null && consecutiveFailures
+                .computeIfAbsent(providerId, id -> new AtomicInteger()).incrementAndGet() >= maxConsecutiveFailures)
+        {
+            consecutiveFailures.remove(providerId);
+            loadBalancer.removeProvider(providerId);
+        }
+    }
+
+    /**
+     * The attempts of one request. The attempts complete on any thread, so the state is guarded by the execution; the
+     * result is completed, and the attempts subscribed to, after the lock is released, so that neither the callbacks
+     * of the caller nor an attempt that completes at once run under it.
+     */
+    private final class Execution<T>
+    {
+        private final Function<String, CompletableFuture<T>> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<CompletableFuture<T>> attempts = new ArrayList<>(2);
+
+        /**
+         * Handles of the providers tried.
+         */
+        private final int[] tried = new int[maxAttempts];
+        private int numberOfAttempts;
+        private int numberOfInFlight;
+        private Future<?> hedge;
+
+        /**
+         * Set once the outcome of the request is decided, before the result is completed: no attempt starts after.
+         */
+        private boolean finished;
+
+        Execution(final Function<String, CompletableFuture<T>> call)
+        {
+            this.call = call;
+        }
+
+        void start()
+        {
+            result.whenComplete((value, failure) -> cancelAttempts());
+            final Runnable attempt = startFirstAttempt();
+            if (attempt == null)
+            {
+                result.completeExceptionally(new RejectedExecutionException(LoadBalancer.ERROR_MESSAGE));
+                return;
+            }
+            attempt.run();
+        }
+
+        private synchronized Runnable startFirstAttempt()
+        {
+            final Runnable attempt = attempt();
+            if (attempt == null)
+            {
+                finished = true;
+                return null;
+            }
+            // an attempt that completed at once is not hedged
+            if (scheduler != null && latencies.getCount() >= MIN_HEDGE_SAMPLES && !attempts.get(0).isDone())
+            {
+                try
+                {
+                    hedge = scheduler.schedule(this::hedge, latencies.getValueAtPercentile(hedgeDelayPercentile),
+                            TimeUnit.NANOSECONDS);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    // closed: not hedged
+                }
+            }
+            return attempt;
+        }
+
+        /**
+         * @return subscribes to the attempt started, to be run once the lock is released; null if none was started
+         */
+        private Runnable attempt()
+        {
+            if (finished || result.isDone() || numberOfAttempts == maxAttempts)
+            {
+                return null;
+            }
+            final Lease lease = acquireUntried();
+            if (!lease.isAcquired())
+            {
+                return null;
+            }
+            tried[numberOfAttempts++] = lease.getProviderHandle();
+            numberOfInFlight++;
+
+            final long start = System.nanoTime();
+            CompletableFuture<T> attempt;
+            try
+            {
+                attempt = Objects.requireNonNull(call.apply(lease.getProviderId()));
+            }
+            catch (RuntimeException e)
+            {
+                attempt = new CompletableFuture<>();
+                attempt.completeExceptionally(e);
+            }
+            attempts.add(attempt);
+            final CompletableFuture<T> started = attempt;
+            return () -> started.whenComplete((value, failure) -> onAttemptCompleted(lease, start, value, failure));
+        }
+
+        /**
+         * Start another attempt if the budget allows it; the token of the retry is given back if no provider could
+         * be acquired.
+         *
+         * @return subscribes to the attempt started, null if none was started
+         */
+        private Runnable retry()
+        {
+            if (finished || result.isDone() || numberOfAttempts == maxAttempts || !retryBudget.tryRetry())
+            {
+                return null;
+            }
+            final Runnable attempt = attempt();
+            if (attempt == null)
+            {
+                retryBudget.refund();
+            }
+            return attempt;
+        }
+
+        private Lease acquireUntried()
+        {
+            Lease lease = loadBalancer.acquire();
+            for (int selections = 1; selections < MAX_SELECTIONS_PER_ATTEMPT && lease.isAcquired()
+                    && isTried(lease.getProviderHandle()); selections++)
+            {
+                lease.cancel();
+                lease = loadBalancer.acquire();
+            }
+            return lease;
+        }
+
+        private boolean isTried(final int handle)
+        {
+            for (int k = 0; k < numberOfAttempts; k++)
+            {
+                if (tried[k] == handle)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void hedge()
+        {
+            final Runnable attempt;
+            synchronized (this)
+            {
+                attempt = retry();
+            }
+            if (attempt != null)
+            {
+                attempt.run();
+            }
+        }
+
+        private void onAttemptCompleted(final Lease lease, final long start, final T value, final Throwable failure)
+        {
+            if (failure == null)
+            {
+                // finished before the permit is returned, so that a hedge does not take it
+                synchronized (this)
+                {
+                    numberOfInFlight--;
+                    finished = true;
+                }
+                lease.release();
+                onSuccess(lease.getProviderId(), System.nanoTime() - start);
+                result.complete(value);
+                return;
+            }
+
+            final Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            if (cause instanceof CancellationException)
+            {
+                // the loser of a hedge, or cancelled by the caller
+                lease.cancel();
+                synchronized (this)
+                {
+                    numberOfInFlight--;
+                }
+                return;
+            }
+            lease.fail();
+            onFailure(lease.getProviderId());
+            final Runnable attempt;
+            synchronized (this)
+            {
+                numberOfInFlight--;
+                if (numberOfInFlight > 0 || finished || result.isDone())
+                {
+                    return;
+                }
+                attempt = retry();
+                finished = attempt == null;
+            }
+            if (attempt != null)
+            {
+                attempt.run();
+            }
+            else
+            {
+                result.completeExceptionally(cause);
+            }
+        }
+
+        private synchronized void cancelAttempts()
+        {
+            if (hedge != null)
+            {
+                hedge.cancel(false);
+            }
+            for (CompletableFuture<T> attempt : attempts)
+            {
+                attempt.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.interview.test.loadbalancers;
+
+/**
+ * Priority class of a request, for the load shedding (see {@link LoadShedder}): the classes are shed one after the
+ * other, from the lowest, as the queueing delay stays above its target. The requests that do not give a priority are
+ * Normal.
+ */
+public enum RequestPriority
+{
+    /**
+     * Never shed, e.g. the requests that tell whether a dependency is alive.
+     */
+    Critical,
+
+    /**
+     * Shed once the Normal and Low requests are all shed, e.g. the requests of premium users.
+     */
+    High,
+
+    Normal,
+
+    /**
+     * Shed first, e.g. prefetches and batch jobs.
+     */
+    Low
+}
@@ -0,0 +1,72 @@
+package com.interview.test.loadbalancers;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the retries (and hedged requests) to a percentage of the requests, so that the retries cannot multiply the
+ * load of failing providers (a retry storm). It is a token bucket: every request deposits a fraction of a token, a
+ * retry withdraws a whole token, and the bucket holds at most MAX_TOKENS tokens, which is also the burst of retries
+ * allowed at start or after a quiet period. The balance is kept in thousandths of a token in an atomic long.
+ */
+final class RetryBudget
+{
+    public static final int DEFAULT_RETRY_PERCENT = 20;
+
+    static final int MAX_TOKENS = 10;
+
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final AtomicLong balance = new AtomicLong(MAX_TOKENS * TOKEN);
+
+    /**
+     * @param retryPercent retries allowed per hundred requests
+     */
+    RetryBudget(final int retryPercent)
+    {
+        if (retryPercent <= 0)
+        {
+            throw new IllegalArgumentException("Retry budget percent must be positive");
+        }
+        deposit = retryPercent * TOKEN / 100;
+    }
+
+    void onRequest()
+    {
+        long current;
+        while ((current = balance.get()) < MAX_TOKENS * TOKEN
+                && !balance.compareAndSet(current, Math.min(MAX_TOKENS * TOKEN, current + deposit)))
+        {
+            // another request deposited
+        }
+    }
+
+    /**
+     * @return true if a retry is allowed, in which case its token is withdrawn
+     */
+    boolean tryRetry()
+    {
+        long current;
+        while ((current = balance.get()) >= TOKEN)
+        {
+            if (balance.compareAndSet(current, current - TOKEN))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Give back the token of a retry that could not be sent.
+     */
+    void refund()
+    {
+        long current;
+        while ((current = balance.get()) < MAX_TOKENS * TOKEN
+                && !balance.compareAndSet(current, Math.min(MAX_TOKENS * TOKEN, current + TOKEN)))
+        {
+            // another request deposited
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Ketama style consistent hashing. Every provider is placed on a ring at a number of pseudo random points (virtual
+ * nodes, proportional to its weight) and a key goes to the provider of the first point at or after the hash of the
+ * key. The ring is a single sorted array of longs: the 31 bit point in the high half and the provider index in the low
+ * half, so a lookup is a binary search over a primitive array. A provider joining or leaving the ring takes or gives
+ * back only the keys between its points and the previous points, about 1 / n of the keys.
+ */
+final class RingHashLoadBalancer extends ConsistentHashLoadBalancer<long[]> implements LoadBalancer
+{
+    public static final int DEFAULT_NUMBER_OF_VIRTUAL_NODES = 100;
+
+    /**
+     * Maximum number of points of the initial ring, the number of virtual nodes is lowered to stay under it.
+     */
+    public static final int MAX_RING_SIZE = 1 << 23;
+
+    private static final long POINT_STEP = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Number of points per unit of weight.
+     */
+    private final int numberOfVirtualNodes;
+
+    public RingHashLoadBalancer(final List<IProvider> providerList, final LoadBalancerConfiguration configuration)
+    {
+        super(providerList, configuration);
+        final long totalWeight = providerList.stream().mapToLong(IProvider::getWeight).sum();
+        numberOfVirtualNodes = (int) Math.max(1, Math.min(Optional.ofNullable(
+                configuration.getNumberOfVirtualNodes()).orElse(DEFAULT_NUMBER_OF_VIRTUAL_NODES),
+                MAX_RING_SIZE / Math.max(1, totalWeight)));
+    }
+
+    @Override
+    protected void checkRegistry(final ProviderRegistry registry)
+    {
+        if (!registry.hasPositiveWeights())
+        {
+            throw new IllegalArgumentException("Provider weight must be positive");
+        }
+    }
+
+    @Override
+    protected long[] createTable(final ProviderRegistry registry)
+    {
+        long length = 0;
+        for (int i = 0; i < registry.capacity(); i++)
+        {
+            if (registry.isRegistered(i))
+            {
+                length += (long) registry.getWeight(i) * numberOfVirtualNodes;
+            }
+        }
+
+        final long[] ring = new long[Math.toIntExact(length)];
+        int k = 0;
+        for (int i = 0; i < registry.capacity(); i++)
+        {
+            if (!registry.isRegistered(i))
+            {
+                continue;
+            }
+            // the points depend on the id only, so a provider gets the same points at any index
+            final long idHash = hash(registry.getId(i));
+            for (int v = registry.getWeight(i) * numberOfVirtualNodes; v > 0; v--)
+            {
+                ring[k++] = getPoint(mix(idHash + v * POINT_STEP)) | i;
+            }
+        }
+        Arrays.sort(ring);
+        return ring;
+    }
+
+    @Override
+    protected int getNumberOfSlots(final long[] ring)
+    {
+        return ring.length;
+    }
+
+    @Override
+    protected int getSlot(final long[] ring, final long hash)
+    {
+        // the point of the hash with provider index 0 sorts before all the entries with the same point
+        final int slot = Arrays.binarySearch(ring, getPoint(hash));
+        final int first = slot >= 0 ? slot : -slot - 1;
+        return first == ring.length ? 0 : first;
+    }
+
+    @Override
+    protected int getProviderIndex(final long[] ring, final int slot)
+    {
+        return (int) ring[slot];
+    }
+
+    /**
+     * @return the high 31 bits of the hash in the high half of a long
+     */
+    private static long getPoint(final long hash)
+    {
+        return (hash >>> 33) << 32;
+    }
+}
@@ -7,8 +7,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The next index in the array of the providers is calculated using a counter and modulo operation on the number
- * of healthy providers. The abstract superclass partition the healthy (left part of the list) and unhealthy
- * (right part of the list) and the partition index is the current value of the size attribute.
+ * of healthy providers. The abstract superclass partition the healthy (left part of the snapshot) and unhealthy
+ * (right part of the snapshot) and the partition index is the size of the snapshot.
  *
  */
 final class RoundRobinLoadBalancer extends AbstractLoadBalancer implements LoadBalancer
@@ -21,13 +21,31 @@ final class RoundRobinLoadBalancer extends AbstractLoadBalancer implements LoadB
     }
 
     @Override
-    protected int getNext()
+    protected int getNext(final ProviderSnapshot snapshot)
     {
         int i = counter.getAndIncrement();
         if (i < 0)
         {
             i = (Integer.MAX_VALUE + i) + 1;
         }
-        return i % getSize();
+        return snapshot.getProviderIndex(i % snapshot.getSize());
+    }
+
+    /**
+     * Reserve count consecutive positions of the sequence with one update of the counter.
+     */
+    @Override
+    protected void getNext(final ProviderSnapshot snapshot, final int[] providerIndices, final int count)
+    {
+        final int size = snapshot.getSize();
+        int position = (counter.getAndAdd(count) & Integer.MAX_VALUE) % size;
+        for (int k = 0; k < count; k++)
+        {
+            providerIndices[k] = snapshot.getProviderIndex(position);
+            if (++position == size)
+            {
+                position = 0;
+            }
+        }
     }
 }
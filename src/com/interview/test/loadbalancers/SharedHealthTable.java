@@ -0,0 +1,238 @@
+package com.interview.test.loadbalancers;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.zip.CRC32;
+
+/**
+ * Health of the providers shared by the load balancers of several processes of a host through a memory mapped file
+ * (e.g. under /dev/shm), so that the providers are probed once per host instead of once per process and all the
+ * processes route on the same health. The process that holds the lock of the file is the leader: it runs the health
+ * checks and writes the health of its providers after every round. The others only read the table, from their
+ * heartbeat thread, and apply the changes to their own providers (matched by id); their get() is not involved. When
+ * the leader closes its load balancer or dies the operating system releases the lock and the next follower to try it
+ * takes over. Within one JVM the load balancers that share a table elect a leader the same way.
+ * <p>
+ * Java 8 has no memory fences for mapped memory, so the table is not guarded by a sequence lock: the leader writes the
+ * entries, then the header and a CRC32 of both, and a follower accepts what it read only if the checksum matches, i.e.
+ * only complete writes; a torn or reordered read is retried at the next poll. Reading the sequence number, the only
+ * read while the table does not change, costs no system call.
+ * <p>
+ * Layout: magic (int), unused (int), sequence number (long), number of entries (int), length of the entries (int),
+ * checksum (long), then per provider the length of its UTF-8 id (short), the id and its health (byte).
+ */
+final class SharedHealthTable implements AutoCloseable
+{
+    /**
+     * Size of the mapped file, enough for about 150000 providers with ids of 20 characters. A round whose providers do
+     * not fit is not written.
+     */
+    static final int TABLE_SIZE_IN_BYTES = 4 << 20;
+
+    private static final int MAGIC = 0x4C424854;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int CHECKSUM_OFFSET = 24;
+    private static final int ENTRIES_OFFSET = 32;
+
+    /**
+     * Bytes of the header covered by the checksum: the sequence number, the number and the length of the entries.
+     */
+    private static final int CHECKED_HEADER_LENGTH = CHECKSUM_OFFSET - SEQUENCE_OFFSET;
+
+    /**
+     * The lock is taken on a byte far past the end of the table, so the table itself is never locked.
+     */
+    private static final long LOCK_POSITION = Long.MAX_VALUE - 1;
+
+    private final String path;
+    private final RandomAccessFile file;
+    private final MappedByteBuffer table;
+    private FileLock lock;
+
+    /**
+     * Sequence number of the last table read or written.
+     */
+    private long sequence;
+
+    private byte[] buffer = new byte[1024];
+    private final CRC32 crc = new CRC32();
+
+    SharedHealthTable(final String path)
+    {
+        this.path = path;
+        try
+        {
+            file = new RandomAccessFile(path, "rw");
+            table = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, TABLE_SIZE_IN_BYTES);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot map the shared health table " + path, e);
+        }
+    }
+
+    /**
+     * @return true if this process is, or just became, the leader
+     */
+    boolean tryLead()
+    {
+        if (lock != null)
+        {
+            return true;
+        }
+        try
+        {
+            lock = file.getChannel().tryLock(LOCK_POSITION, 1, false);
+        }
+        catch (OverlappingFileLockException e)
+        {
+            // the leader is another load balancer of this JVM
+            return false;
+        }
+        catch (IOException e)
+        {
+            // closed
+            return false;
+        }
+        if (lock != null)
+        {
+            sequence = Math.max(sequence, table.getLong(SEQUENCE_OFFSET));
+        }
+        return lock != null;
+    }
+
+    boolean isLeader()
+    {
+        return lock != null;
+    }
+
+    /**
+     * Write the health of the providers of the snapshot, as the leader.
+     *
+     * @param snapshot
+     * @param healthy the health of the providers as their health checks see it: the outlier ejections and the manual
+     * changes are local decisions of this process, not shared
+     */
+    void write(final ProviderSnapshot snapshot, final IntPredicate healthy)
+    {
+        final ProviderRegistry registry = snapshot.getRegistry();
+        int length = 0;
+        for (int position = 0; position < snapshot.getCount(); position++)
+        {
+            final int i = snapshot.getProviderIndex(position);
+            final String id = registry.getId(i);
+            final byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(CHECKED_HEADER_LENGTH + length + 3 + idBytes.length);
+            final int offset = CHECKED_HEADER_LENGTH + length;
+            buffer[offset] = (byte) (idBytes.length >>> 8);
+            buffer[offset + 1] = (byte) idBytes.length;
+            System.arraycopy(idBytes, 0, buffer, offset + 2, idBytes.length);
+            buffer[offset + 2 + idBytes.length] = (byte) (healthy.test(i) ? 1 : 0);
+            length += 3 + idBytes.length;
+        }
+        if (ENTRIES_OFFSET + length > TABLE_SIZE_IN_BYTES)
+        {
+            return;
+        }
+
+        sequence++;
+        ByteBuffer.wrap(buffer, 0, CHECKED_HEADER_LENGTH).putLong(sequence).putInt(snapshot.getCount())
+                .putInt(length);
+        crc.reset();
+        crc.update(buffer, 0, CHECKED_HEADER_LENGTH + length);
+
+        final ByteBuffer entries = table.duplicate();
+        entries.position(ENTRIES_OFFSET);
+        entries.put(buffer, CHECKED_HEADER_LENGTH, length);
+        table.putInt(MAGIC_OFFSET, MAGIC);
+        final ByteBuffer header = table.duplicate();
+        header.position(SEQUENCE_OFFSET);
+        header.put(buffer, 0, CHECKED_HEADER_LENGTH);
+        table.putLong(CHECKSUM_OFFSET, crc.getValue());
+    }
+
+    /**
+     * Read the table, as a follower.
+     *
+     * @return provider id to health, or null if the table did not change since the last read or the read was not
+     * consistent
+     */
+    Map<String, Boolean> read()
+    {
+        final long current = table.getLong(SEQUENCE_OFFSET);
+        if (current == sequence || table.getInt(MAGIC_OFFSET) != MAGIC)
+        {
+            return null;
+        }
+        final int length = table.getInt(SEQUENCE_OFFSET + 12);
+        if (length < 0 || ENTRIES_OFFSET + length > TABLE_SIZE_IN_BYTES)
+        {
+            return null;
+        }
+        ensureCapacity(CHECKED_HEADER_LENGTH + length);
+        final ByteBuffer view = table.duplicate();
+        view.position(SEQUENCE_OFFSET);
+        view.get(buffer, 0, CHECKED_HEADER_LENGTH);
+        view.position(ENTRIES_OFFSET);
+        view.get(buffer, CHECKED_HEADER_LENGTH, length);
+        crc.reset();
+        crc.update(buffer, 0, CHECKED_HEADER_LENGTH + length);
+        final ByteBuffer header = ByteBuffer.wrap(buffer, 0, CHECKED_HEADER_LENGTH);
+        final long readSequence = header.getLong();
+        final int numberOfEntries = header.getInt();
+        if (crc.getValue() != table.getLong(CHECKSUM_OFFSET) || header.getInt() != length)
+        {
+            return null;
+        }
+
+        final Map<String, Boolean> health = new HashMap<>(2 * numberOfEntries);
+        int offset = CHECKED_HEADER_LENGTH;
+        for (int k = 0; k < numberOfEntries; k++)
+        {
+            final int idLength = ((buffer[offset] & 0xFF) << 8) | (buffer[offset + 1] & 0xFF);
+            health.put(new String(buffer, offset + 2, idLength, StandardCharsets.UTF_8),
+                    buffer[offset + 2 + idLength] != 0);
+            offset += 3 + idLength;
+        }
+        sequence = readSequence;
+        return health;
+    }
+
+    private void ensureCapacity(final int capacity)
+    {
+        if (buffer.length < capacity)
+        {
+            final byte[] grown = new byte[Math.max(capacity, 2 * buffer.length)];
+            System.arraycopy(buffer, 0, grown, 0, buffer.length);
+            buffer = grown;
+        }
+    }
+
+    /**
+     * Give up the leadership. The mapping is released when the buffer is collected.
+     */
+    @Override
+    public void close()
+    {
+        try
+        {
+            file.close();
+        }
+        catch (IOException e)
+        {
+            // closed anyway
+        }
+        lock = null;
+    }
+}
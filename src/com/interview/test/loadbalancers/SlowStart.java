@@ -0,0 +1,133 @@
+package com.interview.test.loadbalancers;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ramps up the share of the requests of the providers that just became healthy, i.e. that were registered or moved
+ * back to the healthy providers, so that their cold caches and JIT do not get a full share of the traffic at once.
+ * During the slow start window the effective weight of such a provider grows from the minimum weight to 1, linearly
+ * or exponentially (see {@link SlowStartRamp}).
+ * <p>
+ * The ramp works on top of any selection strategy: a selected provider that is warming up is kept with a probability
+ * equal to its effective weight, otherwise the load balancer selects again, a bounded number of times. Its share of
+ * the requests is thus about its effective weight times its normal share. The warm up start times are kept in padded
+ * counters and the warming providers are counted, so while no provider is warming up a selection pays a single
+ * volatile read, and the selections never lock.
+ */
+final class SlowStart
+{
+    public static final int DEFAULT_MIN_WEIGHT_PERCENT = 10;
+
+    /**
+     * Number of selections before a provider that is warming up is kept whatever its effective weight.
+     */
+    static final int MAX_SELECTIONS = 3;
+
+    private static final int WARMING_SINCE = 0;
+
+    private final long windowInNanos;
+    private final double minWeight;
+    private final SlowStartRamp ramp;
+
+    /**
+     * Per provider the time it started warming up, 0 if it is not warming up.
+     */
+    private final PaddedCounters providers;
+
+    private final AtomicInteger numberOfWarming = new AtomicInteger();
+
+    private final Ticker ticker;
+
+    SlowStart(final LoadBalancerConfiguration configuration, final Ticker ticker, final int numberOfProviders)
+    {
+        this.ticker = ticker;
+        windowInNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getSlowStartWindowInMillis());
+        minWeight = Optional.ofNullable(configuration.getSlowStartMinWeightPercent())
+                .orElse(DEFAULT_MIN_WEIGHT_PERCENT) / 100.0;
+        ramp = Optional.ofNullable(configuration.getSlowStartRamp()).orElse(SlowStartRamp.Linear);
+        if (windowInNanos <= 0 || minWeight <= 0 || minWeight > 1)
+        {
+            throw new IllegalArgumentException("Slow start window must be positive and its minimum weight percent in "
+                    + "(0, 100]");
+        }
+        providers = new PaddedCounters(AbstractLoadBalancer.COUNTERS_PER_CHUNK, numberOfProviders);
+    }
+
+    /**
+     * @return true if a provider may be warming up
+     */
+    boolean isWarming()
+    {
+        return numberOfWarming.get() > 0;
+    }
+
+    /**
+     * @param providerIndex a selected provider
+     * @param random
+     * @return true if the selection is kept: the provider is not warming up, or with the probability of its
+     * effective weight
+     */
+    boolean admit(final int providerIndex, final Random random)
+    {
+        final long since = providers.get(providerIndex, WARMING_SINCE);
+        if (since == 0)
+        {
+            return true;
+        }
+        final long elapsed = ticker.nanoTime() - since;
+        if (elapsed >= windowInNanos)
+        {
+            if (providers.compareAndSet(providerIndex, WARMING_SINCE, since, 0))
+            {
+                numberOfWarming.decrementAndGet();
+            }
+            return true;
+        }
+        return random.nextDouble() < getWeight((double) elapsed / windowInNanos);
+    }
+
+    /**
+     * @param fraction elapsed part of the window, in [0, 1)
+     * @return the effective weight
+     */
+    private double getWeight(final double fraction)
+    {
+        return ramp == SlowStartRamp.Linear ? minWeight + (1 - minWeight) * fraction
+                : Math.pow(minWeight, 1 - fraction);
+    }
+
+    /**
+     * Called with the membership lock held, before the provider is published.
+     *
+     * @param providerIndex
+     */
+    void onProviderRegistered(final int providerIndex)
+    {
+        providers.ensureCapacity(providerIndex + 1);
+        onHealthChanged(providerIndex, true);
+    }
+
+    /**
+     * The provider became healthy, or unhealthy or deregistered.
+     *
+     * @param providerIndex
+     * @param healthy
+     */
+    void onHealthChanged(final int providerIndex, final boolean healthy)
+    {
+        // 0 marks a provider that is not warming up
+        final long now = healthy ? ticker.nanoTime() | 1 : 0;
+        final long since = providers.getAndSet(providerIndex, WARMING_SINCE, now);
+        if (since == 0 && now != 0)
+        {
+            numberOfWarming.incrementAndGet();
+        }
+        else if (since != 0 && now == 0)
+        {
+            numberOfWarming.decrementAndGet();
+        }
+    }
+}
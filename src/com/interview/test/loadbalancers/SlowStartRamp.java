@@ -0,0 +1,19 @@
+package com.interview.test.loadbalancers;
+
+/**
+ * How the effective weight of a provider grows during its slow start window, from the minimum weight to its full
+ * weight.
+ */
+public enum SlowStartRamp
+{
+    /**
+     * The weight grows by the same amount in every part of the window.
+     */
+    Linear,
+
+    /**
+     * The weight grows by the same factor in every part of the window, i.e. it doubles at a constant rate: the
+     * provider stays at a low share for most of the window and reaches its full share at the end.
+     */
+    Exponential
+}
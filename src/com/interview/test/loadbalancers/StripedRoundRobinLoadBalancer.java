@@ -0,0 +1,83 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.List;
+
+/**
+ * Round robin without a single shared counter. The counter is split in a number of stripes (a power of two, by
+ * default the next power of two of the available processors) and every thread increments the stripe selected by
+ * the hash of its id, so threads running on different cores do not bounce the same cache line. Each stripe is
+ * padded to its own 128 bytes and performs a strict round robin over the healthy providers, starting from a
+ * different offset per stripe.
+ * <p>
+ * Fairness bound: for a given healthy partition every stripe hands out each provider either k or k + 1 times, so the
+ * number of picks of any two providers differs by at most the number of stripes, independently of the number of
+ * requests. A single thread always uses the same stripe and therefore sees a strict round robin sequence.
+ */
+final class StripedRoundRobinLoadBalancer extends AbstractLoadBalancer implements LoadBalancer
+{
+    private static final int MAX_NUMBER_OF_STRIPES = 64;
+
+    private final PaddedCounters counters;
+    private final int mask;
+
+    public StripedRoundRobinLoadBalancer(final List<IProvider> providerList,
+                                         final LoadBalancerConfiguration configuration)
+    {
+        super(providerList, configuration);
+        final int numberOfStripes = getNumberOfStripes(configuration);
+        mask = numberOfStripes - 1;
+        counters = new PaddedCounters(numberOfStripes);
+        for (int i = 0; i < numberOfStripes; i++)
+        {
+            counters.set(i, i);
+        }
+    }
+
+    private static int getNumberOfStripes(final LoadBalancerConfiguration configuration)
+    {
+        Integer stripes = configuration.getNumberOfCounterStripes();
+        if (stripes == null)
+        {
+            stripes = Math.min(Runtime.getRuntime().availableProcessors(), MAX_NUMBER_OF_STRIPES);
+        }
+        if (stripes <= 0)
+        {
+            throw new IllegalArgumentException("Number of counter stripes must be positive");
+        }
+        return stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+    }
+
+    @Override
+    protected int getNext(final ProviderSnapshot snapshot)
+    {
+        final long i = counters.getAndIncrement(stripe());
+        return snapshot.getProviderIndex((int) (i % snapshot.getSize()));
+    }
+
+    /**
+     * Reserve count consecutive positions of the sequence of the stripe with one update of its counter.
+     */
+    @Override
+    protected void getNext(final ProviderSnapshot snapshot, final int[] providerIndices, final int count)
+    {
+        final int size = snapshot.getSize();
+        int position = (int) ((counters.addAndGet(stripe(), count) - count) % size);
+        for (int k = 0; k < count; k++)
+        {
+            providerIndices[k] = snapshot.getProviderIndex(position);
+            if (++position == size)
+            {
+                position = 0;
+            }
+        }
+    }
+
+    private int stripe()
+    {
+        final long id = Thread.currentThread().getId();
+        final int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,16 @@
+package com.interview.test.loadbalancers;
+
+/**
+ * Source of the time of a load balancer, in nanoseconds like {@link System#nanoTime()}. The latencies of the leases,
+ * the outlier ejections, the slow start ramps and the latency decay of the peak EWMA load balancer are measured with
+ * it, so a simulation can run a load balancer on a virtual clock (see {@link LoadBalancer#checkHealth()}). The
+ * periodic health checks and the waits for a permit always use the system time; with a ticker configured the providers
+ * ejected by the outlier detection return only through the health checks.
+ */
+@FunctionalInterface
+public interface Ticker
+{
+    Ticker SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
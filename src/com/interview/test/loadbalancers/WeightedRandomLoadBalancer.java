@@ -0,0 +1,143 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Weighted random selection with O(1) picks. The healthy providers of each snapshot are put in an alias table
+ * (Vose's method): every column of the table holds a healthy provider, the probability of keeping it and an alias
+ * provider. A pick selects a column uniformly and then keeps the column or takes its alias with one more
+ * random value, so each provider is selected with probability weight / total weight of the healthy providers.
+ */
+final class WeightedRandomLoadBalancer extends AbstractWeightedLoadBalancer<WeightedRandomLoadBalancer.AliasTable>
+        implements LoadBalancer
+{
+    public WeightedRandomLoadBalancer(final List<IProvider> providerList,
+                                      final LoadBalancerConfiguration configuration)
+    {
+        super(providerList, configuration);
+    }
+
+    @Override
+    protected AliasTable createTable(final ProviderSnapshot snapshot)
+    {
+        return new AliasTable(snapshot);
+    }
+
+    @Override
+    protected int select(final AliasTable table)
+    {
+        return table.select(randomSource.current());
+    }
+
+    static final class AliasTable
+    {
+        private final int[] provider;
+        private final double[] probability;
+        private final int[] alias;
+
+        AliasTable(final ProviderSnapshot snapshot)
+        {
+            this(snapshot.getRegistry(), getHealthyProviders(snapshot));
+        }
+
+        /**
+         * @param registry
+         * @param providers the indices of the providers of the table, owned by the table
+         */
+        AliasTable(final ProviderRegistry registry, final int[] providers)
+        {
+            final int size = providers.length;
+            provider = providers;
+            probability = new double[size];
+            alias = new int[size];
+
+            long totalWeight = 0;
+            for (int i = 0; i < size; i++)
+            {
+                totalWeight += registry.getWeight(provider[i]);
+            }
+
+            // scaled probabilities, the average is 1
+            final double[] scaled = new double[size];
+            final int[] small = new int[size];
+            final int[] large = new int[size];
+            int numberOfSmall = 0;
+            int numberOfLarge = 0;
+            for (int i = 0; i < size; i++)
+            {
+                scaled[i] = (double) registry.getWeight(provider[i]) * size / totalWeight;
+                if (scaled[i] < 1.0)
+                {
+                    small[numberOfSmall++] = i;
+                }
+                else
+                {
+                    large[numberOfLarge++] = i;
+                }
+            }
+
+            while (numberOfSmall > 0 && numberOfLarge > 0)
+            {
+                final int less = small[--numberOfSmall];
+                final int more = large[--numberOfLarge];
+                probability[less] = scaled[less];
+                alias[less] = provider[more];
+                scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+                if (scaled[more] < 1.0)
+                {
+                    small[numberOfSmall++] = more;
+                }
+                else
+                {
+                    large[numberOfLarge++] = more;
+                }
+            }
+
+            // what is left is (up to rounding errors) exactly 1
+            while (numberOfLarge > 0)
+            {
+                final int i = large[--numberOfLarge];
+                probability[i] = 1.0;
+                alias[i] = provider[i];
+            }
+            while (numberOfSmall > 0)
+            {
+                final int i = small[--numberOfSmall];
+                probability[i] = 1.0;
+                alias[i] = provider[i];
+            }
+        }
+
+        private static int[] getHealthyProviders(final ProviderSnapshot snapshot)
+        {
+            final int[] providers = new int[snapshot.getSize()];
+            for (int i = 0; i < providers.length; i++)
+            {
+                providers[i] = snapshot.getProviderIndex(i);
+            }
+            return providers;
+        }
+
+        /**
+         * @return the number of providers in the table
+         */
+        int size()
+        {
+            return provider.length;
+        }
+
+        /**
+         * @param random
+         * @return the index of a provider of the table, selected with probability weight / total weight; the table
+         * must not be empty
+         */
+        int select(final Random random)
+        {
+            final int column = random.nextInt(probability.length);
+            return random.nextDouble() < probability[column] ? provider[column] : alias[column];
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.interview.test.loadbalancers;
+
+import com.interview.test.providers.IProvider;
+
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Smooth weighted round robin with O(1) picks. For each snapshot the sequence of one weighted round (the sum of the
+ * weights of the healthy providers, divided by their greatest common divisor) is built once, and the picks walk it
+ * with a counter like the round robin load balancer does.
+ * <p>
+ * The sequence interleaves the providers like the nginx smooth weighted round robin does (for weights 5, 1, 1 it is
+ * a b a a c a a, instead of a a a a a b c). The k-th pick of a provider with weight w becomes eligible at the virtual
+ * time k / w of the round and must be placed before the virtual time (k + 1) / w; every pick takes the eligible
+ * provider with the earliest deadline. This keeps every provider within one pick of its share t * w / total weight
+ * in every prefix of t picks, the same bound nginx gives. The nginx algorithm needs a pass over all the providers for
+ * every pick; the eligible/deadline ordering builds the round with two priority queues in O(W log n), which keeps the
+ * rebuild after a membership change cheap even for large provider sets.
+ */
+final class WeightedRoundRobinLoadBalancer
+        extends AbstractWeightedLoadBalancer<int[]> implements LoadBalancer
+{
+    /**
+     * Maximum length of the sequence of one round.
+     */
+    public static final int MAX_ROUND_LENGTH = 1 << 22;
+
+    private AtomicInteger counter = new AtomicInteger(0);
+
+    public WeightedRoundRobinLoadBalancer(final List<IProvider> providerList,
+                                          final LoadBalancerConfiguration configuration)
+    {
+        super(providerList, configuration);
+    }
+
+    /**
+     * Reject the registries where the round of all the providers (healthy or not) would be too long.
+     */
+    @Override
+    protected void checkRegistry(final ProviderRegistry registry)
+    {
+        super.checkRegistry(registry);
+        int gcd = 0;
+        for (int i = 0; i < registry.capacity(); i++)
+        {
+            if (registry.isRegistered(i))
+            {
+                gcd = getGreatestCommonDivisor(gcd, registry.getWeight(i));
+            }
+        }
+        long length = 0;
+        for (int i = 0; i < registry.capacity(); i++)
+        {
+            if (registry.isRegistered(i))
+            {
+                length += registry.getWeight(i) / gcd;
+            }
+        }
+        if (length > MAX_ROUND_LENGTH)
+        {
+            throw new IllegalArgumentException("Exceeded Maximum Total Weight of Providers");
+        }
+    }
+
+    @Override
+    protected int select(final int[] sequence)
+    {
+        return sequence[(counter.getAndIncrement() & Integer.MAX_VALUE) % sequence.length];
+    }
+
+    /**
+     * Build the sequence of provider indices of one weighted round of the healthy part of the snapshot.
+     */
+    @Override
+    protected int[] createTable(final ProviderSnapshot snapshot)
+    {
+        final ProviderRegistry registry = snapshot.getRegistry();
+        final int size = snapshot.getSize();
+        int gcd = 0;
+        for (int i = 0; i < size; i++)
+        {
+            gcd = getGreatestCommonDivisor(gcd, registry.getWeight(snapshot.getProviderIndex(i)));
+        }
+        final int[] reducedWeights = new int[size];
+        long roundLength = 0;
+        for (int i = 0; i < size; i++)
+        {
+            reducedWeights[i] = registry.getWeight(snapshot.getProviderIndex(i)) / gcd;
+            roundLength += reducedWeights[i];
+        }
+
+        final int[] picks = new int[size];
+        // ordered by eligible time picks / weight, compared as fractions
+        final PriorityQueue<Integer> pending = new PriorityQueue<>(Math.max(1, size),
+                (i, j) -> Long.compare((long) picks[i] * reducedWeights[j], (long) picks[j] * reducedWeights[i]));
+        // ordered by deadline (picks + 1) / weight, ties go to the lowest position
+        final PriorityQueue<Integer> eligible = new PriorityQueue<>(Math.max(1, size), (i, j) ->
+        {
+            final int compare = Long.compare((picks[i] + 1L) * reducedWeights[j],
+                    (picks[j] + 1L) * reducedWeights[i]);
+            return compare != 0 ? compare : Integer.compare(i, j);
+        });
+        for (int i = 0; i < size; i++)
+        {
+            pending.add(i);
+        }
+
+        final int[] sequence = new int[(int) roundLength];
+        for (int t = 0; t < sequence.length; t++)
+        {
+            // move the providers that are eligible at the virtual time t / roundLength
+            while (!pending.isEmpty()
+                    && (long) picks[pending.peek()] * roundLength <= (long) t * reducedWeights[pending.peek()])
+            {
+                eligible.add(pending.poll());
+            }
+
+            final int i = eligible.poll();
+            sequence[t] = snapshot.getProviderIndex(i);
+            picks[i]++;
+            if (picks[i] < reducedWeights[i])
+            {
+                pending.add(i);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * @return the greatest common divisor of a and b, or b if a is 0
+     */
+    private static int getGreatestCommonDivisor(int a, int b)
+    {
+        while (a != 0)
+        {
+            final int t = b % a;
+            b = a;
+            a = t;
+        }
+        return b;
+    }
+}
@@ -0,0 +1,71 @@
+package com.interview.test.providers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+public class AsyncProvider implements IAsyncProvider
+{
+    private String id;
+
+    /**
+     * Used as a proxy of some arbitrary asynchronous implementation of the check method, e.g. a request sent with a
+     * non blocking client.
+     */
+    private Supplier<CompletableFuture<Boolean>> healthChecker;
+
+    private int weight;
+
+    private String zone;
+
+    private int priority;
+
+    public AsyncProvider(String id, Supplier<CompletableFuture<Boolean>> healthChecker)
+    {
+        this(id, healthChecker, 1);
+    }
+
+    public AsyncProvider(String id, Supplier<CompletableFuture<Boolean>> healthChecker, int weight)
+    {
+        this(id, healthChecker, weight, null, 0);
+    }
+
+    public AsyncProvider(String id, Supplier<CompletableFuture<Boolean>> healthChecker, int weight,
+                         String zone, int priority)
+    {
+        this.id = id;
+        this.healthChecker = healthChecker;
+        this.weight = weight;
+        this.zone = zone;
+        this.priority = priority;
+    }
+
+    @Override
+    public String get()
+    {
+        return id;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkAsync()
+    {
+        return healthChecker.get();
+    }
+
+    @Override
+    public int getWeight()
+    {
+        return weight;
+    }
+
+    @Override
+    public String getZone()
+    {
+        return zone;
+    }
+
+    @Override
+    public int getPriority()
+    {
+        return priority;
+    }
+}
@@ -0,0 +1,121 @@
+package com.interview.test.providers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the blocking health check of a provider on an executor. Cancelling the future interrupts the check, so a
+ * check that hangs does not keep its thread once it times out.
+ */
+public class BlockingProviderAdapter implements IAsyncProvider
+{
+    private final IProvider provider;
+    private final ExecutorService executor;
+
+    public BlockingProviderAdapter(final IProvider provider, final ExecutorService executor)
+    {
+        this.provider = provider;
+        this.executor = executor;
+    }
+
+    /**
+     * @param provider
+     * @param executor runs the checks of the blocking providers
+     * @return the provider itself if its health check is non blocking, an adapter otherwise
+     */
+    public static IAsyncProvider of(final IProvider provider, final ExecutorService executor)
+    {
+        return provider instanceof IAsyncProvider ? (IAsyncProvider) provider
+                : new BlockingProviderAdapter(provider, executor);
+    }
+
+    @Override
+    public String get()
+    {
+        return provider.get();
+    }
+
+    @Override
+    public int getWeight()
+    {
+        return provider.getWeight();
+    }
+
+    @Override
+    public String getZone()
+    {
+        return provider.getZone();
+    }
+
+    @Override
+    public int getPriority()
+    {
+        return provider.getPriority();
+    }
+
+    @Override
+    public boolean check()
+    {
+        return provider.check();
+    }
+
+    /**
+     * @return
+     * @throws java.util.concurrent.RejectedExecutionException if the executor is shut down
+     */
+    @Override
+    public CompletableFuture<Boolean> checkAsync()
+    {
+        return checkAsync(() -> { }, () -> { });
+    }
+
+    /**
+     * Like checkAsync(), telling when the check starts on a thread of the executor and when it ends. A check that is
+     * cancelled before it starts ends at the cancellation and never starts; one cancelled while it runs ends when its
+     * thread leaves it, which is later if the check ignores the interruption.
+     *
+     * @param onStart
+     * @param onEnd
+     * @return
+     * @throws java.util.concurrent.RejectedExecutionException if the executor is shut down
+     */
+    public CompletableFuture<Boolean> checkAsync(final Runnable onStart, final Runnable onEnd)
+    {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        final AtomicBoolean started = new AtomicBoolean();
+        final Future<?> task = executor.submit(() ->
+        {
+            if (!started.compareAndSet(false, true))
+            {
+                return;
+            }
+            onStart.run();
+            try
+            {
+                result.complete(provider.check());
+            }
+            catch (Throwable e)
+            {
+                result.completeExceptionally(e);
+            }
+            finally
+            {
+                onEnd.run();
+            }
+        });
+        result.whenComplete((healthy, e) ->
+        {
+            if (result.isCancelled())
+            {
+                if (started.compareAndSet(false, true))
+                {
+                    onEnd.run();
+                }
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+}
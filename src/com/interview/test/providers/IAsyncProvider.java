@@ -0,0 +1,30 @@
+package com.interview.test.providers;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provider with a non blocking health check, e.g. a network probe completed by an asynchronous client. The health
+ * checker starts the checks of these providers from its own thread and only waits for the futures, so many checks
+ * can be in flight without a thread each. The blocking providers are adapted with {@link BlockingProviderAdapter}.
+ */
+public interface IAsyncProvider extends IProvider
+{
+    /**
+     * Start a health check. The check must not block the calling thread. The future may be cancelled, when the check
+     * times out or the health checks stop.
+     *
+     * @return completed with true if the provider is healthy, with false or exceptionally otherwise
+     */
+    CompletableFuture<Boolean> checkAsync();
+
+    /**
+     * Blocks until the health check completes.
+     *
+     * @return
+     */
+    @Override
+    default boolean check()
+    {
+        return Boolean.TRUE.equals(checkAsync().join());
+    }
+}
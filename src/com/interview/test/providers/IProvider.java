@@ -5,4 +5,36 @@ public interface IProvider
     String get();
 
     boolean check();
+
+    /**
+     * Relative capacity of the provider, used by the weighted load balancers. It must be positive.
+     *
+     * @return
+     */
+    default int getWeight()
+    {
+        return 1;
+    }
+
+    /**
+     * Zone (e.g. availability zone) of the provider, used by the locality aware load balancer to prefer the providers
+     * of the zone of the caller.
+     *
+     * @return the zone, or null if the provider has no zone
+     */
+    default String getZone()
+    {
+        return null;
+    }
+
+    /**
+     * Priority tier of the provider, 0 being the highest. The locality aware load balancer sends the requests to a
+     * lower tier only when no provider of the higher tiers is healthy.
+     *
+     * @return
+     */
+    default int getPriority()
+    {
+        return 0;
+    }
 }
@@ -12,10 +12,29 @@ public class Provider implements IProvider
      */
     private Supplier<Boolean> healthChecker;
 
+    private int weight;
+
+    private String zone;
+
+    private int priority;
+
     public Provider(String id, Supplier<Boolean> healthChecker)
+    {
+        this(id, healthChecker, 1);
+    }
+
+    public Provider(String id, Supplier<Boolean> healthChecker, int weight)
+    {
+        this(id, healthChecker, weight, null, 0);
+    }
+
+    public Provider(String id, Supplier<Boolean> healthChecker, int weight, String zone, int priority)
     {
         this.id = id;
         this.healthChecker = healthChecker;
+        this.weight = weight;
+        this.zone = zone;
+        this.priority = priority;
     }
 
     @Override
@@ -29,4 +48,22 @@ public class Provider implements IProvider
     {
         return healthChecker.get();
     }
+
+    @Override
+    public int getWeight()
+    {
+        return weight;
+    }
+
+    @Override
+    public String getZone()
+    {
+        return zone;
+    }
+
+    @Override
+    public int getPriority()
+    {
+        return priority;
+    }
 }
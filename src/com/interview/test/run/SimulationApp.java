@@ -0,0 +1,45 @@
+package com.interview.test.run;
+
+import com.interview.test.loadbalancers.LoadBalancerConfiguration;
+import com.interview.test.loadbalancers.LoadBalancerType;
+import com.interview.test.simulation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the load balancers on the same simulated failures: a provider with random outages, a gray failure and a
+ * slow provider among healthy ones.
+ */
+public class SimulationApp
+{
+    public static final int NUMBER_OF_PROVIDERS = 10;
+
+    public static void main(String[] args)
+    {
+        final SimulationConfiguration simulationConfiguration = new SimulationConfiguration();
+        simulationConfiguration.setDurationInSeconds(600);
+        simulationConfiguration.setRequestsPerSecond(5_000);
+        final Simulation simulation = new Simulation(simulationConfiguration);
+
+        for (LoadBalancerType type : LoadBalancerType.values())
+        {
+            final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+            loadBalancerConfiguration.setOutlierFailureRateThreshold(0.5);
+            System.out.println(type + ": " + simulation.run(type, loadBalancerConfiguration, getModels()));
+        }
+    }
+
+    private static List<ProviderModel> getModels()
+    {
+        List<ProviderModel> models = new ArrayList<>();
+        models.add(ProviderModels.randomOutages(ProviderModels.healthy(2000), 1, 60_000, 10_000));
+        models.add(ProviderModels.grayFailure(ProviderModels.healthy(2000), 120_000, 0.7));
+        models.add(ProviderModels.slow(ProviderModels.healthy(2000), 60_000, 5));
+        for (int i = 3; i < NUMBER_OF_PROVIDERS; i++)
+        {
+            models.add(ProviderModels.healthy(2000));
+        }
+        return models;
+    }
+}
@@ -0,0 +1,52 @@
+package com.interview.test.simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Behaviour of a simulated provider over the virtual time of a {@link Simulation}: whether it is up, what its health
+ * checks say and how its requests complete. The times are the nanoseconds of the virtual clock since the start of the
+ * run, and a run calls the model from one thread with times that never decrease, so a model may generate its
+ * timeline as the time advances; every run starts it again with {@link #reset()}, so the same model replays the same
+ * timeline in every run. See {@link ProviderModels} for the usual models.
+ */
+public interface ProviderModel
+{
+    /**
+     * @param time
+     * @return true if the provider serves requests at the given time; the requests sent to it while it is down fail
+     */
+    boolean isUp(long time);
+
+    /**
+     * @param time
+     * @return the result of a health check of the provider at the given time, by default whether it is up
+     */
+    default boolean passesHealthCheck(final long time)
+    {
+        return isUp(time);
+    }
+
+    /**
+     * @param time
+     * @return the probability that a request sent to the provider at the given time fails while the provider is up
+     */
+    default double getFailureRate(final long time)
+    {
+        return 0;
+    }
+
+    /**
+     * @param time
+     * @param random the random source of the run
+     * @return the latency of a request sent to the provider at the given time while it is up
+     */
+    long getLatencyInNanos(long time, SplittableRandom random);
+
+    /**
+     * Called at the start of every run: a model that generates its timeline as the time advances starts it again from
+     * time 0. By default it does nothing.
+     */
+    default void reset()
+    {
+    }
+}
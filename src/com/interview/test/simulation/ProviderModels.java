@@ -0,0 +1,216 @@
+package com.interview.test.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The provider models of the usual failures. The failure models wrap a base model (usually {@link #healthy(long)}),
+ * so they can be combined, e.g. a slow provider with random outages.
+ */
+public final class ProviderModels
+{
+    private ProviderModels()
+    {
+    }
+
+    /**
+     * @param meanLatencyInMicros
+     * @return a provider that is always up, with exponentially distributed latencies of the given mean
+     */
+    public static ProviderModel healthy(final long meanLatencyInMicros)
+    {
+        final double meanLatencyInNanos = TimeUnit.MICROSECONDS.toNanos(meanLatencyInMicros);
+        return new ProviderModel()
+        {
+            @Override
+            public boolean isUp(final long time)
+            {
+                return true;
+            }
+
+            @Override
+            public long getLatencyInNanos(final long time, final SplittableRandom random)
+            {
+                return exponential(random, meanLatencyInNanos);
+            }
+        };
+    }
+
+    /**
+     * @param base
+     * @param startInMillis
+     * @param durationInMillis
+     * @return the base provider, down during the given period
+     */
+    public static ProviderModel burstOutage(final ProviderModel base, final long startInMillis,
+                                            final long durationInMillis)
+    {
+        final long start = TimeUnit.MILLISECONDS.toNanos(startInMillis);
+        final long end = start + TimeUnit.MILLISECONDS.toNanos(durationInMillis);
+        return new Outage(base)
+        {
+            @Override
+            boolean isOut(final long time)
+            {
+                return time >= start && time < end;
+            }
+        };
+    }
+
+    /**
+     * @param base
+     * @param seed
+     * @param meanTimeBetweenFailuresInMillis
+     * @param meanTimeToRecoveryInMillis
+     * @return the base provider, down at random: the times up and down are exponentially distributed with the given
+     * means, drawn from the given seed, the same in every run
+     */
+    public static ProviderModel randomOutages(final ProviderModel base, final long seed,
+                                              final long meanTimeBetweenFailuresInMillis,
+                                              final long meanTimeToRecoveryInMillis)
+    {
+        final double meanUp = TimeUnit.MILLISECONDS.toNanos(meanTimeBetweenFailuresInMillis);
+        final double meanDown = TimeUnit.MILLISECONDS.toNanos(meanTimeToRecoveryInMillis);
+        return new Outage(base)
+        {
+            private SplittableRandom random;
+            private boolean out;
+            private long nextChange;
+
+            {
+                reset();
+            }
+
+            @Override
+            public void reset()
+            {
+                super.reset();
+                random = new SplittableRandom(seed);
+                out = false;
+                nextChange = exponential(random, meanUp);
+            }
+
+            @Override
+            boolean isOut(final long time)
+            {
+                while (time >= nextChange)
+                {
+                    out = !out;
+                    nextChange += Math.max(1, exponential(random, out ? meanDown : meanUp));
+                }
+                return out;
+            }
+        };
+    }
+
+    /**
+     * @param base
+     * @param startInMillis
+     * @param failureRate
+     * @return the base provider, failing the given fraction of its requests from the given time while it still passes
+     * its health checks
+     */
+    public static ProviderModel grayFailure(final ProviderModel base, final long startInMillis,
+                                            final double failureRate)
+    {
+        final long start = TimeUnit.MILLISECONDS.toNanos(startInMillis);
+        return new Decorator(base)
+        {
+            @Override
+            public double getFailureRate(final long time)
+            {
+                return time >= start ? Math.max(failureRate, base.getFailureRate(time)) : base.getFailureRate(time);
+            }
+        };
+    }
+
+    /**
+     * @param base
+     * @param startInMillis
+     * @param latencyFactor
+     * @return the base provider, with its latencies multiplied by the given factor from the given time
+     */
+    public static ProviderModel slow(final ProviderModel base, final long startInMillis, final double latencyFactor)
+    {
+        final long start = TimeUnit.MILLISECONDS.toNanos(startInMillis);
+        return new Decorator(base)
+        {
+            @Override
+            public long getLatencyInNanos(final long time, final SplittableRandom random)
+            {
+                final long latency = base.getLatencyInNanos(time, random);
+                return time >= start ? (long) (latency * latencyFactor) : latency;
+            }
+        };
+    }
+
+    private static long exponential(final SplittableRandom random, final double mean)
+    {
+        return (long) (-mean * Math.log(1 - random.nextDouble()));
+    }
+
+    private abstract static class Decorator implements ProviderModel
+    {
+        private final ProviderModel base;
+
+        Decorator(final ProviderModel base)
+        {
+            this.base = base;
+        }
+
+        @Override
+        public boolean isUp(final long time)
+        {
+            return base.isUp(time);
+        }
+
+        @Override
+        public boolean passesHealthCheck(final long time)
+        {
+            return base.passesHealthCheck(time);
+        }
+
+        @Override
+        public double getFailureRate(final long time)
+        {
+            return base.getFailureRate(time);
+        }
+
+        @Override
+        public long getLatencyInNanos(final long time, final SplittableRandom random)
+        {
+            return base.getLatencyInNanos(time, random);
+        }
+
+        @Override
+        public void reset()
+        {
+            base.reset();
+        }
+    }
+
+    /**
+     * The base provider, down while it is out.
+     */
+    private abstract static class Outage extends Decorator
+    {
+        Outage(final ProviderModel base)
+        {
+            super(base);
+        }
+
+        abstract boolean isOut(long time);
+
+        @Override
+        public boolean isUp(final long time)
+        {
+            return !isOut(time) && super.isUp(time);
+        }
+
+        @Override
+        public boolean passesHealthCheck(final long time)
+        {
+            return !isOut(time) && super.passesHealthCheck(time);
+        }
+    }
+}
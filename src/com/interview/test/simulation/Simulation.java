@@ -0,0 +1,388 @@
+package com.interview.test.simulation;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a load balancer through simulated traffic on a virtual clock, far faster than real time, so that the load
+ * balancers can be compared on the same failures before they are rolled out. A run is a discrete event simulation on
+ * one thread: the requests arrive as a Poisson process, acquire a lease of the load balancer and release it with the
+ * result the model of the selected provider gives (see {@link ProviderModel}); the health checks of the load balancer
+ * run every health check interval of the virtual clock through {@link LoadBalancer#checkHealth()}, and the load
+ * balancer measures the latencies, ejections and slow starts on the same clock (see {@link Ticker}).
+ * <p>
+ * The arrivals, latencies and failures are drawn from the seed of the configuration, and so are the random choices
+ * of the load balancer unless its configuration sets a {@link RandomSource}, so the runs with the same seed see the
+ * same traffic and give the same result every time, whatever the type of the load balancer.
+ */
+public final class Simulation
+{
+    public static final long DEFAULT_SEED = 42;
+    public static final int DEFAULT_DURATION_IN_SECONDS = 60;
+    public static final int DEFAULT_REQUESTS_PER_SECOND = 1000;
+    public static final int DEFAULT_HEALTH_CHECK_INTERVAL_IN_MILLIS = 1000;
+    public static final int DEFAULT_SAMPLING_INTERVAL_IN_MILLIS = 10;
+    public static final int DEFAULT_FAILURE_LATENCY_IN_MILLIS = 1;
+
+    private final long seed;
+    private final long durationInNanos;
+    private final double meanArrivalIntervalInNanos;
+    private final long healthCheckIntervalInNanos;
+    private final long samplingIntervalInNanos;
+    private final long failureLatencyInNanos;
+
+    public Simulation(final SimulationConfiguration configuration)
+    {
+        seed = Optional.ofNullable(configuration.getSeed()).orElse(DEFAULT_SEED);
+        durationInNanos = TimeUnit.SECONDS.toNanos(Optional.ofNullable(configuration.getDurationInSeconds())
+                .orElse(DEFAULT_DURATION_IN_SECONDS));
+        final int requestsPerSecond = Optional.ofNullable(configuration.getRequestsPerSecond())
+                .orElse(DEFAULT_REQUESTS_PER_SECOND);
+        healthCheckIntervalInNanos = TimeUnit.MILLISECONDS.toNanos(Optional.ofNullable(
+                configuration.getHealthCheckIntervalInMillis()).orElse(DEFAULT_HEALTH_CHECK_INTERVAL_IN_MILLIS));
+        samplingIntervalInNanos = TimeUnit.MILLISECONDS.toNanos(Optional.ofNullable(
+                configuration.getSamplingIntervalInMillis()).orElse(DEFAULT_SAMPLING_INTERVAL_IN_MILLIS));
+        failureLatencyInNanos = TimeUnit.MILLISECONDS.toNanos(Optional.ofNullable(
+                configuration.getFailureLatencyInMillis()).orElse(DEFAULT_FAILURE_LATENCY_IN_MILLIS));
+        if (durationInNanos <= 0 || requestsPerSecond <= 0 || healthCheckIntervalInNanos <= 0
+                || samplingIntervalInNanos <= 0 || failureLatencyInNanos < 0)
+        {
+            throw new IllegalArgumentException("Duration, rate and intervals must be positive and the failure latency "
+                    + "not negative");
+        }
+        meanArrivalIntervalInNanos = (double) TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+    }
+
+    /**
+     * Run the simulation with a new load balancer of the given type and configuration, with one provider per model
+     * (with the ids Provider-1, Provider-2...). The load balancer is created from a copy of the configuration with
+     * the virtual clock as its ticker; a listener already set still receives the events. The models are reset first
+     * (see {@link ProviderModel#reset()}), so the same models can be run again.
+     *
+     * @param type
+     * @param configuration the heartbeat interval must not be set, the health checks run on the virtual clock
+     * @param models
+     * @return
+     */
+    public SimulationResult run(final LoadBalancerType type, final LoadBalancerConfiguration configuration,
+                                final List<ProviderModel> models)
+    {
+        if (configuration.getHeartbeatIntervalInSeconds() != null)
+        {
+            throw new IllegalArgumentException("The heartbeat of a simulated load balancer must not be configured");
+        }
+        return new Run(models).run(type, configuration);
+    }
+
+    /**
+     * The state of one run. The times are the nanoseconds of the virtual clock since the start of the run.
+     */
+    private final class Run implements LoadBalancerListener
+    {
+        private final List<ProviderModel> models;
+        private final Map<String, Integer> providerIndices = new HashMap<>();
+        private final SplittableRandom arrivals;
+        private final SplittableRandom requests;
+        private final long randomSeed;
+        private final PriorityQueue<Completion> completions = new PriorityQueue<>();
+        private long now;
+        private long numberOfCompletions;
+        private LoadBalancerListener listener;
+
+        /**
+         * Per provider whether it was up when last observed, and whether the load balancer has it healthy.
+         */
+        private final boolean[] up;
+        private final boolean[] healthy;
+
+        /**
+         * Per provider the time it went down (up) if the load balancer has not noticed yet, -1 otherwise.
+         */
+        private final long[] downSince;
+        private final long[] upSince;
+
+        private long numberOfRequests;
+        private long rejectedRequests;
+        private long failedRequests;
+        private long requestsToDeadProviders;
+        private final long[] picks;
+        private final List<Long> detectionLatencies = new ArrayList<>();
+        private final List<Long> recoveryLatencies = new ArrayList<>();
+        private long undetectedOutages;
+        private long falseDetections;
+
+        Run(final List<ProviderModel> models)
+        {
+            this.models = models;
+            final SplittableRandom random = new SplittableRandom(seed);
+            arrivals = random.split();
+            requests = random.split();
+            randomSeed = random.split().nextLong();
+            final int size = models.size();
+            up = new boolean[size];
+            healthy = new boolean[size];
+            downSince = new long[size];
+            upSince = new long[size];
+            picks = new long[size];
+            Arrays.fill(up, true);
+            Arrays.fill(healthy, true);
+            Arrays.fill(downSince, -1);
+            Arrays.fill(upSince, -1);
+        }
+
+        SimulationResult run(final LoadBalancerType type, final LoadBalancerConfiguration configuration)
+        {
+            final List<IProvider> providerList = new ArrayList<>(models.size());
+            for (int k = 0; k < models.size(); k++)
+            {
+                final ProviderModel model = models.get(k);
+                model.reset();
+                final String id = "Provider-" + (k + 1);
+                providerIndices.put(id, k);
+                providerList.add(new Provider(id, () -> model.passesHealthCheck(now)));
+            }
+
+            final LoadBalancerConfiguration copy = new LoadBalancerConfiguration(configuration);
+            listener = configuration.getListener();
+            copy.setTicker(() -> now);
+            copy.setListener(this);
+            if (copy.getRandomSource() == null)
+            {
+                copy.setRandomSource(RandomSource.seeded(randomSeed));
+            }
+            final LoadBalancer loadBalancer = LoadBalancerBuilder.createLoadBalancer(providerList, copy, type);
+
+            try
+            {
+                simulate(loadBalancer);
+            }
+            finally
+            {
+                loadBalancer.close();
+            }
+            for (int k = 0; k < models.size(); k++)
+            {
+                if (downSince[k] >= 0)
+                {
+                    undetectedOutages++;
+                }
+            }
+            return new SimulationResult(numberOfRequests, rejectedRequests, failedRequests, requestsToDeadProviders,
+                    picks, toArray(detectionLatencies), toArray(recoveryLatencies), undetectedOutages,
+                    falseDetections);
+        }
+
+        private void simulate(final LoadBalancer loadBalancer)
+        {
+            long nextArrival = nextArrival(0);
+            long nextHealthCheck = healthCheckIntervalInNanos;
+            long nextSample = 0;
+            while (true)
+            {
+                final long nextCompletion = completions.isEmpty() ? Long.MAX_VALUE : completions.peek().time;
+                now = Math.min(Math.min(nextArrival, nextCompletion), Math.min(nextHealthCheck, nextSample));
+                if (now >= durationInNanos)
+                {
+                    return;
+                }
+                if (now == nextCompletion)
+                {
+                    completions.poll().complete();
+                }
+                else if (now == nextSample)
+                {
+                    observeProviders();
+                    nextSample += samplingIntervalInNanos;
+                }
+                else if (now == nextHealthCheck)
+                {
+                    loadBalancer.checkHealth();
+                    nextHealthCheck += healthCheckIntervalInNanos;
+                }
+                else
+                {
+                    sendRequest(loadBalancer);
+                    nextArrival = nextArrival(nextArrival);
+                }
+            }
+        }
+
+        private long nextArrival(final long previous)
+        {
+            return previous + (long) (-meanArrivalIntervalInNanos * Math.log(1 - arrivals.nextDouble()));
+        }
+
+        private void sendRequest(final LoadBalancer loadBalancer)
+        {
+            numberOfRequests++;
+            final Lease lease = loadBalancer.acquire();
+            if (!lease.isAcquired())
+            {
+                rejectedRequests++;
+                return;
+            }
+            final int k = providerIndices.get(lease.getProviderId());
+            picks[k]++;
+            final ProviderModel model = models.get(k);
+            final boolean failed;
+            final long latency;
+            if (!model.isUp(now))
+            {
+                requestsToDeadProviders++;
+                failed = true;
+                latency = failureLatencyInNanos;
+            }
+            else
+            {
+                latency = Math.max(0, model.getLatencyInNanos(now, requests));
+                failed = requests.nextDouble() < model.getFailureRate(now);
+            }
+            if (failed)
+            {
+                failedRequests++;
+            }
+            completions.add(new Completion(now + latency, numberOfCompletions++, lease, failed));
+        }
+
+        /**
+         * Find the providers that went down or up since the last observation.
+         */
+        private void observeProviders()
+        {
+            for (int k = 0; k < models.size(); k++)
+            {
+                final boolean isUp = models.get(k).isUp(now);
+                if (isUp == up[k])
+                {
+                    continue;
+                }
+                up[k] = isUp;
+                if (isUp)
+                {
+                    if (downSince[k] >= 0)
+                    {
+                        undetectedOutages++;
+                        downSince[k] = -1;
+                    }
+                    upSince[k] = healthy[k] ? -1 : now;
+                }
+                else
+                {
+                    upSince[k] = -1;
+                    downSince[k] = healthy[k] ? now : -1;
+                }
+            }
+        }
+
+        @Override
+        public void onHealthChanged(final String providerId, final boolean healthy)
+        {
+            final Integer k = providerIndices.get(providerId);
+            if (k != null)
+            {
+                this.healthy[k] = healthy;
+                if (healthy && upSince[k] >= 0)
+                {
+                    recoveryLatencies.add(now - upSince[k]);
+                    upSince[k] = -1;
+                }
+                else if (!healthy && downSince[k] >= 0)
+                {
+                    detectionLatencies.add(now - downSince[k]);
+                    downSince[k] = -1;
+                }
+                else if (!healthy && up[k])
+                {
+                    falseDetections++;
+                }
+            }
+            if (listener != null)
+            {
+                listener.onHealthChanged(providerId, healthy);
+            }
+        }
+
+        @Override
+        public void onHealthCheck(final String providerId, final boolean healthy, final long durationInNanos)
+        {
+            if (listener != null)
+            {
+                listener.onHealthCheck(providerId, healthy, durationInNanos);
+            }
+        }
+
+        @Override
+        public void onProviderRegistered(final String providerId)
+        {
+            if (listener != null)
+            {
+                listener.onProviderRegistered(providerId);
+            }
+        }
+
+        @Override
+        public void onProviderDeregistered(final String providerId)
+        {
+            if (listener != null)
+            {
+                listener.onProviderDeregistered(providerId);
+            }
+        }
+
+        @Override
+        public void onMembershipLockReleased(final long heldInNanos)
+        {
+            if (listener != null)
+            {
+                listener.onMembershipLockReleased(heldInNanos);
+            }
+        }
+    }
+
+    /**
+     * A request in flight, completed at its time; the requests completing at the same time complete in the order
+     * they were sent.
+     */
+    private static final class Completion implements Comparable<Completion>
+    {
+        private final long time;
+        private final long sequence;
+        private final Lease lease;
+        private final boolean failed;
+
+        Completion(final long time, final long sequence, final Lease lease, final boolean failed)
+        {
+            this.time = time;
+            this.sequence = sequence;
+            this.lease = lease;
+            this.failed = failed;
+        }
+
+        void complete()
+        {
+            if (failed)
+            {
+                lease.fail();
+            }
+            else
+            {
+                lease.release();
+            }
+        }
+
+        @Override
+        public int compareTo(final Completion other)
+        {
+            return time != other.time ? Long.compare(time, other.time) : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static long[] toArray(final List<Long> values)
+    {
+        return values.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,94 @@
+package com.interview.test.simulation;
+
+/**
+ * Configuration DTO of a {@link Simulation}: the workload and the clock of the runs.
+ */
+public class SimulationConfiguration
+{
+    private Long seed;
+    private Integer durationInSeconds;
+    private Integer requestsPerSecond;
+    private Integer healthCheckIntervalInMillis;
+    private Integer samplingIntervalInMillis;
+    private Integer failureLatencyInMillis;
+
+    /**
+     * Seed of the arrivals and the latencies and failures of the requests. The runs with the same seed send the
+     * requests at the same times.
+     */
+    public Long getSeed()
+    {
+        return seed;
+    }
+
+    public void setSeed(final Long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Simulated duration of a run.
+     */
+    public Integer getDurationInSeconds()
+    {
+        return durationInSeconds;
+    }
+
+    public void setDurationInSeconds(final Integer durationInSeconds)
+    {
+        this.durationInSeconds = durationInSeconds;
+    }
+
+    /**
+     * Mean rate of the requests, which arrive as a Poisson process.
+     */
+    public Integer getRequestsPerSecond()
+    {
+        return requestsPerSecond;
+    }
+
+    public void setRequestsPerSecond(final Integer requestsPerSecond)
+    {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    /**
+     * Interval of the rounds of health checks of the load balancer, on the virtual clock.
+     */
+    public Integer getHealthCheckIntervalInMillis()
+    {
+        return healthCheckIntervalInMillis;
+    }
+
+    public void setHealthCheckIntervalInMillis(final Integer healthCheckIntervalInMillis)
+    {
+        this.healthCheckIntervalInMillis = healthCheckIntervalInMillis;
+    }
+
+    /**
+     * Interval at which the providers are observed to find when they go down and up, i.e. the resolution of the
+     * detection and recovery latencies.
+     */
+    public Integer getSamplingIntervalInMillis()
+    {
+        return samplingIntervalInMillis;
+    }
+
+    public void setSamplingIntervalInMillis(final Integer samplingIntervalInMillis)
+    {
+        this.samplingIntervalInMillis = samplingIntervalInMillis;
+    }
+
+    /**
+     * Latency of the requests sent to a provider that is down, e.g. the time to have the connection refused.
+     */
+    public Integer getFailureLatencyInMillis()
+    {
+        return failureLatencyInMillis;
+    }
+
+    public void setFailureLatencyInMillis(final Integer failureLatencyInMillis)
+    {
+        this.failureLatencyInMillis = failureLatencyInMillis;
+    }
+}
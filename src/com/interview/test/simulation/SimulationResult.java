@@ -0,0 +1,163 @@
+package com.interview.test.simulation;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a run of a {@link Simulation} observed: the requests and where they went, and how long the load balancer took
+ * to notice that the providers went down (detection) and came back (recovery).
+ */
+public final class SimulationResult
+{
+    private final long requests;
+    private final long rejectedRequests;
+    private final long failedRequests;
+    private final long requestsToDeadProviders;
+    private final long[] picks;
+    private final long[] detectionLatencies;
+    private final long[] recoveryLatencies;
+    private final long undetectedOutages;
+    private final long falseDetections;
+
+    SimulationResult(final long requests, final long rejectedRequests, final long failedRequests,
+                     final long requestsToDeadProviders, final long[] picks, final long[] detectionLatencies,
+                     final long[] recoveryLatencies, final long undetectedOutages, final long falseDetections)
+    {
+        this.requests = requests;
+        this.rejectedRequests = rejectedRequests;
+        this.failedRequests = failedRequests;
+        this.requestsToDeadProviders = requestsToDeadProviders;
+        this.picks = picks;
+        this.detectionLatencies = detectionLatencies;
+        this.recoveryLatencies = recoveryLatencies;
+        this.undetectedOutages = undetectedOutages;
+        this.falseDetections = falseDetections;
+        Arrays.sort(detectionLatencies);
+        Arrays.sort(recoveryLatencies);
+    }
+
+    public long getRequests()
+    {
+        return requests;
+    }
+
+    /**
+     * @return the requests for which no provider could be acquired
+     */
+    public long getRejectedRequests()
+    {
+        return rejectedRequests;
+    }
+
+    /**
+     * @return the requests sent to a provider that failed, including the requests to dead providers
+     */
+    public long getFailedRequests()
+    {
+        return failedRequests;
+    }
+
+    /**
+     * @return the requests sent to a provider that was down
+     */
+    public long getRequestsToDeadProviders()
+    {
+        return requestsToDeadProviders;
+    }
+
+    /**
+     * @param provider index of the provider in the models of the run
+     * @return the requests sent to the provider
+     */
+    public long getPicks(final int provider)
+    {
+        return picks[provider];
+    }
+
+    /**
+     * @return the requests of the most loaded provider over the mean requests per provider, 1 if the load is even
+     */
+    public double getLoadSkew()
+    {
+        final long total = Arrays.stream(picks).sum();
+        return total == 0 ? 1 : (double) Arrays.stream(picks).max().getAsLong() * picks.length / total;
+    }
+
+    /**
+     * @return the outages the load balancer detected
+     */
+    public int getDetections()
+    {
+        return detectionLatencies.length;
+    }
+
+    public double getMeanDetectionLatencyInMillis()
+    {
+        return mean(detectionLatencies);
+    }
+
+    public double getMaxDetectionLatencyInMillis()
+    {
+        return max(detectionLatencies);
+    }
+
+    /**
+     * @return the recoveries the load balancer detected
+     */
+    public int getRecoveries()
+    {
+        return recoveryLatencies.length;
+    }
+
+    public double getMeanRecoveryLatencyInMillis()
+    {
+        return mean(recoveryLatencies);
+    }
+
+    public double getMaxRecoveryLatencyInMillis()
+    {
+        return max(recoveryLatencies);
+    }
+
+    /**
+     * @return the outages that ended before the load balancer marked the provider unhealthy
+     */
+    public long getUndetectedOutages()
+    {
+        return undetectedOutages;
+    }
+
+    /**
+     * @return the times the load balancer marked a provider that was up unhealthy, e.g. an ejection of a gray failure
+     */
+    public long getFalseDetections()
+    {
+        return falseDetections;
+    }
+
+    private static double mean(final long[] latencies)
+    {
+        return latencies.length == 0 ? 0 : toMillis(Arrays.stream(latencies).sum()) / latencies.length;
+    }
+
+    private static double max(final long[] latencies)
+    {
+        return latencies.length == 0 ? 0 : toMillis(latencies[latencies.length - 1]);
+    }
+
+    private static double toMillis(final long nanos)
+    {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("requests=%d rejected=%d failed=%d toDeadProviders=%d loadSkew=%.3f "
+                        + "detections=%d (mean %.1f ms, max %.1f ms) recoveries=%d (mean %.1f ms, max %.1f ms) "
+                        + "undetectedOutages=%d falseDetections=%d", requests, rejectedRequests, failedRequests,
+                requestsToDeadProviders, getLoadSkew(), getDetections(), getMeanDetectionLatencyInMillis(),
+                getMaxDetectionLatencyInMillis(), getRecoveries(), getMeanRecoveryLatencyInMillis(),
+                getMaxRecoveryLatencyInMillis(), undetectedOutages, falseDetections);
+    }
+}
@@ -0,0 +1,216 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class AdmissionControlTest
+{
+    public static void main(String[] args) throws InterruptedException
+    {
+        testPermitsPerProvider();
+        testWaitForPermit();
+        testWaitingRequestsAreBounded();
+        testAimdLimit();
+        testGradientLimit();
+
+        System.out.println("Admission Control : Basic Tests Pasted");
+    }
+
+    private static void testPermitsPerProvider()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMaxNumberOfConcurrentRequests(3);
+        LoadBalancer loadBalancer = createLoadBalancer(2, loadBalancerConfiguration);
+
+        Map<String, Integer> counts = new HashMap<>();
+        List<Lease> leases = acquireAll(loadBalancer);
+        leases.forEach(lease -> counts.merge(lease.getProviderId(), 1, Integer::sum));
+        if (leases.size() != 6 || counts.get("Provider-1") != 3 || counts.get("Provider-2") != 3)
+        {
+            throw new RuntimeException("Permits not Working: " + counts);
+        }
+
+        // get() holds no permit
+        if (loadBalancer.get().equals(LoadBalancer.ERROR_MESSAGE))
+        {
+            throw new RuntimeException("Permits limit get()");
+        }
+
+        // a released permit goes to the next request, even if round robin selects the full provider first
+        leases.get(0).release();
+        Lease lease = loadBalancer.acquire();
+        if (!lease.getProviderId().equals(leases.get(0).getProviderId()) || loadBalancer.acquire().isAcquired())
+        {
+            throw new RuntimeException("Permits not released");
+        }
+    }
+
+    private static void testWaitForPermit() throws InterruptedException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMaxNumberOfConcurrentRequests(1);
+        LoadBalancer loadBalancer = createLoadBalancer(1, loadBalancerConfiguration);
+
+        final Lease first = loadBalancer.acquire();
+        long start = System.nanoTime();
+        if (loadBalancer.acquire(50, TimeUnit.MILLISECONDS).isAcquired()
+                || System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50))
+        {
+            throw new RuntimeException("Wait for permit does not time out");
+        }
+
+        Thread releaser = new Thread(() ->
+        {
+            sleep(100);
+            first.release();
+        });
+        releaser.start();
+        start = System.nanoTime();
+        Lease second = loadBalancer.acquire(10, TimeUnit.SECONDS);
+        if (!second.isAcquired() || System.nanoTime() - start > TimeUnit.SECONDS.toNanos(5))
+        {
+            throw new RuntimeException("Wait for permit not Working");
+        }
+        releaser.join();
+    }
+
+    private static void testWaitingRequestsAreBounded()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMaxNumberOfConcurrentRequests(1);
+        loadBalancerConfiguration.setMaxNumberOfWaitingRequests(0);
+        LoadBalancer loadBalancer = createLoadBalancer(1, loadBalancerConfiguration);
+
+        loadBalancer.acquire();
+        final long start = System.nanoTime();
+        if (loadBalancer.acquire(10, TimeUnit.SECONDS).isAcquired()
+                || System.nanoTime() - start > TimeUnit.SECONDS.toNanos(5))
+        {
+            throw new RuntimeException("Waiting requests not bounded");
+        }
+    }
+
+    private static void testAimdLimit()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMaxNumberOfConcurrentRequests(100);
+        loadBalancerConfiguration.setConcurrencyLimitAlgorithm(ConcurrencyLimitAlgorithm.Aimd);
+        loadBalancerConfiguration.setInitialConcurrencyLimit(10);
+        LoadBalancer loadBalancer = createLoadBalancer(1, loadBalancerConfiguration);
+
+        List<Lease> leases = acquireAll(loadBalancer);
+        if (leases.size() != 10)
+        {
+            throw new RuntimeException("AIMD initial limit not Working");
+        }
+
+        // ten drops: 10 * 0.9^10 = 3.5
+        leases.forEach(Lease::drop);
+        leases = acquireAll(loadBalancer);
+        if (leases.size() != 3)
+        {
+            throw new RuntimeException("AIMD decrease not Working: " + leases.size());
+        }
+
+        // the releases of a round of requests at the limit add about half a permit
+        for (int i = 0; i < 20; i++)
+        {
+            leases.forEach(Lease::release);
+            leases = acquireAll(loadBalancer);
+        }
+        final int increased = leases.size();
+        if (increased < 8 || increased > 15)
+        {
+            throw new RuntimeException("AIMD increase not Working: " + increased);
+        }
+
+        // requests far under the limit do not raise it
+        leases.forEach(Lease::release);
+        for (int i = 0; i < 1000; i++)
+        {
+            loadBalancer.acquire().release();
+        }
+        if (acquireAll(loadBalancer).size() != increased)
+        {
+            throw new RuntimeException("AIMD increase not Working: idle provider");
+        }
+    }
+
+    private static void testGradientLimit()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMaxNumberOfConcurrentRequests(100);
+        loadBalancerConfiguration.setConcurrencyLimitAlgorithm(ConcurrencyLimitAlgorithm.Gradient);
+        LoadBalancer loadBalancer = createLoadBalancer(1, loadBalancerConfiguration);
+
+        // steady latencies at the limit: the limit grows. The latencies are long enough for the scheduling jitter to
+        // stay within the tolerance of the gradient
+        List<Lease> leases = acquireAll(loadBalancer);
+        for (int i = 0; i < 20; i++)
+        {
+            sleep(10);
+            leases.forEach(Lease::release);
+            leases = acquireAll(loadBalancer);
+        }
+        final int grown = leases.size();
+        // the default initial limit is 20
+        if (grown <= 20)
+        {
+            throw new RuntimeException("Gradient increase not Working: " + grown);
+        }
+
+        // the provider starts queueing: the latencies rise and the limit shrinks, before the long term latency
+        // catches up
+        sleep(100);
+        leases.forEach(Lease::release);
+        leases = acquireAll(loadBalancer);
+        if (leases.size() > grown / 2)
+        {
+            throw new RuntimeException("Gradient decrease not Working: " + grown + " " + leases.size());
+        }
+    }
+
+    /**
+     * @return the leases acquired until the provider had no permits left
+     */
+    private static List<Lease> acquireAll(final LoadBalancer loadBalancer)
+    {
+        List<Lease> leases = new ArrayList<>();
+        for (Lease lease = loadBalancer.acquire(); lease.isAcquired(); lease = loadBalancer.acquire())
+        {
+            leases.add(lease);
+        }
+        return leases;
+    }
+
+    private static void sleep(final long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static LoadBalancer createLoadBalancer(final int size,
+                                                   final LoadBalancerConfiguration loadBalancerConfiguration)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        return LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration,
+                LoadBalancerType.RoundRobin);
+    }
+}
@@ -0,0 +1,205 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.AsyncProvider;
+import com.interview.test.providers.BlockingProviderAdapter;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+public class AsyncHealthCheckTest
+{
+    public static void main(String[] args) throws InterruptedException
+    {
+        testManyChecksInFlight();
+        testFailingAsyncChecks();
+        testAdapterInterruptsCancelledCheck();
+        testAdapterForwardsProvider();
+        testAsyncProviderZoneAndPriority();
+
+        System.out.println("Async Health Checks : Basic Tests Pasted");
+    }
+
+    /**
+     * 10000 checks of 300 milliseconds each with a single health check thread: only the non blocking checks fit in
+     * the round.
+     */
+    private static void testManyChecksInFlight() throws InterruptedException
+    {
+        final int size = 10_000;
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckTimeoutInMillis(800);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+        loadBalancerConfiguration.setNumberOfHealthCheckThreads(1);
+
+        final ScheduledExecutorService network = Executors.newSingleThreadScheduledExecutor();
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            final boolean healthy = i % 2 == 0;
+            providerList.add(new AsyncProvider("Provider-" + i, () ->
+            {
+                CompletableFuture<Boolean> check = new CompletableFuture<>();
+                network.schedule(() -> check.complete(healthy), 300, TimeUnit.MILLISECONDS);
+                return check;
+            }));
+        }
+
+        try (LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(providerList, loadBalancerConfiguration, LoadBalancerType.RoundRobin))
+        {
+            // the first round starts at once and its checks complete together
+            Thread.sleep(700);
+
+            Set<String> ids = new HashSet<>();
+            for (int i = 0; i < 2 * size; i++)
+            {
+                ids.add(loadBalancer.get());
+            }
+            if (ids.size() != size / 2 || ids.stream().anyMatch(id -> Integer.parseInt(id.substring(9)) % 2 != 0))
+            {
+                throw new RuntimeException("Async health checks not Working: " + ids.size());
+            }
+        }
+        finally
+        {
+            network.shutdownNow();
+        }
+    }
+
+    private static void testFailingAsyncChecks() throws InterruptedException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckTimeoutInMillis(100);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+
+        List<IProvider> providerList = new ArrayList<>();
+        providerList.add(new AsyncProvider("Provider-1", () ->
+        {
+            throw new IllegalStateException("Connection refused");
+        }));
+        providerList.add(new AsyncProvider("Provider-2", () ->
+        {
+            CompletableFuture<Boolean> check = new CompletableFuture<>();
+            check.completeExceptionally(new IllegalStateException("Connection reset"));
+            return check;
+        }));
+        providerList.add(new AsyncProvider("Provider-3", CompletableFuture::new));
+        providerList.add(new AsyncProvider("Provider-4", () -> CompletableFuture.completedFuture(true)));
+        providerList.add(new Provider("Provider-5", () -> true));
+
+        try (LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(providerList, loadBalancerConfiguration, LoadBalancerType.RoundRobin))
+        {
+            Thread.sleep(500);
+
+            Set<String> ids = new HashSet<>();
+            for (int i = 0; i < 100; i++)
+            {
+                ids.add(loadBalancer.get());
+            }
+            if (ids.size() != 2 || !ids.contains("Provider-4") || !ids.contains("Provider-5"))
+            {
+                throw new RuntimeException("Async health checks not Working: " + ids);
+            }
+        }
+    }
+
+    private static void testAdapterInterruptsCancelledCheck() throws InterruptedException
+    {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            CompletableFuture<Boolean> check = BlockingProviderAdapter.of(new Provider("Provider-1", () ->
+            {
+                started.countDown();
+                try
+                {
+                    Thread.sleep(Long.MAX_VALUE);
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted.countDown();
+                }
+                return true;
+            }), executor).checkAsync();
+
+            started.await();
+            check.cancel(true);
+            if (!interrupted.await(5, TimeUnit.SECONDS))
+            {
+                throw new RuntimeException("Cancelled blocking check not interrupted");
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void testAdapterForwardsProvider()
+    {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            final IProvider adapter = BlockingProviderAdapter.of(new Provider("Provider-1", () -> true, 3, "zone-b",
+                    2), executor);
+            if (!adapter.get().equals("Provider-1") || adapter.getWeight() != 3 || !"zone-b".equals(adapter.getZone())
+                    || adapter.getPriority() != 2)
+            {
+                throw new RuntimeException("Adapter does not forward the provider");
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void testAsyncProviderZoneAndPriority()
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        providerList.add(new AsyncProvider("a-1", () -> CompletableFuture.completedFuture(true), 1, "zone-a", 0));
+        providerList.add(new AsyncProvider("b-1", () -> CompletableFuture.completedFuture(true), 1, "zone-b", 0));
+        providerList.add(new AsyncProvider("a-backup", () -> CompletableFuture.completedFuture(true), 1, "zone-a", 1));
+
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setLocalZone("zone-a");
+        LoadBalancer loadBalancer = LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration,
+                LoadBalancerType.LocalityAware);
+
+        // the local zone only, then the lower tier once the first one has no healthy provider
+        Set<String> picks = route(loadBalancer);
+        if (picks.size() != 1 || !picks.contains("a-1"))
+        {
+            throw new RuntimeException("Async provider zone not used: " + picks);
+        }
+        loadBalancer.removeProvider("a-1");
+        loadBalancer.removeProvider("b-1");
+        picks = route(loadBalancer);
+        if (picks.size() != 1 || !picks.contains("a-backup"))
+        {
+            throw new RuntimeException("Async provider priority not used: " + picks);
+        }
+        loadBalancer.close();
+    }
+
+    private static Set<String> route(final LoadBalancer loadBalancer)
+    {
+        Set<String> picks = new HashSet<>();
+        for (int i = 0; i < 1000; i++)
+        {
+            picks.add(loadBalancer.get());
+        }
+        return picks;
+    }
+}
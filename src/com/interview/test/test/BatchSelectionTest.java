@@ -0,0 +1,136 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BatchSelectionTest
+{
+    private static final int BATCH_SIZE = 16;
+
+    public static void main(String[] args)
+    {
+        testRoundRobinBatches();
+        testBatchesOfEveryType();
+        testNoProvider();
+
+        System.out.println("Batch Selection : Basic Tests Pasted");
+    }
+
+    private static void testRoundRobinBatches()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMetricsEnabled(true);
+        for (LoadBalancerType type : new LoadBalancerType[]{LoadBalancerType.RoundRobin,
+                LoadBalancerType.StripedRoundRobin})
+        {
+            LoadBalancer loadBalancer = createLoadBalancer(5, loadBalancerConfiguration, type);
+            final int[] handles = new int[BATCH_SIZE];
+
+            // a batch continues the sequence of the single selections
+            final int first = loadBalancer.select();
+            if (loadBalancer.select(handles, 7) != 7)
+            {
+                throw new RuntimeException("Batch not filled");
+            }
+            int previous = first;
+            for (int k = 0; k < 7; k++)
+            {
+                final int position = index(loadBalancer, handles[k]);
+                if (position != (index(loadBalancer, previous) + 1) % 5)
+                {
+                    throw new RuntimeException(type + " batch out of sequence at " + k);
+                }
+                previous = handles[k];
+            }
+            if (index(loadBalancer, loadBalancer.select()) != (index(loadBalancer, previous) + 1) % 5)
+            {
+                throw new RuntimeException(type + " sequence not continued after the batch");
+            }
+
+            // and is counted once per provider
+            if (loadBalancer.getMetrics().getPicks() != 9)
+            {
+                throw new RuntimeException("Batch picks not counted: " + loadBalancer.getMetrics().getPicks());
+            }
+            loadBalancer.close();
+        }
+    }
+
+    private static void testBatchesOfEveryType()
+    {
+        for (LoadBalancerType type : LoadBalancerType.values())
+        {
+            LoadBalancer loadBalancer = createLoadBalancer(4, new LoadBalancerConfiguration(), type);
+            loadBalancer.removeProvider("Provider-2");
+            final int[] handles = new int[BATCH_SIZE];
+            final Map<String, Integer> picks = new HashMap<>();
+            for (int i = 0; i < 1000; i++)
+            {
+                final int count = loadBalancer.select(handles, BATCH_SIZE);
+                for (int k = 0; k < count; k++)
+                {
+                    picks.merge(loadBalancer.getProvider(handles[k]).get(), 1, Integer::sum);
+                }
+            }
+            final int total = picks.values().stream().mapToInt(Integer::intValue).sum();
+            if (total != 1000 * BATCH_SIZE || picks.containsKey("Provider-2"))
+            {
+                throw new RuntimeException(type + " batches not Working: " + picks);
+            }
+            if (picks.size() != 3)
+            {
+                throw new RuntimeException(type + " batches do not spread: " + picks);
+            }
+            loadBalancer.close();
+        }
+    }
+
+    private static void testNoProvider()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMetricsEnabled(true);
+        LoadBalancer loadBalancer = createLoadBalancer(1, loadBalancerConfiguration, LoadBalancerType.RoundRobin);
+        loadBalancer.removeProvider("Provider-1");
+        if (loadBalancer.select(new int[BATCH_SIZE], BATCH_SIZE) != 0
+                || loadBalancer.getMetrics().getRejections() != BATCH_SIZE)
+        {
+            throw new RuntimeException("Batch without provider not rejected");
+        }
+        try
+        {
+            loadBalancer.select(new int[1], 2);
+            throw new RuntimeException("Batch larger than the array");
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            // expected
+        }
+        loadBalancer.close();
+    }
+
+    /**
+     * @return the position of the provider of the handle in the registration order
+     */
+    private static int index(final LoadBalancer loadBalancer, final int handle)
+    {
+        return Integer.parseInt(loadBalancer.getProvider(handle).get().substring("Provider-".length())) - 1;
+    }
+
+    private static LoadBalancer createLoadBalancer(final int size,
+                                                   final LoadBalancerConfiguration loadBalancerConfiguration,
+                                                   final LoadBalancerType type)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        return LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration, type);
+    }
+}
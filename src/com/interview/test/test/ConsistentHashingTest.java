@@ -0,0 +1,175 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class ConsistentHashingTest
+{
+    private static final int NUMBER_OF_KEYS = 10_000;
+
+    public static void main(String[] args)
+    {
+        for (LoadBalancerType type : new LoadBalancerType[]{LoadBalancerType.RingHash, LoadBalancerType.Maglev})
+        {
+            testKeysAreSpreadAndSticky(type);
+            testRemovedProviderMovesOnlyItsKeys(type);
+            testRegisteredProviderTakesItsShare(type);
+            testBoundedLoads(type);
+            testBoundedLoadsProbeFewSlots(type);
+        }
+
+        System.out.println("Consistent Hashing : Basic Tests Pasted");
+    }
+
+    private static void testKeysAreSpreadAndSticky(final LoadBalancerType type)
+    {
+        int size = 7;
+        LoadBalancer loadBalancer = createLoadBalancer(type, size, new LoadBalancerConfiguration());
+
+        Map<String, String> providers = route(loadBalancer);
+        if (!providers.equals(route(loadBalancer)))
+        {
+            throw new RuntimeException(type + " Load Balancer not sticky");
+        }
+
+        Map<String, Integer> counts = new HashMap<>();
+        providers.values().forEach(id -> counts.merge(id, 1, Integer::sum));
+        for (int count : counts.values())
+        {
+            if (counts.size() != size || Math.abs(count - NUMBER_OF_KEYS / size) > NUMBER_OF_KEYS / size / 4)
+            {
+                throw new RuntimeException(type + " Load Balancer does not spread the keys: " + counts);
+            }
+        }
+    }
+
+    private static void testRemovedProviderMovesOnlyItsKeys(final LoadBalancerType type)
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(type, 7, new LoadBalancerConfiguration());
+        Map<String, String> before = route(loadBalancer);
+
+        loadBalancer.removeProvider("Provider-3");
+        Map<String, String> after = route(loadBalancer);
+        for (Map.Entry<String, String> entry : before.entrySet())
+        {
+            final String provider = after.get(entry.getKey());
+            if (provider.equals("Provider-3")
+                    || (!entry.getValue().equals("Provider-3") && !provider.equals(entry.getValue())))
+            {
+                throw new RuntimeException(type + " Load Balancer moves keys of other providers");
+            }
+        }
+
+        loadBalancer.addProvider("Provider-3");
+        if (!before.equals(route(loadBalancer)))
+        {
+            throw new RuntimeException(type + " Load Balancer does not restore the keys of an added provider");
+        }
+    }
+
+    private static void testRegisteredProviderTakesItsShare(final LoadBalancerType type)
+    {
+        int size = 7;
+        LoadBalancer loadBalancer = createLoadBalancer(type, size, new LoadBalancerConfiguration());
+        Map<String, String> before = route(loadBalancer);
+
+        loadBalancer.registerProvider(new Provider("Provider-8", () -> true));
+        Map<String, String> after = route(loadBalancer);
+        int moved = 0;
+        for (Map.Entry<String, String> entry : before.entrySet())
+        {
+            if (!entry.getValue().equals(after.get(entry.getKey())))
+            {
+                moved++;
+            }
+        }
+        // ideally a eighth of the keys move, all to the new provider; Maglev moves a few more
+        final int share = NUMBER_OF_KEYS / (size + 1);
+        final long taken = after.values().stream().filter("Provider-8"::equals).count();
+        if (Math.abs(taken - share) > share / 4 || moved > share * 3 / 2)
+        {
+            throw new RuntimeException(type + " Load Balancer moves too many keys: " + moved + " " + taken);
+        }
+    }
+
+    private static void testBoundedLoads(final LoadBalancerType type)
+    {
+        int size = 4;
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHashLoadFactor(1.25);
+        LoadBalancer loadBalancer = createLoadBalancer(type, size, loadBalancerConfiguration);
+
+        // a single hot key
+        Map<String, Integer> counts = new HashMap<>();
+        List<Lease> leases = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+        {
+            Lease lease = loadBalancer.acquire("hot-key");
+            counts.merge(lease.getProviderId(), 1, Integer::sum);
+            leases.add(lease);
+        }
+        if (counts.values().stream().anyMatch(count -> count > 32))
+        {
+            throw new RuntimeException(type + " Load Balancer does not bound the loads: " + counts);
+        }
+
+        // once released the key goes back to its provider
+        leases.forEach(Lease::release);
+        if (!loadBalancer.get("hot-key").equals(loadBalancer.acquire("hot-key").getProviderId()))
+        {
+            throw new RuntimeException(type + " Load Balancer not sticky with bounded loads");
+        }
+    }
+
+    private static void testBoundedLoadsProbeFewSlots(final LoadBalancerType type)
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHashLoadFactor(1.25);
+        LoadBalancer loadBalancer = createLoadBalancer(type, 1000, loadBalancerConfiguration);
+        route(loadBalancer);
+
+        // walking the whole table costs about a millisecond per call with 1000 providers
+        final long start = System.nanoTime();
+        route(loadBalancer);
+        List<Lease> leases = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            leases.add(loadBalancer.acquire(i % 2 == 0 ? "hot-key" : "key-" + i));
+        }
+        final long elapsed = System.nanoTime() - start;
+        if (elapsed > TimeUnit.SECONDS.toNanos(2) || leases.stream().anyMatch(lease -> !lease.isAcquired()))
+        {
+            throw new RuntimeException(type + " Load Balancer probes too many slots: "
+                    + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+        }
+        leases.forEach(Lease::release);
+    }
+
+    private static Map<String, String> route(final LoadBalancer loadBalancer)
+    {
+        Map<String, String> providers = new HashMap<>();
+        for (int i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            providers.put("key-" + i, loadBalancer.get("key-" + i));
+        }
+        return providers;
+    }
+
+    private static LoadBalancer createLoadBalancer(final LoadBalancerType type, final int size,
+                                                   final LoadBalancerConfiguration loadBalancerConfiguration)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        return LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration, type);
+    }
+}
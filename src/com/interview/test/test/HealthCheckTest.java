@@ -0,0 +1,332 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HealthCheckTest
+{
+    public static void main(String[] args) throws InterruptedException
+    {
+        testHangingAndFailingProvidersAreRemoved();
+        testCloseStopsHealthChecks();
+        testConcurrentRounds();
+        testQueuedChecksAreNotFailures();
+        testUninterruptibleCheckHoldsOneThread();
+        testFailingRoundKeepsHeartbeat();
+        testEveryProviderChecked();
+
+        System.out.println("Health Checks : Basic Tests Pasted");
+    }
+
+    private static void testHangingAndFailingProvidersAreRemoved() throws InterruptedException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckTimeoutInMillis(100);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+
+        List<IProvider> providerList = new ArrayList<>();
+        providerList.add(new Provider("Provider-1", HealthCheckTest::hang));
+        providerList.add(new Provider("Provider-2", () ->
+        {
+            throw new IllegalStateException("Connection refused");
+        }));
+        for (int i = 3; i <= 7; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+
+        try (LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(providerList, loadBalancerConfiguration, LoadBalancerType.RoundRobin))
+        {
+            // the first round starts at once and ends after the timeout
+            Thread.sleep(500);
+
+            Set<String> ids = new HashSet<>();
+            for (int i = 0; i < 100; i++)
+            {
+                ids.add(loadBalancer.get());
+            }
+            if (ids.size() != 5 || ids.contains("Provider-1") || ids.contains("Provider-2"))
+            {
+                throw new RuntimeException("Health checks not Working: " + ids);
+            }
+        }
+    }
+
+    private static void testCloseStopsHealthChecks() throws InterruptedException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+
+        AtomicInteger numberOfChecks = new AtomicInteger();
+        List<IProvider> providerList = new ArrayList<>();
+        providerList.add(new Provider("Provider-1", () -> numberOfChecks.incrementAndGet() > 0));
+
+        LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(providerList, loadBalancerConfiguration, LoadBalancerType.RoundRobin);
+        Thread.sleep(200);
+        loadBalancer.close();
+
+        final int checksBeforeClose = numberOfChecks.get();
+        Thread.sleep(1500);
+        if (checksBeforeClose != 1 || numberOfChecks.get() != checksBeforeClose)
+        {
+            throw new RuntimeException("Closing the load balancer does not stop the health checks");
+        }
+    }
+
+    private static void testConcurrentRounds() throws InterruptedException
+    {
+        final AtomicBoolean healthy = new AtomicBoolean(false);
+        List<IProvider> providerList = new ArrayList<>();
+        providerList.add(new Provider("Provider-1", healthy::get));
+        for (int i = 2; i <= 4; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        LoadBalancer loadBalancer = LoadBalancerBuilder.createLoadBalancer(providerList,
+                new LoadBalancerConfiguration(), LoadBalancerType.RoundRobin);
+
+        // the rounds of several threads update the states of the providers without locks
+        checkHealthConcurrently(loadBalancer);
+        if (route(loadBalancer).contains("Provider-1"))
+        {
+            throw new RuntimeException("Concurrent rounds not Working: failing provider kept");
+        }
+        healthy.set(true);
+        checkHealthConcurrently(loadBalancer);
+        if (!route(loadBalancer).contains("Provider-1"))
+        {
+            throw new RuntimeException("Concurrent rounds not Working: recovered provider not added");
+        }
+        healthy.set(false);
+        loadBalancer.checkHealth();
+        if (route(loadBalancer).contains("Provider-1") || route(loadBalancer).size() != 3)
+        {
+            throw new RuntimeException("Concurrent rounds not Working: failing provider kept");
+        }
+        loadBalancer.close();
+    }
+
+    /**
+     * 20 checks of 60 milliseconds on one thread: the round lasts longer than the timeout, and than the interval.
+     */
+    private static void testQueuedChecksAreNotFailures() throws InterruptedException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckTimeoutInMillis(100);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+        loadBalancerConfiguration.setNumberOfHealthCheckThreads(1);
+
+        final AtomicInteger numberOfChecks = new AtomicInteger();
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= 20; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () ->
+            {
+                numberOfChecks.incrementAndGet();
+                return sleep(60);
+            }));
+        }
+        try (LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(providerList, loadBalancerConfiguration, LoadBalancerType.RoundRobin))
+        {
+            Thread.sleep(2500);
+            if (route(loadBalancer).size() != 20 || numberOfChecks.get() < 20)
+            {
+                throw new RuntimeException("Queued health checks counted as failures: " + route(loadBalancer).size()
+                        + " healthy after " + numberOfChecks.get() + " checks");
+            }
+        }
+    }
+
+    private static void testUninterruptibleCheckHoldsOneThread() throws InterruptedException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckTimeoutInMillis(100);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+        loadBalancerConfiguration.setNumberOfHealthCheckThreads(2);
+
+        final CountDownLatch hung = new CountDownLatch(1);
+        final AtomicInteger numberOfHungChecks = new AtomicInteger();
+        final AtomicInteger numberOfChecks = new AtomicInteger();
+        List<IProvider> providerList = new ArrayList<>();
+        providerList.add(new Provider("Provider-1", () ->
+        {
+            numberOfHungChecks.incrementAndGet();
+            awaitUninterruptibly(hung);
+            return true;
+        }));
+        providerList.add(new Provider("Provider-2", () -> numberOfChecks.incrementAndGet() > 0));
+        try (LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(providerList, loadBalancerConfiguration, LoadBalancerType.RoundRobin))
+        {
+            Thread.sleep(3500);
+            if (numberOfHungChecks.get() != 1 || numberOfChecks.get() < 3
+                    || !route(loadBalancer).equals(Collections.singleton("Provider-2")))
+            {
+                throw new RuntimeException("Hung health check not Working: " + numberOfHungChecks.get() + " / "
+                        + numberOfChecks.get());
+            }
+        }
+        finally
+        {
+            hung.countDown();
+        }
+    }
+
+    /**
+     * A listener that throws on the first health change: the rounds go on.
+     */
+    private static void testFailingRoundKeepsHeartbeat() throws InterruptedException
+    {
+        final AtomicBoolean thrown = new AtomicBoolean();
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+        loadBalancerConfiguration.setListener(new LoadBalancerListener()
+        {
+            @Override
+            public void onHealthChanged(final String providerId, final boolean healthy)
+            {
+                if (thrown.compareAndSet(false, true))
+                {
+                    throw new IllegalStateException("Listener failed");
+                }
+            }
+        });
+
+        final AtomicBoolean healthy = new AtomicBoolean(false);
+        final AtomicInteger numberOfChecks = new AtomicInteger();
+        List<IProvider> providerList = new ArrayList<>();
+        providerList.add(new Provider("Provider-1", () -> numberOfChecks.incrementAndGet() > 0 && healthy.get()));
+        providerList.add(new Provider("Provider-2", () -> true));
+        LoadBalancer loadBalancer = LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration,
+                LoadBalancerType.RoundRobin);
+
+        Thread.sleep(500);
+        if (!thrown.get() || route(loadBalancer).contains("Provider-1"))
+        {
+            throw new RuntimeException("Failing provider not removed");
+        }
+        healthy.set(true);
+        Thread.sleep(2000);
+        if (numberOfChecks.get() < 3 || !route(loadBalancer).contains("Provider-1"))
+        {
+            throw new RuntimeException("Heartbeat stopped by a failing round: " + numberOfChecks.get());
+        }
+        loadBalancer.close();
+    }
+
+    /**
+     * 8 checks of 300 milliseconds on one thread: about 3 start per interval, the others are cancelled. The last
+     * provider is down and is still found.
+     */
+    private static void testEveryProviderChecked() throws InterruptedException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckTimeoutInMillis(500);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+        loadBalancerConfiguration.setNumberOfHealthCheckThreads(1);
+
+        final Set<String> checked = Collections.synchronizedSet(new HashSet<>());
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= 8; i++)
+        {
+            final String id = "Provider-" + i;
+            providerList.add(new Provider(id, () ->
+            {
+                checked.add(id);
+                return sleep(300) && !id.equals("Provider-8");
+            }));
+        }
+        LoadBalancer loadBalancer = LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration,
+                LoadBalancerType.RoundRobin);
+
+        Thread.sleep(4500);
+        if (checked.size() != 8 || route(loadBalancer).contains("Provider-8") || route(loadBalancer).size() != 7)
+        {
+            throw new RuntimeException("Providers not checked: " + checked);
+        }
+        loadBalancer.close();
+    }
+
+    private static void awaitUninterruptibly(final CountDownLatch latch)
+    {
+        while (true)
+        {
+            try
+            {
+                latch.await();
+                return;
+            }
+            catch (InterruptedException e)
+            {
+                // ignored, like a check stuck in a system call
+            }
+        }
+    }
+
+    private static void checkHealthConcurrently(final LoadBalancer loadBalancer) throws InterruptedException
+    {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++)
+        {
+            threads.add(new Thread(() ->
+            {
+                for (int i = 0; i < 1000; i++)
+                {
+                    loadBalancer.checkHealth();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+    }
+
+    private static Set<String> route(final LoadBalancer loadBalancer)
+    {
+        Set<String> providers = new HashSet<>();
+        for (int i = 0; i < 100; i++)
+        {
+            providers.add(loadBalancer.get());
+        }
+        return providers;
+    }
+
+    private static boolean hang()
+    {
+        return sleep(60_000);
+    }
+
+    private static boolean sleep(final long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+}
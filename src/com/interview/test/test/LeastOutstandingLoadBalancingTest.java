@@ -0,0 +1,134 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LeastOutstandingLoadBalancingTest
+{
+    public static void main(String[] args)
+    {
+        testLeastOutstandingSpreadsLeases();
+        testLeastOutstandingPrefersReleasedProvider();
+        testPowerOfTwoChoicesAvoidsLoadedProvider();
+        testLeaseRelease();
+
+        System.out.println("Least Outstanding : Basic Tests Pasted");
+    }
+
+    private static void testLeastOutstandingSpreadsLeases()
+    {
+        int size = 7;
+        int leasesPerProvider = 100;
+        LoadBalancer loadBalancer = createLoadBalancer(LoadBalancerType.LeastOutstanding, size);
+
+        Map<String, List<Lease>> leases = acquire(loadBalancer, size * leasesPerProvider);
+        for (int i = 1; i <= size; i++)
+        {
+            if (leases.get("Provider-" + i).size() != leasesPerProvider)
+            {
+                throw new RuntimeException("Least Outstanding Load Balancer not Working");
+            }
+        }
+    }
+
+    private static void testLeastOutstandingPrefersReleasedProvider()
+    {
+        int size = 7;
+        LoadBalancer loadBalancer = createLoadBalancer(LoadBalancerType.LeastOutstanding, size);
+
+        Map<String, List<Lease>> leases = acquire(loadBalancer, size * 10);
+        leases.get("Provider-3").forEach(Lease::release);
+
+        Map<String, List<Lease>> next = acquire(loadBalancer, 10);
+        if (next.size() != 1 || next.get("Provider-3").size() != 10)
+        {
+            throw new RuntimeException("Least Outstanding Load Balancer not Working");
+        }
+
+        loadBalancer.removeProvider("Provider-3");
+        if (acquire(loadBalancer, 100).containsKey("Provider-3"))
+        {
+            throw new RuntimeException("Least Outstanding Load Balancer not Working");
+        }
+    }
+
+    private static void testPowerOfTwoChoicesAvoidsLoadedProvider()
+    {
+        int size = 7;
+        int numberOfTests = 5000;
+        LoadBalancer loadBalancer = createLoadBalancer(LoadBalancerType.PowerOfTwoChoices, size);
+
+        // keep all leases: with two choices the gap between the most and the least loaded provider stays a few
+        // leases, while a single random choice gives a gap of about a hundred leases for this many requests
+        Map<String, List<Lease>> leases = acquire(loadBalancer, numberOfTests);
+        int min = leases.values().stream().mapToInt(List::size).min().getAsInt();
+        int max = leases.values().stream().mapToInt(List::size).max().getAsInt();
+        if (leases.size() != size || max - min > 10)
+        {
+            throw new RuntimeException("Power of Two Choices Load Balancer not Working");
+        }
+    }
+
+    private static void testLeaseRelease()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMaxNumberOfConcurrentRequests(2);
+        LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(getProviders(1), loadBalancerConfiguration, LoadBalancerType.LeastOutstanding);
+
+        Lease first = loadBalancer.acquire();
+        Lease second = loadBalancer.acquire();
+        if (!first.isAcquired() || !second.isAcquired() || loadBalancer.acquire().isAcquired())
+        {
+            throw new RuntimeException("Lease limit not Working");
+        }
+
+        // releasing twice must release only one request
+        first.release();
+        first.release();
+        Lease third = loadBalancer.acquire();
+        if (!third.isAcquired() || loadBalancer.acquire().isAcquired())
+        {
+            throw new RuntimeException("Lease release not Working");
+        }
+
+        loadBalancer.removeProvider("Provider-1");
+        Lease none = loadBalancer.acquire();
+        if (none.isAcquired() || !none.getProviderId().equals(LoadBalancer.ERROR_MESSAGE))
+        {
+            throw new RuntimeException("Lease error not Working");
+        }
+    }
+
+    private static Map<String, List<Lease>> acquire(final LoadBalancer loadBalancer, final int numberOfLeases)
+    {
+        Map<String, List<Lease>> leases = new HashMap<>();
+        for (int i = 0; i < numberOfLeases; i++)
+        {
+            Lease lease = loadBalancer.acquire();
+            leases.computeIfAbsent(lease.getProviderId(), (id) -> new ArrayList<>()).add(lease);
+        }
+        return leases;
+    }
+
+    private static LoadBalancer createLoadBalancer(final LoadBalancerType type, final int size)
+    {
+        return LoadBalancerBuilder.createLoadBalancer(getProviders(size), new LoadBalancerConfiguration(), type);
+    }
+
+    private static List<IProvider> getProviders(final int size)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        return providerList;
+    }
+}
@@ -0,0 +1,169 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoadSheddingTest
+{
+    private static final int NUMBER_OF_REQUESTS = 10_000;
+
+    public static void main(String[] args)
+    {
+        testShedsByPriority();
+        testRecovers();
+        testWaitsDriveShedding();
+
+        System.out.println("Load Shedding : Basic Tests Pasted");
+    }
+
+    private static void testShedsByPriority()
+    {
+        final AtomicLong time = new AtomicLong();
+        LoadBalancer loadBalancer = createLoadBalancer(createConfiguration(time), 3);
+        if (shedRate(loadBalancer, RequestPriority.Low) != 0)
+        {
+            throw new RuntimeException("Shedding without queueing");
+        }
+
+        // a standing queue sheds a growing fraction of the low priority requests first
+        queue(loadBalancer, time, 4, 20);
+        final double low = shedRate(loadBalancer, RequestPriority.Low);
+        if (low < 0.4 || low > 0.6 || shedRate(loadBalancer, RequestPriority.Normal) != 0)
+        {
+            throw new RuntimeException("Low priority shedding not Working: " + low);
+        }
+        queue(loadBalancer, time, 8, 20);
+        final double normal = shedRate(loadBalancer, RequestPriority.Normal);
+        if (shedRate(loadBalancer, RequestPriority.Low) != 1 || normal < 0.4 || normal > 0.6
+                || shedRate(loadBalancer, RequestPriority.High) != 0)
+        {
+            throw new RuntimeException("Normal priority shedding not Working: " + normal);
+        }
+
+        // and never the critical ones
+        queue(loadBalancer, time, 100, 20);
+        if (shedRate(loadBalancer, RequestPriority.High) != 1 || shedRate(loadBalancer, RequestPriority.Critical) != 0
+                || !loadBalancer.get(null, RequestPriority.Critical).startsWith("Provider-"))
+        {
+            throw new RuntimeException("Critical requests shed");
+        }
+        if (loadBalancer.select(new int[8], 8) != 0 || loadBalancer.select(null, RequestPriority.Low)
+                != LoadBalancer.NO_PROVIDER || loadBalancer.acquire().isAcquired())
+        {
+            throw new RuntimeException("Selections not shed");
+        }
+
+        // the shed requests are neither selections nor rejections
+        final LoadBalancerMetricsMBean metrics = loadBalancer.getMetrics();
+        if (metrics.getRejections() != 0 || metrics.getShedRequests() == 0
+                || metrics.getPicks() + metrics.getShedRequests() != 8L * NUMBER_OF_REQUESTS + 1 + 8 + 1 + 1)
+        {
+            throw new RuntimeException("Shed requests not counted: " + metrics.getShedRequests());
+        }
+        loadBalancer.close();
+    }
+
+    private static void testRecovers()
+    {
+        final AtomicLong time = new AtomicLong();
+        LoadBalancer loadBalancer = createLoadBalancer(createConfiguration(time), 3);
+        queue(loadBalancer, time, 100, 20);
+
+        // the queue drains
+        queue(loadBalancer, time, 1, 1);
+        if (shedRate(loadBalancer, RequestPriority.Low) != 1 || shedRate(loadBalancer, RequestPriority.High) != 0)
+        {
+            throw new RuntimeException("Shedding not halved");
+        }
+
+        // or the requests stop coming
+        for (int i = 0; i < 20; i++)
+        {
+            time.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+            loadBalancer.get(null, RequestPriority.Low);
+        }
+        if (shedRate(loadBalancer, RequestPriority.Low) != 0)
+        {
+            throw new RuntimeException("Shedding not stopped");
+        }
+        loadBalancer.close();
+    }
+
+    private static void testWaitsDriveShedding()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMaxNumberOfConcurrentRequests(1);
+        loadBalancerConfiguration.setLoadSheddingTargetDelayInMillis(1);
+        loadBalancerConfiguration.setLoadSheddingIntervalInMillis(50);
+        LoadBalancer loadBalancer = createLoadBalancer(loadBalancerConfiguration, 1);
+
+        // the callers wait for the only permit until they time out
+        final Lease lease = loadBalancer.acquire(null, RequestPriority.Critical, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++)
+        {
+            if (loadBalancer.acquire(null, RequestPriority.Critical, 20, TimeUnit.MILLISECONDS).isAcquired())
+            {
+                throw new RuntimeException("Permit not held");
+            }
+        }
+        if (shedRate(loadBalancer, RequestPriority.Low) == 0 || shedRate(loadBalancer, RequestPriority.Normal) != 0)
+        {
+            throw new RuntimeException("Waits do not shed");
+        }
+        lease.release();
+        loadBalancer.close();
+    }
+
+    /**
+     * Report the delay for the given number of load shedding intervals.
+     */
+    private static void queue(final LoadBalancer loadBalancer, final AtomicLong time, final int intervals,
+                              final long delayInMillis)
+    {
+        for (int i = 0; i < intervals; i++)
+        {
+            time.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+            loadBalancer.recordQueueingDelay(TimeUnit.MILLISECONDS.toNanos(delayInMillis));
+        }
+    }
+
+    private static double shedRate(final LoadBalancer loadBalancer, final RequestPriority priority)
+    {
+        int shed = 0;
+        for (int i = 0; i < NUMBER_OF_REQUESTS; i++)
+        {
+            if (loadBalancer.get(null, priority).equals(LoadBalancer.ERROR_MESSAGE))
+            {
+                shed++;
+            }
+        }
+        return (double) shed / NUMBER_OF_REQUESTS;
+    }
+
+    private static LoadBalancerConfiguration createConfiguration(final AtomicLong time)
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setTicker(time::get);
+        loadBalancerConfiguration.setLoadSheddingTargetDelayInMillis(5);
+        loadBalancerConfiguration.setMetricsEnabled(true);
+        return loadBalancerConfiguration;
+    }
+
+    private static LoadBalancer createLoadBalancer(final LoadBalancerConfiguration loadBalancerConfiguration,
+                                                   final int size)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        return LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration,
+                LoadBalancerType.RoundRobin);
+    }
+}
@@ -0,0 +1,114 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LocalityTest
+{
+    private static final int NUMBER_OF_PICKS = 30_000;
+
+    public static void main(String[] args)
+    {
+        LoadBalancer loadBalancer = createLoadBalancer();
+
+        // all the requests stay in the local zone
+        Map<String, Integer> picks = route(loadBalancer);
+        if (picks.size() != 3 || !picks.keySet().containsAll(Arrays.asList("a-1", "a-2", "a-3")))
+        {
+            throw new RuntimeException("Local zone not preferred: " + picks.keySet());
+        }
+
+        // still 70% of the local weight healthy: all local
+        loadBalancer.removeProvider("a-1");
+        picks = route(loadBalancer);
+        if (picks.size() != 2 || picks.containsKey("a-1"))
+        {
+            throw new RuntimeException("Local zone not preferred: " + picks.keySet());
+        }
+
+        // 3 out of 10 of the local weight healthy: 3/7 of the requests local, the rest spread by weight on the other
+        // zones of the first tier
+        loadBalancer.removeProvider("a-2");
+        picks = route(loadBalancer);
+        final double local = share(picks, "a-3");
+        final double remote = share(picks, "b-1") + share(picks, "b-2") + share(picks, "c-1");
+        if (Math.abs(local - 3.0 / 7) > 0.02 || Math.abs(local + remote - 1) > 1e-9
+                || Math.abs(share(picks, "b-1") / share(picks, "c-1") - 1) > 0.15
+                || Math.abs(share(picks, "b-2") / share(picks, "c-1") - 2) > 0.3)
+        {
+            throw new RuntimeException("Spill over not proportional: " + picks);
+        }
+
+        // the second tier only when the first one has no healthy provider
+        loadBalancer.applyHealthChanges(Arrays.asList("a-3", "b-1", "b-2"), Collections.emptyList());
+        picks = route(loadBalancer);
+        if (picks.size() != 1 || !picks.containsKey("c-1"))
+        {
+            throw new RuntimeException("Failover before the tier is exhausted: " + picks.keySet());
+        }
+        loadBalancer.removeProvider("c-1");
+        picks = route(loadBalancer);
+        if (picks.size() != 1 || !picks.containsKey("a-backup"))
+        {
+            throw new RuntimeException("Failover to the lower tier not Working: " + picks.keySet());
+        }
+
+        // back to the local zone when it recovers
+        loadBalancer.applyHealthChanges(Collections.emptyList(), Arrays.asList("a-1", "a-2", "a-3", "c-1"));
+        picks = route(loadBalancer);
+        if (picks.size() != 3 || !picks.keySet().containsAll(Arrays.asList("a-1", "a-2", "a-3")))
+        {
+            throw new RuntimeException("Local zone not preferred after recovery: " + picks.keySet());
+        }
+
+        // a registered provider joins its zone and tier
+        loadBalancer.registerProvider(new Provider("a-4", () -> true, 1, "zone-a", 0));
+        if (!route(loadBalancer).containsKey("a-4"))
+        {
+            throw new RuntimeException("Registered provider not in its zone");
+        }
+        loadBalancer.close();
+
+        System.out.println("Locality Aware : Basic Tests Pasted");
+    }
+
+    private static double share(final Map<String, Integer> picks, final String id)
+    {
+        return (double) picks.getOrDefault(id, 0) / NUMBER_OF_PICKS;
+    }
+
+    private static Map<String, Integer> route(final LoadBalancer loadBalancer)
+    {
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < NUMBER_OF_PICKS; i++)
+        {
+            picks.merge(loadBalancer.get(), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    private static LoadBalancer createLoadBalancer()
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        providerList.add(new Provider("a-1", () -> true, 3, "zone-a", 0));
+        providerList.add(new Provider("a-2", () -> true, 4, "zone-a", 0));
+        providerList.add(new Provider("a-3", () -> true, 3, "zone-a", 0));
+        providerList.add(new Provider("b-1", () -> true, 1, "zone-b", 0));
+        providerList.add(new Provider("b-2", () -> true, 2, "zone-b", 0));
+        providerList.add(new Provider("c-1", () -> true, 1, "zone-c", 0));
+        providerList.add(new Provider("a-backup", () -> true, 1, "zone-a", 1));
+
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setLocalZone("zone-a");
+        return LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration,
+                LoadBalancerType.LocalityAware);
+    }
+}
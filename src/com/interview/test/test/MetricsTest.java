@@ -0,0 +1,314 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class MetricsTest
+{
+    public static void main(String[] args) throws InterruptedException, JMException
+    {
+        testPicksAndRejections();
+        testListener();
+        testFailingListener();
+        testHealthCheckDurations();
+        testJmx();
+        testPicksOfManyThreads();
+
+        System.out.println("Metrics : Basic Tests Pasted");
+    }
+
+    private static void testPicksAndRejections()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMetricsEnabled(true);
+        loadBalancerConfiguration.setMaxNumberOfConcurrentRequests(2);
+        LoadBalancer loadBalancer = createLoadBalancer(4, loadBalancerConfiguration, new AtomicBoolean(true));
+
+        for (int i = 0; i < 400; i++)
+        {
+            loadBalancer.get();
+        }
+        final LoadBalancerMetricsMBean metrics = loadBalancer.getMetrics();
+        if (metrics.getPicks() != 400 || metrics.getPicks("Provider-1") != 100 || metrics.getPicks("Provider-4") != 100
+                || metrics.getRejections() != 0)
+        {
+            throw new RuntimeException("Pick counts not Working: " + metrics.getPicks("Provider-1"));
+        }
+
+        // the leases are counted once, the shed requests are rejections
+        List<Lease> leases = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            leases.add(loadBalancer.acquire());
+        }
+        if (metrics.getPicks() != 408 || metrics.getRejections() != 2 || metrics.getLeasesInFlight() != 8)
+        {
+            throw new RuntimeException("Rejection count not Working: " + metrics.getRejections());
+        }
+        leases.forEach(Lease::release);
+
+        loadBalancer.removeProvider("Provider-1");
+        loadBalancer.removeProvider("Provider-2");
+        loadBalancer.removeProvider("Provider-3");
+        loadBalancer.removeProvider("Provider-4");
+        if (!LoadBalancer.ERROR_MESSAGE.equals(loadBalancer.get()) || metrics.getRejections() != 3
+                || metrics.getHealthTransitions() != 4 || metrics.getHealthyProviders() != 0)
+        {
+            throw new RuntimeException("Rejection count not Working: " + metrics.getRejections());
+        }
+
+        // a provider registered at a reused index starts from zero
+        loadBalancer.addProvider("Provider-1");
+        loadBalancer.deregisterProvider("Provider-2");
+        loadBalancer.registerProvider(new Provider("Provider-5", () -> true));
+        if (metrics.getPicks("Provider-5") != 0 || metrics.getPicks("Provider-1") != 102
+                || metrics.getRegisteredProviders() != 4)
+        {
+            throw new RuntimeException("Pick counts not Working: " + metrics.getPicks("Provider-5"));
+        }
+        if (metrics.getMembershipLockHoldTimeMaxInMicros() < 0
+                || metrics.getMembershipLockHoldTime99thPercentileInMicros()
+                > metrics.getMembershipLockHoldTimeMaxInMicros())
+        {
+            throw new RuntimeException("Membership lock hold time not Working");
+        }
+        loadBalancer.close();
+    }
+
+    private static void testListener()
+    {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setListener(new LoadBalancerListener()
+        {
+            @Override
+            public void onHealthChanged(final String providerId, final boolean healthy)
+            {
+                events.add(providerId + (healthy ? " up" : " down"));
+            }
+
+            @Override
+            public void onProviderRegistered(final String providerId)
+            {
+                events.add(providerId + " registered");
+            }
+
+            @Override
+            public void onProviderDeregistered(final String providerId)
+            {
+                events.add(providerId + " deregistered");
+            }
+        });
+        LoadBalancer loadBalancer = createLoadBalancer(3, loadBalancerConfiguration, new AtomicBoolean(true));
+
+        loadBalancer.removeProvider("Provider-1");
+        // no change, no event
+        loadBalancer.removeProvider("Provider-1");
+        loadBalancer.applyHealthChanges(Collections.singletonList("Provider-2"),
+                Collections.singletonList("Provider-1"));
+        loadBalancer.registerProvider(new Provider("Provider-4", () -> true));
+        loadBalancer.deregisterProvider("Provider-3");
+
+        final List<String> expected = new ArrayList<>();
+        Collections.addAll(expected, "Provider-1 down", "Provider-2 down", "Provider-1 up",
+                "Provider-4 registered", "Provider-3 deregistered");
+        if (!events.equals(expected) || loadBalancer.getMetrics() == null)
+        {
+            throw new RuntimeException("Listener not Working: " + events);
+        }
+        loadBalancer.close();
+    }
+
+    private static void testFailingListener()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setListener(new LoadBalancerListener()
+        {
+            @Override
+            public void onHealthChanged(final String providerId, final boolean healthy)
+            {
+                throw new IllegalStateException("Listener failed");
+            }
+
+            @Override
+            public void onProviderRegistered(final String providerId)
+            {
+                throw new IllegalStateException("Listener failed");
+            }
+        });
+        LoadBalancer loadBalancer = createLoadBalancer(4, loadBalancerConfiguration, new AtomicBoolean(true));
+
+        // the whole batch is applied and reported, and the callers do not see the failures
+        loadBalancer.removeProvider("Provider-1");
+        loadBalancer.applyHealthChanges(Arrays.asList("Provider-2", "Provider-3"),
+                Collections.singletonList("Provider-1"));
+        loadBalancer.registerProvider(new Provider("Provider-5", () -> true));
+        final Set<String> providers = new HashSet<>();
+        for (int i = 0; i < 100; i++)
+        {
+            providers.add(loadBalancer.get());
+        }
+        final LoadBalancerMetricsMBean metrics = loadBalancer.getMetrics();
+        if (metrics.getHealthTransitions() != 4
+                || !providers.equals(new HashSet<>(Arrays.asList("Provider-1", "Provider-4", "Provider-5"))))
+        {
+            throw new RuntimeException("Failing listener not ignored: " + metrics.getHealthTransitions());
+        }
+        loadBalancer.close();
+    }
+
+    private static void testHealthCheckDurations() throws InterruptedException
+    {
+        final List<String> checks = new CopyOnWriteArrayList<>();
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+        loadBalancerConfiguration.setListener(new LoadBalancerListener()
+        {
+            @Override
+            public void onHealthCheck(final String providerId, final boolean healthy, final long durationInNanos)
+            {
+                checks.add(providerId + (healthy ? " healthy" : " unhealthy"));
+            }
+        });
+        final AtomicBoolean healthy = new AtomicBoolean(false);
+        List<IProvider> providerList = new ArrayList<>();
+        providerList.add(new Provider("Provider-1", () ->
+        {
+            sleep(20);
+            return healthy.get();
+        }));
+
+        try (LoadBalancer loadBalancer = LoadBalancerBuilder.createLoadBalancer(providerList,
+                loadBalancerConfiguration, LoadBalancerType.RoundRobin))
+        {
+            Thread.sleep(500);
+            final LoadBalancerMetricsMBean metrics = loadBalancer.getMetrics();
+            if (!checks.contains("Provider-1 unhealthy") || metrics.getHealthChecks() != checks.size()
+                    || metrics.getHealthCheckDurationMaxInMicros() < 20_000
+                    || metrics.getHealthCheckDuration99thPercentileInMicros() < 20_000
+                    || metrics.getHealthCheckDurationMeanInMicros() < 20_000
+                    || metrics.getHealthTransitions() != 1)
+            {
+                throw new RuntimeException("Health check durations not Working: " + checks);
+            }
+        }
+    }
+
+    private static void testJmx() throws JMException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setJmxName("orders");
+        LoadBalancer loadBalancer = createLoadBalancer(2, loadBalancerConfiguration, new AtomicBoolean(true));
+        for (int i = 0; i < 10; i++)
+        {
+            loadBalancer.get();
+        }
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("com.interview.test.loadbalancers:type=LoadBalancer,name=\"orders\"");
+        if (!Long.valueOf(10).equals(server.getAttribute(name, "Picks"))
+                || !Integer.valueOf(2).equals(server.getAttribute(name, "HealthyProviders")))
+        {
+            throw new RuntimeException("JMX not Working");
+        }
+
+        // the name is taken until the load balancer is closed
+        try
+        {
+            createLoadBalancer(2, loadBalancerConfiguration, new AtomicBoolean(true));
+            throw new RuntimeException("JMX name registered twice");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+        loadBalancer.close();
+        if (server.isRegistered(name))
+        {
+            throw new RuntimeException("MBean not unregistered on close");
+        }
+        createLoadBalancer(2, loadBalancerConfiguration, new AtomicBoolean(true)).close();
+    }
+
+    /**
+     * Short lived threads, several at a time: the counts of the threads that are gone are kept, in a bounded number
+     * of stripes.
+     */
+    private static void testPicksOfManyThreads() throws InterruptedException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMetricsEnabled(true);
+        LoadBalancer loadBalancer = createLoadBalancer(4, loadBalancerConfiguration, new AtomicBoolean(true));
+
+        for (int round = 0; round < 50; round++)
+        {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++)
+            {
+                threads.add(new Thread(() ->
+                {
+                    for (int i = 0; i < 1000; i++)
+                    {
+                        loadBalancer.get();
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads)
+            {
+                thread.join();
+            }
+        }
+        final LoadBalancerMetricsMBean metrics = loadBalancer.getMetrics();
+        long sum = 0;
+        for (int i = 1; i <= 4; i++)
+        {
+            sum += metrics.getPicks("Provider-" + i);
+        }
+        if (metrics.getPicks() != 400_000 || sum != 400_000)
+        {
+            throw new RuntimeException("Picks of many threads not counted: " + metrics.getPicks() + " / " + sum);
+        }
+        loadBalancer.close();
+    }
+
+    private static void sleep(final long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static LoadBalancer createLoadBalancer(final int size,
+                                                   final LoadBalancerConfiguration loadBalancerConfiguration,
+                                                   final AtomicBoolean healthy)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, healthy::get));
+        }
+        return LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration,
+                LoadBalancerType.RoundRobin);
+    }
+}
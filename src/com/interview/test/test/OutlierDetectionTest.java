@@ -0,0 +1,188 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class OutlierDetectionTest
+{
+    private static final int BASE_EJECTION_TIME_IN_MILLIS = 300;
+
+    public static void main(String[] args)
+    {
+        testFailingProviderIsEjectedAndReturns();
+        testFailureRateUnderThreshold();
+        testMaxEjectionPercent();
+        testReturnThroughHealthChecks();
+
+        System.out.println("Outlier Detection : Basic Tests Pasted");
+    }
+
+    private static void testFailingProviderIsEjectedAndReturns()
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(7, createConfiguration());
+
+        fail(loadBalancer, "Provider-3", 10);
+        if (route(loadBalancer).contains("Provider-3") || route(loadBalancer).size() != 6)
+        {
+            throw new RuntimeException("Failing provider not ejected");
+        }
+        sleep(BASE_EJECTION_TIME_IN_MILLIS * 2);
+        if (!route(loadBalancer).contains("Provider-3"))
+        {
+            throw new RuntimeException("Ejected provider does not return");
+        }
+
+        // ejected again soon after: twice the ejection time
+        fail(loadBalancer, "Provider-3", 10);
+        sleep(BASE_EJECTION_TIME_IN_MILLIS * 3 / 2);
+        if (route(loadBalancer).contains("Provider-3"))
+        {
+            throw new RuntimeException("Ejection time does not back off");
+        }
+        sleep(BASE_EJECTION_TIME_IN_MILLIS * 2);
+        if (!route(loadBalancer).contains("Provider-3"))
+        {
+            throw new RuntimeException("Ejected provider does not return");
+        }
+        loadBalancer.close();
+    }
+
+    private static void testFailureRateUnderThreshold()
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(7, createConfiguration());
+
+        for (int i = 0; i < 100; i++)
+        {
+            loadBalancer.recordResult("Provider-1", i % 3 != 0, 1000);
+        }
+        // too few requests to tell
+        fail(loadBalancer, "Provider-2", 9);
+        if (route(loadBalancer).size() != 7)
+        {
+            throw new RuntimeException("Provider ejected under the failure rate threshold");
+        }
+        loadBalancer.close();
+    }
+
+    private static void testMaxEjectionPercent()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = createConfiguration();
+        loadBalancerConfiguration.setMaxEjectionPercent(25);
+        LoadBalancer loadBalancer = createLoadBalancer(4, loadBalancerConfiguration);
+
+        fail(loadBalancer, "Provider-1", 10);
+        fail(loadBalancer, "Provider-2", 10);
+        final Set<String> providers = route(loadBalancer);
+        if (providers.contains("Provider-1") || !providers.contains("Provider-2"))
+        {
+            throw new RuntimeException("Max ejection percent not Working");
+        }
+
+        // a deregistered provider leaves room for another ejection
+        loadBalancer.deregisterProvider("Provider-1");
+        fail(loadBalancer, "Provider-2", 10);
+        if (route(loadBalancer).contains("Provider-2"))
+        {
+            throw new RuntimeException("Deregistered provider still counted as ejected");
+        }
+        loadBalancer.close();
+    }
+
+    private static void testReturnThroughHealthChecks()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = createConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+        LoadBalancer loadBalancer = createLoadBalancer(3, loadBalancerConfiguration);
+
+        // the health checks succeed but do not return the provider before its ejection time
+        fail(loadBalancer, "Provider-1", 10);
+        sleep(BASE_EJECTION_TIME_IN_MILLIS * 2);
+        if (route(loadBalancer).contains("Provider-1"))
+        {
+            throw new RuntimeException("Ejected provider returned without health checks");
+        }
+
+        // two consecutive successful health checks after the ejection time
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!route(loadBalancer).contains("Provider-1"))
+        {
+            if (System.currentTimeMillis() > deadline)
+            {
+                throw new RuntimeException("Ejected provider not returned by the health checks");
+            }
+            sleep(100);
+        }
+        loadBalancer.close();
+    }
+
+    /**
+     * Fail the leases of the provider until it is given the number of failures, or it is not selected anymore.
+     */
+    private static void fail(final LoadBalancer loadBalancer, final String id, final int numberOfFailures)
+    {
+        int failures = 0;
+        for (int i = 0; failures < numberOfFailures && i < numberOfFailures * 100; i++)
+        {
+            Lease lease = loadBalancer.acquire();
+            if (lease.getProviderId().equals(id))
+            {
+                lease.fail();
+                failures++;
+            }
+            else
+            {
+                lease.release();
+            }
+        }
+    }
+
+    private static Set<String> route(final LoadBalancer loadBalancer)
+    {
+        Set<String> providers = new HashSet<>();
+        for (int i = 0; i < 100; i++)
+        {
+            providers.add(loadBalancer.get());
+        }
+        return providers;
+    }
+
+    private static void sleep(final long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static LoadBalancerConfiguration createConfiguration()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setOutlierFailureRateThreshold(0.5);
+        loadBalancerConfiguration.setBaseEjectionTimeInMillis(BASE_EJECTION_TIME_IN_MILLIS);
+        loadBalancerConfiguration.setMaxEjectionPercent(50);
+        return loadBalancerConfiguration;
+    }
+
+    private static LoadBalancer createLoadBalancer(final int size,
+                                                   final LoadBalancerConfiguration loadBalancerConfiguration)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        return LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration,
+                LoadBalancerType.RoundRobin);
+    }
+}
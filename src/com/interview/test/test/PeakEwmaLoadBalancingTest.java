@@ -0,0 +1,127 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class PeakEwmaLoadBalancingTest
+{
+    public static final String SLOW_PROVIDER = "Provider-1";
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        testSlowProviderIsAvoided();
+        testSlowProviderGetsTrafficBackAfterDecay();
+        testUnmeasuredProvidersAreBalanced();
+
+        System.out.println("Peak EWMA : Basic Tests Pasted");
+    }
+
+    private static void testSlowProviderIsAvoided()
+    {
+        int numberOfTests = 2000;
+        LoadBalancer loadBalancer = createLoadBalancer(7, 1000);
+
+        Map<String, Integer> counts = call(loadBalancer, numberOfTests);
+        // with equal latencies the slow provider would get about a seventh of the requests
+        if (counts.getOrDefault(SLOW_PROVIDER, 0) > numberOfTests / 20)
+        {
+            throw new RuntimeException("Peak EWMA Load Balancer not Working: " + counts);
+        }
+    }
+
+    private static void testSlowProviderGetsTrafficBackAfterDecay() throws InterruptedException
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(2, 20);
+
+        // teach the load balancer that the provider is slow
+        call(loadBalancer, 200);
+        if (call(loadBalancer, 100).getOrDefault(SLOW_PROVIDER, 0) > 10)
+        {
+            throw new RuntimeException("Peak EWMA Load Balancer not Working");
+        }
+
+        // the other provider keeps getting fast requests while the average of the slow one decays
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (System.nanoTime() < deadline)
+        {
+            if (call(loadBalancer, 100).containsKey(SLOW_PROVIDER))
+            {
+                return;
+            }
+            Thread.sleep(1);
+        }
+        throw new RuntimeException("Peak EWMA Load Balancer does not decay");
+    }
+
+    private static void testUnmeasuredProvidersAreBalanced()
+    {
+        int numberOfTests = 200;
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMaxNumberOfConcurrentRequests(numberOfTests);
+        LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(getProviders(2), loadBalancerConfiguration, LoadBalancerType.PeakEwma);
+
+        // no lease is released, so no latency is measured and the requests in flight alone decide
+        List<Lease> leases = new ArrayList<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < numberOfTests; i++)
+        {
+            Lease lease = loadBalancer.acquire();
+            leases.add(lease);
+            counts.merge(lease.getProviderId(), 1, Integer::sum);
+        }
+        leases.forEach(Lease::close);
+
+        if (Math.abs(counts.getOrDefault("Provider-1", 0) - counts.getOrDefault("Provider-2", 0)) > 1)
+        {
+            throw new RuntimeException("Peak EWMA Load Balancer not balancing unmeasured providers: " + counts);
+        }
+    }
+
+    /**
+     * Acquire a provider and release it at once, except for the slow provider which is released after five
+     * milliseconds, well above the pauses (JIT, GC) that the fast providers may see.
+     */
+    private static Map<String, Integer> call(final LoadBalancer loadBalancer, final int numberOfTests)
+    {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < numberOfTests; i++)
+        {
+            try (Lease lease = loadBalancer.acquire())
+            {
+                if (lease.getProviderId().equals(SLOW_PROVIDER))
+                {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+                }
+                counts.merge(lease.getProviderId(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static LoadBalancer createLoadBalancer(final int size, final int decayTimeInMillis)
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setLatencyDecayTimeInMillis(decayTimeInMillis);
+        return LoadBalancerBuilder
+                .createLoadBalancer(getProviders(size), loadBalancerConfiguration, LoadBalancerType.PeakEwma);
+    }
+
+    private static List<IProvider> getProviders(final int size)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        return providerList;
+    }
+}
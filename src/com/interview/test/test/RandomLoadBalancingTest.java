@@ -6,8 +6,10 @@ import com.interview.test.providers.Provider;
 import com.interview.test.healthcheck.mock.ProviderFailureRandomGenerator;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class RandomLoadBalancingTest
@@ -17,9 +19,41 @@ public class RandomLoadBalancingTest
     public static void main(String[] args)
     {
         testRandomWithNoHeartbeatLogic();
+        testRandomWithFastRangeReduction();
         testRandom();
     }
 
+    private static void testRandomWithFastRangeReduction()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setFastRangeReduction(true);
+
+        int size = 7;
+        int numberOfTests = 70000;
+        LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(getProviders(size), loadBalancerConfiguration, LoadBalancerType.Random);
+
+        loadBalancer.removeProvider("Provider-1");
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < numberOfTests; i++)
+        {
+            counts.merge(loadBalancer.get(), 1, Integer::sum);
+        }
+
+        if (counts.size() != size - 1 || counts.containsKey("Provider-1"))
+        {
+            throw new RuntimeException("Random Load Balancer not Working");
+        }
+        for (int count : counts.values())
+        {
+            // expected count is numberOfTests / 6, the bounds are far outside any realistic deviation
+            if (count < numberOfTests / 8 || count > numberOfTests / 5)
+            {
+                throw new RuntimeException("Random Load Balancer distribution is skewed: " + counts);
+            }
+        }
+    }
+
     private static void testRandom()
     {
         final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
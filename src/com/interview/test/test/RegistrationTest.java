@@ -0,0 +1,228 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RegistrationTest
+{
+    public static void main(String[] args) throws Exception
+    {
+        for (LoadBalancerType type : LoadBalancerType.values())
+        {
+            testRegisterAndDeregister(type);
+        }
+        testDeregisterDrainsLeases();
+        testInvalidRegistrations();
+        testRegisteredProvidersAreHealthChecked();
+        testChurnWhileAcquiring();
+
+        System.out.println("Registration : Basic Tests Pasted");
+    }
+
+    private static void testRegisterAndDeregister(final LoadBalancerType type)
+    {
+        LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(getProviders(3), new LoadBalancerConfiguration(), type);
+
+        loadBalancer.registerProvider(new Provider("Provider-4", () -> true, 2));
+        if (!get(loadBalancer, 200).contains("Provider-4"))
+        {
+            throw new RuntimeException(type + " Load Balancer does not use registered provider");
+        }
+
+        loadBalancer.deregisterProvider("Provider-1");
+        loadBalancer.deregisterProvider("Provider-4");
+        Set<String> ids = get(loadBalancer, 200);
+        if (ids.size() != 2 || ids.contains("Provider-1") || ids.contains("Provider-4"))
+        {
+            throw new RuntimeException(type + " Load Balancer uses deregistered provider: " + ids);
+        }
+
+        // the ids can be registered again, at the freed indices
+        loadBalancer.registerProvider(new Provider("Provider-1", () -> true));
+        loadBalancer.removeProvider("Provider-2");
+        ids = get(loadBalancer, 200);
+        if (ids.size() != 2 || !ids.contains("Provider-1") || !ids.contains("Provider-3"))
+        {
+            throw new RuntimeException(type + " Load Balancer does not reuse deregistered provider: " + ids);
+        }
+    }
+
+    private static void testDeregisterDrainsLeases() throws Exception
+    {
+        LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(getProviders(1), new LoadBalancerConfiguration(), LoadBalancerType.RoundRobin);
+        loadBalancer.registerProvider(new Provider("Provider-2", () -> true));
+
+        List<Lease> leases = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            leases.add(loadBalancer.acquire());
+        }
+
+        CompletableFuture<Void> drain = loadBalancer.deregisterProvider("Provider-1");
+        if (drain.isDone() || get(loadBalancer, 10).contains("Provider-1"))
+        {
+            throw new RuntimeException("Deregistration does not drain the provider");
+        }
+
+        // the index of the draining provider is not reused while its leases are in flight
+        loadBalancer.registerProvider(new Provider("Provider-3", () -> true));
+        for (Lease lease : leases)
+        {
+            if (lease.getProviderId().equals("Provider-1") && drain.isDone())
+            {
+                throw new RuntimeException("Provider drained with leases in flight");
+            }
+            lease.release();
+            lease.release();
+        }
+        drain.get(1, TimeUnit.SECONDS);
+
+        if (!loadBalancer.deregisterProvider("Provider-1").isDone())
+        {
+            throw new RuntimeException("Deregistration of an unknown provider does not complete");
+        }
+        Set<String> ids = get(loadBalancer, 10);
+        if (ids.size() != 2 || !ids.contains("Provider-2") || !ids.contains("Provider-3"))
+        {
+            throw new RuntimeException("Deregistration does not drain the provider: " + ids);
+        }
+    }
+
+    private static void testInvalidRegistrations()
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMaxNumberOfProviders(3);
+        LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(getProviders(2), loadBalancerConfiguration, LoadBalancerType.WeightedRandom);
+
+        expectRejected(loadBalancer, new Provider("Provider-1", () -> true));
+        expectRejected(loadBalancer, new Provider("Provider-3", () -> true, 0));
+        loadBalancer.registerProvider(new Provider("Provider-3", () -> true));
+        expectRejected(loadBalancer, new Provider("Provider-4", () -> true));
+
+        // a draining provider does not count
+        loadBalancer.deregisterProvider("Provider-3");
+        loadBalancer.registerProvider(new Provider("Provider-4", () -> true));
+    }
+
+    private static void testRegisteredProvidersAreHealthChecked() throws InterruptedException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+
+        try (LoadBalancer loadBalancer = LoadBalancerBuilder
+                .createLoadBalancer(getProviders(2), loadBalancerConfiguration, LoadBalancerType.RoundRobin))
+        {
+            loadBalancer.registerProvider(new Provider("Provider-3", () -> false));
+            Thread.sleep(1500);
+
+            Set<String> ids = get(loadBalancer, 10);
+            if (ids.size() != 2 || ids.contains("Provider-3"))
+            {
+                throw new RuntimeException("Registered provider not health checked: " + ids);
+            }
+        }
+    }
+
+    /**
+     * Providers are registered and deregistered while other threads acquire and release leases: no lease is given
+     * for a provider that has drained, and every drain completes.
+     */
+    private static void testChurnWhileAcquiring() throws Exception
+    {
+        LoadBalancer loadBalancer = LoadBalancerBuilder.createLoadBalancer(
+                getProviders(4), new LoadBalancerConfiguration(), LoadBalancerType.LeastOutstanding);
+
+        final Set<String> drained = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++)
+        {
+            Thread thread = new Thread(() ->
+            {
+                while (running.get())
+                {
+                    Lease lease = loadBalancer.acquire();
+                    if (!lease.isAcquired() || drained.contains(lease.getProviderId()))
+                    {
+                        failure.set(lease.getProviderId());
+                    }
+                    lease.release();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        List<CompletableFuture<Void>> drains = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+        {
+            final String id = "Churn-" + i;
+            loadBalancer.registerProvider(new Provider(id, () -> true));
+            if (i > 0)
+            {
+                final String previous = "Churn-" + (i - 1);
+                drains.add(loadBalancer.deregisterProvider(previous).thenRun(() -> drained.add(previous)));
+            }
+        }
+        CompletableFuture.allOf(drains.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+        running.set(false);
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        if (failure.get() != null)
+        {
+            throw new RuntimeException("Lease acquired from drained provider: " + failure.get());
+        }
+    }
+
+    private static void expectRejected(final LoadBalancer loadBalancer, final IProvider provider)
+    {
+        try
+        {
+            loadBalancer.registerProvider(provider);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return;
+        }
+        throw new RuntimeException("Invalid registration not rejected: " + provider.get());
+    }
+
+    private static Set<String> get(final LoadBalancer loadBalancer, final int numberOfTests)
+    {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < numberOfTests; i++)
+        {
+            ids.add(loadBalancer.get());
+        }
+        return ids;
+    }
+
+    private static List<IProvider> getProviders(final int size)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        return providerList;
+    }
+}
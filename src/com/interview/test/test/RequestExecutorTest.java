@@ -0,0 +1,304 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class RequestExecutorTest
+{
+    public static void main(String[] args) throws InterruptedException
+    {
+        testRetriesOnOtherProviders();
+        testRetryBudget();
+        testRetryTokenGivenBack();
+        testHedging();
+        testCompletesOutsideLock();
+        testRemoveAfterConsecutiveFailures();
+        testNoProvider();
+
+        System.out.println("Request Executor : Basic Tests Pasted");
+    }
+
+    private static void testRetriesOnOtherProviders()
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(3);
+        final RequestExecutor executor = new RequestExecutor(loadBalancer, new LoadBalancerConfiguration());
+
+        for (int i = 0; i < 5; i++)
+        {
+            final List<String> called = new ArrayList<>();
+            final String result = executor.<String>execute(id ->
+            {
+                called.add(id);
+                return id.equals("Provider-3") ? CompletableFuture.completedFuture(id) : failed();
+            }).join();
+            if (!result.equals("Provider-3") || new HashSet<>(called).size() != called.size())
+            {
+                throw new RuntimeException("Retries not Working: " + called);
+            }
+        }
+
+        // every attempt fails: the failure of the last one
+        try
+        {
+            executor.execute(id -> failed()).join();
+            throw new RuntimeException("Failure not reported");
+        }
+        catch (CompletionException e)
+        {
+            if (!(e.getCause() instanceof IllegalStateException))
+            {
+                throw new RuntimeException("Failure not reported: " + e);
+            }
+        }
+        executor.close();
+        loadBalancer.close();
+    }
+
+    private static void testRetryBudget()
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(3);
+        final LoadBalancerConfiguration configuration = new LoadBalancerConfiguration();
+        configuration.setRetryBudgetPercent(20);
+        final RequestExecutor executor = new RequestExecutor(loadBalancer, configuration);
+
+        final AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 100; i++)
+        {
+            executor.execute(id ->
+            {
+                calls.incrementAndGet();
+                return failed();
+            });
+        }
+        // 20 retries for the 100 requests and the initial burst of 10, instead of 200 retries
+        if (calls.get() > 130 || calls.get() < 120)
+        {
+            throw new RuntimeException("Retry budget not Working: " + calls.get());
+        }
+        executor.close();
+        loadBalancer.close();
+    }
+
+    private static void testRetryTokenGivenBack() throws InterruptedException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setMaxNumberOfConcurrentRequests(1);
+        LoadBalancer loadBalancer = LoadBalancerBuilder.createLoadBalancer(Collections.singletonList(
+                new Provider("Provider-1", () -> true)), loadBalancerConfiguration, LoadBalancerType.RoundRobin);
+        final LoadBalancerConfiguration configuration = new LoadBalancerConfiguration();
+        configuration.setHedgeDelayPercentile(50);
+        final RequestExecutor executor = new RequestExecutor(loadBalancer, configuration);
+        final ScheduledExecutorService network = Executors.newSingleThreadScheduledExecutor();
+        for (int i = 0; i < 30; i++)
+        {
+            executor.execute(CompletableFuture::completedFuture).join();
+        }
+
+        // the slow attempts are hedged, but the only provider has no permit for the hedged attempts
+        for (int i = 0; i < 20; i++)
+        {
+            executor.<String>execute(id ->
+            {
+                final CompletableFuture<String> response = new CompletableFuture<>();
+                network.schedule(() -> response.complete(id), 5, TimeUnit.MILLISECONDS);
+                return response;
+            }).join();
+        }
+
+        // so their tokens are still in the budget
+        for (int i = 0; i < 5; i++)
+        {
+            final AtomicInteger calls = new AtomicInteger();
+            executor.<String>execute(id -> calls.getAndIncrement() == 0 ? failed()
+                    : CompletableFuture.completedFuture(id)).handle((value, failure) -> value);
+            if (calls.get() != 2)
+            {
+                throw new RuntimeException("Retry token lost: " + i);
+            }
+        }
+        executor.close();
+        network.shutdownNow();
+        loadBalancer.close();
+    }
+
+    private static void testHedging() throws InterruptedException
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(3);
+        final LoadBalancerConfiguration configuration = new LoadBalancerConfiguration();
+        configuration.setHedgeDelayPercentile(95);
+        final RequestExecutor executor = new RequestExecutor(loadBalancer, configuration);
+        final ScheduledExecutorService network = Executors.newSingleThreadScheduledExecutor();
+
+        final AtomicBoolean slow = new AtomicBoolean(false);
+        final List<CompletableFuture<String>> slowCalls = new CopyOnWriteArrayList<>();
+        final Function<String, CompletableFuture<String>> call = id ->
+        {
+            final CompletableFuture<String> response = new CompletableFuture<>();
+            if (slow.get() && id.equals("Provider-1"))
+            {
+                network.schedule(() -> response.complete(id), 2, TimeUnit.SECONDS);
+                slowCalls.add(response);
+            }
+            else
+            {
+                network.schedule(() -> response.complete(id), 1, TimeUnit.MILLISECONDS);
+            }
+            return response;
+        };
+
+        // learn the latencies
+        for (int i = 0; i < 30; i++)
+        {
+            executor.execute(call).join();
+        }
+
+        // until a first attempt goes to the slow provider
+        slow.set(true);
+        for (int i = 0; i < 10 && slowCalls.isEmpty(); i++)
+        {
+            final long start = System.nanoTime();
+            final String result = executor.execute(call).join();
+            if (result.equals("Provider-1") || System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(1000))
+            {
+                throw new RuntimeException("Hedging not Working: " + result);
+            }
+        }
+        Thread.sleep(50);
+        if (slowCalls.isEmpty() || !slowCalls.stream().allMatch(CompletableFuture::isCancelled))
+        {
+            throw new RuntimeException("Hedged attempt not cancelled");
+        }
+        executor.close();
+        network.shutdownNow();
+        loadBalancer.close();
+    }
+
+    /**
+     * The callbacks of the caller run when an attempt succeeds while a hedged one is in flight: the other attempt
+     * completes on another thread meanwhile.
+     */
+    private static void testCompletesOutsideLock() throws InterruptedException
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(3);
+        final LoadBalancerConfiguration configuration = new LoadBalancerConfiguration();
+        configuration.setHedgeDelayPercentile(50);
+        final RequestExecutor executor = new RequestExecutor(loadBalancer, configuration);
+        for (int i = 0; i < 30; i++)
+        {
+            executor.execute(CompletableFuture::completedFuture).join();
+        }
+
+        final List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        final CompletableFuture<String> result = executor.execute(id ->
+        {
+            final CompletableFuture<String> response = new CompletableFuture<>();
+            attempts.add(response);
+            return response;
+        });
+        for (int i = 0; i < 1000 && attempts.size() < 2; i++)
+        {
+            Thread.sleep(1);
+        }
+        if (attempts.size() != 2)
+        {
+            throw new RuntimeException("Attempt not hedged");
+        }
+
+        final CountDownLatch otherCompleted = new CountDownLatch(1);
+        final AtomicBoolean blocked = new AtomicBoolean();
+        result.whenComplete((value, failure) ->
+        {
+            new Thread(() ->
+            {
+                attempts.get(1).completeExceptionally(new IllegalStateException("Connection reset"));
+                otherCompleted.countDown();
+            }).start();
+            try
+            {
+                blocked.set(!otherCompleted.await(5, TimeUnit.SECONDS));
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        attempts.get(0).complete("Provider");
+        if (blocked.get() || !result.join().equals("Provider"))
+        {
+            throw new RuntimeException("Result completed under the lock of the request");
+        }
+        executor.close();
+        loadBalancer.close();
+    }
+
+    private static void testRemoveAfterConsecutiveFailures()
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(3);
+        final LoadBalancerConfiguration configuration = new LoadBalancerConfiguration();
+        configuration.setMaxConsecutiveFailures(3);
+        final RequestExecutor executor = new RequestExecutor(loadBalancer, configuration);
+
+        for (int i = 0; i < 10; i++)
+        {
+            executor.execute(id -> id.equals("Provider-2") ? failed() : CompletableFuture.completedFuture(id))
+                    .join();
+        }
+        Set<String> providers = new HashSet<>();
+        for (int i = 0; i < 100; i++)
+        {
+            providers.add(loadBalancer.get());
+        }
+        if (providers.contains("Provider-2") || providers.size() != 2)
+        {
+            throw new RuntimeException("Failing provider not removed: " + providers);
+        }
+        executor.close();
+        loadBalancer.close();
+    }
+
+    private static void testNoProvider()
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(1);
+        loadBalancer.removeProvider("Provider-1");
+        final RequestExecutor executor = new RequestExecutor(loadBalancer, new LoadBalancerConfiguration());
+        try
+        {
+            executor.execute(CompletableFuture::completedFuture).join();
+            throw new RuntimeException("Request without provider executed");
+        }
+        catch (CompletionException e)
+        {
+            if (!(e.getCause() instanceof RejectedExecutionException))
+            {
+                throw new RuntimeException("No provider not reported: " + e);
+            }
+        }
+        executor.close();
+        loadBalancer.close();
+    }
+
+    private static CompletableFuture<String> failed()
+    {
+        final CompletableFuture<String> response = new CompletableFuture<>();
+        response.completeExceptionally(new IllegalStateException("Connection reset"));
+        return response;
+    }
+
+    private static LoadBalancer createLoadBalancer(final int size)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        return LoadBalancerBuilder.createLoadBalancer(providerList, new LoadBalancerConfiguration(),
+                LoadBalancerType.RoundRobin);
+    }
+}
@@ -6,6 +6,8 @@ import com.interview.test.providers.Provider;
 import com.interview.test.healthcheck.mock.ProviderFailureRandomGenerator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -54,10 +56,58 @@ public class RoundRobinLoadBalancingTest
         Set<String> providersChecked = checkAddProvider(numOfIterations, loadBalancer);
         checkAllUnhealthyProvidersError(loadBalancer, providersChecked);
         checkAddAfterRemove(numOfIterations, loadBalancer, providersChecked);
+        checkApplyHealthChanges(numberOfProviders);
+        checkSelectHandles(numberOfProviders);
 
         System.out.println("Round Robin : Basic Tests Pasted");
     }
 
+    private static void checkApplyHealthChanges(final int numberOfProviders)
+    {
+        LoadBalancer loadBalancer = LoadBalancerBuilder.createLoadBalancer(getProviders(numberOfProviders),
+                new LoadBalancerConfiguration(), LoadBalancerType.RoundRobin);
+
+        loadBalancer.applyHealthChanges(Arrays.asList("Provider-1", "Provider-2", "Provider-3", "Unknown"),
+                Collections.emptyList());
+        loadBalancer.applyHealthChanges(Arrays.asList("Provider-4", "Provider-5"), Arrays.asList("Provider-2"));
+
+        Set<String> providersChecked = new HashSet<>();
+        for (int i = 0; i < 100; i++)
+        {
+            providersChecked.add(loadBalancer.get());
+        }
+        if (!providersChecked.equals(new HashSet<>(Arrays.asList("Provider-2", "Provider-6", "Provider-7"))))
+        {
+            throw new RuntimeException("Round Robin Load Balancer not Working");
+        }
+    }
+
+    private static void checkSelectHandles(final int numberOfProviders)
+    {
+        LoadBalancer loadBalancer = LoadBalancerBuilder.createLoadBalancer(getProviders(numberOfProviders),
+                new LoadBalancerConfiguration(), LoadBalancerType.RoundRobin);
+
+        for (int i = 0; i < numberOfProviders * 10; i++)
+        {
+            final int handle = loadBalancer.select();
+            if (handle == LoadBalancer.NO_PROVIDER
+                    || !loadBalancer.getProvider(handle).get().equals("Provider-" + (i % numberOfProviders + 1)))
+            {
+                throw new RuntimeException("Round Robin Load Balancer not Working");
+            }
+        }
+
+        for (int i = 1; i <= numberOfProviders; i++)
+        {
+            loadBalancer.removeProvider("Provider-" + i);
+        }
+        if (loadBalancer.select() != LoadBalancer.NO_PROVIDER
+                || loadBalancer.getProvider(LoadBalancer.NO_PROVIDER) != null)
+        {
+            throw new RuntimeException("Round Robin Load Balancer not Working");
+        }
+    }
+
     private static void checkAddAfterRemove(final int numOfIterations, final LoadBalancer loadBalancer,
                                             final Set<String> providersChecked)
     {
@@ -0,0 +1,102 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SharedHealthTableTest
+{
+    public static void main(String[] args) throws InterruptedException, IOException
+    {
+        final Path directory = Paths.get("/dev/shm");
+        final Path path = Files.isDirectory(directory) ? Files.createTempFile(directory, "health", ".table")
+                : Files.createTempFile("health", ".table");
+        try
+        {
+            testOneProbePerHost(path);
+        }
+        finally
+        {
+            Files.delete(path);
+        }
+
+        System.out.println("Shared Health Table : Basic Tests Pasted");
+    }
+
+    private static void testOneProbePerHost(final Path path) throws InterruptedException
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setHeartbeatIntervalInSeconds(1);
+        loadBalancerConfiguration.setHealthCheckJitterInMillis(0);
+        loadBalancerConfiguration.setSharedHealthTablePath(path.toString());
+        final AtomicBoolean healthy = new AtomicBoolean(true);
+        final AtomicInteger leaderChecks = new AtomicInteger();
+        final AtomicInteger followerChecks = new AtomicInteger();
+
+        // the first one to check leads
+        LoadBalancer leader = createLoadBalancer(loadBalancerConfiguration, healthy, leaderChecks);
+        Thread.sleep(200);
+        LoadBalancer follower = createLoadBalancer(loadBalancerConfiguration, healthy, followerChecks);
+        Thread.sleep(1500);
+        if (leaderChecks.get() == 0 || followerChecks.get() != 0)
+        {
+            throw new RuntimeException("Follower checks the providers: " + followerChecks.get());
+        }
+
+        // the follower sees the checks of the leader
+        healthy.set(false);
+        Thread.sleep(1500);
+        for (int i = 0; i < 100; i++)
+        {
+            if (follower.get().equals("Provider-1") || leader.get().equals("Provider-1"))
+            {
+                throw new RuntimeException("Shared health not Working");
+            }
+        }
+        healthy.set(true);
+
+        // and takes over when the leader goes away
+        leader.close();
+        Thread.sleep(2500);
+        if (followerChecks.get() == 0)
+        {
+            throw new RuntimeException("Follower does not take over");
+        }
+        boolean recovered = false;
+        for (int i = 0; i < 100; i++)
+        {
+            recovered |= follower.get().equals("Provider-1");
+        }
+        if (!recovered)
+        {
+            throw new RuntimeException("Provider not recovered by the new leader");
+        }
+        follower.close();
+    }
+
+    private static LoadBalancer createLoadBalancer(final LoadBalancerConfiguration loadBalancerConfiguration,
+                                                   final AtomicBoolean healthy, final AtomicInteger checks)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= 3; i++)
+        {
+            final boolean first = i == 1;
+            providerList.add(new Provider("Provider-" + i, () ->
+            {
+                checks.incrementAndGet();
+                return !first || healthy.get();
+            }));
+        }
+        return LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration,
+                LoadBalancerType.RoundRobin);
+    }
+}
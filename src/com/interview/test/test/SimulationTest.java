@@ -0,0 +1,127 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.LoadBalancerConfiguration;
+import com.interview.test.loadbalancers.LoadBalancerType;
+import com.interview.test.simulation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class SimulationTest
+{
+    public static void main(String[] args)
+    {
+        testReplay();
+        testBurstOutage();
+        testGrayFailure();
+        testFasterThanRealTime();
+
+        System.out.println("Simulation : Basic Tests Pasted");
+    }
+
+    private static void testReplay()
+    {
+        final List<ProviderModel> models = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+        {
+            models.add(ProviderModels.randomOutages(ProviderModels.healthy(2000), i, 5_000, 2_000));
+        }
+        final Simulation simulation = new Simulation(new SimulationConfiguration());
+        final LoadBalancerConfiguration configuration = new LoadBalancerConfiguration();
+
+        // the same models again, also for the load balancers that select at random
+        for (LoadBalancerType type : new LoadBalancerType[]{LoadBalancerType.RoundRobin, LoadBalancerType.Random,
+                LoadBalancerType.PowerOfTwoChoices})
+        {
+            final String first = simulation.run(type, configuration, models).toString();
+            final SimulationResult second = simulation.run(type, configuration, models);
+            if (!first.equals(second.toString()) || second.getDetections() == 0
+                    || second.getRequestsToDeadProviders() == 0)
+            {
+                throw new RuntimeException("Replay not Working for " + type + ": " + first + " / " + second);
+            }
+        }
+        if (configuration.getTicker() != null || configuration.getListener() != null
+                || configuration.getRandomSource() != null)
+        {
+            throw new RuntimeException("Configuration changed by the simulation");
+        }
+    }
+
+    private static void testBurstOutage()
+    {
+        final List<ProviderModel> models = new ArrayList<>();
+        models.add(ProviderModels.burstOutage(ProviderModels.healthy(1000), 10_500, 10_000));
+        for (int i = 1; i < 4; i++)
+        {
+            models.add(ProviderModels.healthy(1000));
+        }
+        final SimulationResult result = new Simulation(new SimulationConfiguration())
+                .run(LoadBalancerType.RoundRobin, new LoadBalancerConfiguration(), models);
+
+        // detected by the next health check, back after two successful ones
+        if (result.getDetections() != 1 || result.getMaxDetectionLatencyInMillis() > 1000
+                || result.getRecoveries() != 1 || result.getMaxRecoveryLatencyInMillis() <= 1000
+                || result.getMaxRecoveryLatencyInMillis() > 2000 || result.getUndetectedOutages() != 0)
+        {
+            throw new RuntimeException("Outage detection not Working: " + result);
+        }
+        // a quarter of the requests until it is detected
+        if (result.getRequestsToDeadProviders() == 0 || result.getRequestsToDeadProviders() > 300
+                || result.getFailedRequests() != result.getRequestsToDeadProviders()
+                || result.getRequests() < 55_000 || result.getRequests() > 65_000)
+        {
+            throw new RuntimeException("Requests to dead providers not Working: " + result);
+        }
+    }
+
+    private static void testGrayFailure()
+    {
+        final List<ProviderModel> models = new ArrayList<>();
+        models.add(ProviderModels.grayFailure(ProviderModels.healthy(1000), 5_000, 0.5));
+        for (int i = 1; i < 4; i++)
+        {
+            models.add(ProviderModels.healthy(1000));
+        }
+        final Simulation simulation = new Simulation(new SimulationConfiguration());
+
+        // passes its health checks: only the outlier detection takes it out
+        final SimulationResult withoutOutlierDetection = simulation.run(LoadBalancerType.RoundRobin,
+                new LoadBalancerConfiguration(), models);
+        final LoadBalancerConfiguration configuration = new LoadBalancerConfiguration();
+        configuration.setOutlierFailureRateThreshold(0.3);
+        configuration.setMaxEjectionPercent(50);
+        final SimulationResult withOutlierDetection = simulation.run(LoadBalancerType.RoundRobin, configuration,
+                models);
+        if (withoutOutlierDetection.getFalseDetections() != 0 || withOutlierDetection.getFalseDetections() == 0
+                || withOutlierDetection.getFailedRequests() * 2 > withoutOutlierDetection.getFailedRequests())
+        {
+            throw new RuntimeException("Gray failure not Working: " + withoutOutlierDetection + " / "
+                    + withOutlierDetection);
+        }
+    }
+
+    private static void testFasterThanRealTime()
+    {
+        final List<ProviderModel> models = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            models.add(i == 0 ? ProviderModels.slow(ProviderModels.healthy(500), 30_000, 4)
+                    : ProviderModels.healthy(500));
+        }
+        final SimulationConfiguration configuration = new SimulationConfiguration();
+        configuration.setDurationInSeconds(100);
+        configuration.setRequestsPerSecond(10_000);
+
+        final long start = System.nanoTime();
+        final SimulationResult result = new Simulation(configuration).run(LoadBalancerType.PeakEwma,
+                new LoadBalancerConfiguration(), models);
+        final long elapsed = System.nanoTime() - start;
+        if (result.getRequests() < 990_000 || elapsed > TimeUnit.SECONDS.toNanos(100)
+                || result.getLoadSkew() > 1.5)
+        {
+            throw new RuntimeException("Simulation not Working: " + result);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SlowStartTest
+{
+    private static final int NUMBER_OF_PICKS = 20_000;
+    private static final String RECOVERED_PROVIDER = "Provider-1";
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        testRecoveredProviderRampsUp();
+        testExponentialRampIsSlower();
+        testRegisteredProviderRampsUp();
+
+        System.out.println("Slow Start : Basic Tests Pasted");
+    }
+
+    private static void testRecoveredProviderRampsUp() throws InterruptedException
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(SlowStartRamp.Linear, 500);
+
+        loadBalancer.removeProvider(RECOVERED_PROVIDER);
+        loadBalancer.addProvider(RECOVERED_PROVIDER);
+        // about a tenth of its fair share of a quarter at first
+        final double warming = share(route(loadBalancer), RECOVERED_PROVIDER);
+        if (warming == 0 || warming > 0.1)
+        {
+            throw new RuntimeException("Slow start not Working: " + warming);
+        }
+
+        Thread.sleep(600);
+        final double warm = share(route(loadBalancer), RECOVERED_PROVIDER);
+        if (Math.abs(warm - 0.25) > 0.02)
+        {
+            throw new RuntimeException("Slow start does not end: " + warm);
+        }
+        loadBalancer.close();
+    }
+
+    private static void testExponentialRampIsSlower() throws InterruptedException
+    {
+        LoadBalancer linear = createLoadBalancer(SlowStartRamp.Linear, 2000);
+        LoadBalancer exponential = createLoadBalancer(SlowStartRamp.Exponential, 2000);
+        for (LoadBalancer loadBalancer : new LoadBalancer[]{linear, exponential})
+        {
+            loadBalancer.removeProvider(RECOVERED_PROVIDER);
+            loadBalancer.addProvider(RECOVERED_PROVIDER);
+        }
+
+        // half way through the window: a weight of 0.55 against 0.1^0.5 = 0.32
+        Thread.sleep(1000);
+        final double linearShare = share(route(linear), RECOVERED_PROVIDER);
+        final double exponentialShare = share(route(exponential), RECOVERED_PROVIDER);
+        if (exponentialShare >= linearShare || linearShare >= 0.25)
+        {
+            throw new RuntimeException("Exponential ramp not Working: " + linearShare + " " + exponentialShare);
+        }
+        linear.close();
+        exponential.close();
+    }
+
+    private static void testRegisteredProviderRampsUp()
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(SlowStartRamp.Linear, 1000);
+        loadBalancer.registerProvider(new Provider("Provider-5", () -> true));
+
+        final Map<String, Integer> picks = route(loadBalancer);
+        if (share(picks, "Provider-5") > 0.1 || share(picks, RECOVERED_PROVIDER) < 0.2)
+        {
+            throw new RuntimeException("Slow start of registered provider not Working: " + picks);
+        }
+        loadBalancer.close();
+    }
+
+    private static double share(final Map<String, Integer> picks, final String id)
+    {
+        return (double) picks.getOrDefault(id, 0) / NUMBER_OF_PICKS;
+    }
+
+    private static Map<String, Integer> route(final LoadBalancer loadBalancer)
+    {
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < NUMBER_OF_PICKS; i++)
+        {
+            picks.merge(loadBalancer.get(), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    private static LoadBalancer createLoadBalancer(final SlowStartRamp ramp, final int windowInMillis)
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setSlowStartWindowInMillis(windowInMillis);
+        loadBalancerConfiguration.setSlowStartRamp(ramp);
+
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= 4; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        return LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration,
+                LoadBalancerType.RoundRobin);
+    }
+}
@@ -0,0 +1,108 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+public class StripedRoundRobinLoadBalancingTest
+{
+    public static final int NUMBER_OF_STRIPES = 8;
+
+    public static void main(String[] args)
+    {
+        testSingleThreadSequence();
+        testFairnessBound();
+        testRemoveProvider();
+
+        System.out.println("Striped Round Robin : Basic Tests Pasted");
+    }
+
+    private static void testSingleThreadSequence()
+    {
+        int size = 7;
+        int numOfIterations = 1000000;
+        LoadBalancer loadBalancer = createLoadBalancer(size);
+
+        int first = getProviderNumber(loadBalancer.get());
+        for (int i = 1; i < numOfIterations; i++)
+        {
+            if (getProviderNumber(loadBalancer.get()) != (first + i - 1) % size + 1)
+            {
+                throw new RuntimeException("Striped Round Robin is not working");
+            }
+        }
+    }
+
+    private static void testFairnessBound()
+    {
+        int size = 7;
+        int numOfIterations = 10000000;
+        LoadBalancer loadBalancer = createLoadBalancer(size);
+
+        Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        IntStream.range(0, numOfIterations).parallel()
+                .forEach((i) -> counts.computeIfAbsent(loadBalancer.get(), (id) -> new LongAdder()).increment());
+
+        long min = counts.values().stream().mapToLong(LongAdder::sum).min().getAsLong();
+        long max = counts.values().stream().mapToLong(LongAdder::sum).max().getAsLong();
+        if (counts.size() != size || max - min > NUMBER_OF_STRIPES)
+        {
+            throw new RuntimeException("Striped Round Robin fairness bound exceeded: " + counts);
+        }
+    }
+
+    private static void testRemoveProvider()
+    {
+        int size = 7;
+        int numOfIterations = 100000;
+        LoadBalancer loadBalancer = createLoadBalancer(size);
+
+        loadBalancer.removeProvider("Provider-1");
+        IntStream.range(0, numOfIterations).parallel().forEach((i) ->
+        {
+            if (loadBalancer.get().equals("Provider-1"))
+            {
+                throw new RuntimeException("Striped Round Robin is not working");
+            }
+        });
+
+        for (int i = 1; i <= size; i++)
+        {
+            loadBalancer.removeProvider("Provider-" + i);
+        }
+        if (!loadBalancer.get().equals(LoadBalancer.ERROR_MESSAGE))
+        {
+            throw new RuntimeException("Striped Round Robin is not working");
+        }
+    }
+
+    private static LoadBalancer createLoadBalancer(final int size)
+    {
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setNumberOfCounterStripes(NUMBER_OF_STRIPES);
+        return LoadBalancerBuilder
+                .createLoadBalancer(getProviders(size), loadBalancerConfiguration, LoadBalancerType.StripedRoundRobin);
+    }
+
+    private static int getProviderNumber(final String id)
+    {
+        return Integer.parseInt(id.substring(id.indexOf('-') + 1));
+    }
+
+    private static List<IProvider> getProviders(final int size)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            providerList.add(new Provider("Provider-" + i, () -> true));
+        }
+        return providerList;
+    }
+}
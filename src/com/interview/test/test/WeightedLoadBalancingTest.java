@@ -0,0 +1,186 @@
+package com.interview.test.test;
+
+import com.interview.test.loadbalancers.*;
+import com.interview.test.providers.IProvider;
+import com.interview.test.providers.Provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WeightedLoadBalancingTest
+{
+    public static void main(String[] args)
+    {
+        testWeightedRoundRobinSequence();
+        testWeightedRoundRobinSmoothness();
+        testWeightedRoundRobinRemoveProvider();
+        testWeightedRandomDistribution();
+        testStaleTableReplacementsWeighted();
+        testInvalidWeight();
+
+        System.out.println("Weighted : Basic Tests Pasted");
+    }
+
+    private static void testWeightedRoundRobinSequence()
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(LoadBalancerType.WeightedRoundRobin, 5, 1, 1);
+
+        final int[] expected = {1, 2, 1, 1, 3, 1, 1};
+        for (int i = 0; i < 7000; i++)
+        {
+            if (!loadBalancer.get().equals("Provider-" + expected[i % expected.length]))
+            {
+                throw new RuntimeException("Weighted Round Robin is not working");
+            }
+        }
+    }
+
+    private static void testWeightedRoundRobinSmoothness()
+    {
+        final int[] weights = {7, 3, 12, 1, 5, 5, 30};
+        final int totalWeight = 63;
+        LoadBalancer loadBalancer = createLoadBalancer(LoadBalancerType.WeightedRoundRobin, weights);
+
+        final int[] counts = new int[weights.length];
+        for (int t = 1; t <= 10 * totalWeight; t++)
+        {
+            final String id = loadBalancer.get();
+            counts[Integer.parseInt(id.substring(id.indexOf('-') + 1)) - 1]++;
+            for (int i = 0; i < weights.length; i++)
+            {
+                if (Math.abs(counts[i] - (double) t * weights[i] / totalWeight) >= 1.0)
+                {
+                    throw new RuntimeException("Weighted Round Robin is not smooth");
+                }
+            }
+        }
+    }
+
+    private static void testWeightedRoundRobinRemoveProvider()
+    {
+        LoadBalancer loadBalancer = createLoadBalancer(LoadBalancerType.WeightedRoundRobin, 3, 1, 2);
+        loadBalancer.removeProvider("Provider-3");
+
+        Map<String, Integer> counts = getCounts(loadBalancer, 4000);
+        if (counts.containsKey("Provider-3") || counts.get("Provider-1") != 3000 || counts.get("Provider-2") != 1000)
+        {
+            throw new RuntimeException("Weighted Round Robin is not working: " + counts);
+        }
+
+        loadBalancer.addProvider("Provider-3");
+        counts = getCounts(loadBalancer, 6000);
+        if (counts.get("Provider-1") != 3000 || counts.get("Provider-2") != 1000 || counts.get("Provider-3") != 2000)
+        {
+            throw new RuntimeException("Weighted Round Robin is not working: " + counts);
+        }
+
+        loadBalancer.removeProvider("Provider-1");
+        loadBalancer.removeProvider("Provider-2");
+        loadBalancer.removeProvider("Provider-3");
+        if (!loadBalancer.get().equals(LoadBalancer.ERROR_MESSAGE))
+        {
+            throw new RuntimeException("Weighted Round Robin is not working");
+        }
+    }
+
+    private static void testWeightedRandomDistribution()
+    {
+        int numberOfTests = 100000;
+        LoadBalancer loadBalancer = createLoadBalancer(LoadBalancerType.WeightedRandom, 3, 1, 1, 5);
+        loadBalancer.removeProvider("Provider-4");
+
+        Map<String, Integer> counts = getCounts(loadBalancer, numberOfTests);
+        if (counts.containsKey("Provider-4"))
+        {
+            throw new RuntimeException("Weighted Random is not working");
+        }
+        // expected shares are 60%, 20% and 20%, the bounds are far outside any realistic deviation
+        checkShare(counts.get("Provider-1"), 0.6, numberOfTests);
+        checkShare(counts.get("Provider-2"), 0.2, numberOfTests);
+        checkShare(counts.get("Provider-3"), 0.2, numberOfTests);
+    }
+
+    /**
+     * The table is not built again right after a slow build: the selections of a removed provider from the previous
+     * table are replaced by weight.
+     */
+    private static void testStaleTableReplacementsWeighted()
+    {
+        int numberOfTests = 100000;
+        final AtomicLong time = new AtomicLong();
+        final AtomicLong step = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+        final LoadBalancerConfiguration loadBalancerConfiguration = new LoadBalancerConfiguration();
+        loadBalancerConfiguration.setTicker(() -> time.getAndAdd(step.get()));
+        LoadBalancer loadBalancer = createLoadBalancer(LoadBalancerType.WeightedRandom, loadBalancerConfiguration,
+                1, 1, 8, 10);
+
+        // a build of one second, the table is not built again for one second
+        loadBalancer.get();
+        step.set(0);
+        time.set(0);
+        loadBalancer.removeProvider("Provider-4");
+
+        // half of the selections of the previous table are replaced: 10%, 10% and 80% by weight, instead of 22%, 22%
+        // and 57% if they were uniform
+        Map<String, Integer> counts = getCounts(loadBalancer, numberOfTests);
+        if (counts.containsKey("Provider-4"))
+        {
+            throw new RuntimeException("Removed provider selected");
+        }
+        checkShare(counts.get("Provider-1"), 0.1, numberOfTests);
+        checkShare(counts.get("Provider-2"), 0.1, numberOfTests);
+        checkShare(counts.get("Provider-3"), 0.8, numberOfTests);
+    }
+
+    private static void checkShare(final int count, final double expectedShare, final int numberOfTests)
+    {
+        if (Math.abs((double) count / numberOfTests - expectedShare) > 0.02)
+        {
+            throw new RuntimeException("Weighted Random distribution is skewed");
+        }
+    }
+
+    private static void testInvalidWeight()
+    {
+        try
+        {
+            createLoadBalancer(LoadBalancerType.WeightedRandom, 1, 0);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            return;
+        }
+        throw new RuntimeException("Provider weight check not working");
+    }
+
+    private static Map<String, Integer> getCounts(final LoadBalancer loadBalancer, final int numberOfTests)
+    {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < numberOfTests; i++)
+        {
+            counts.merge(loadBalancer.get(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static LoadBalancer createLoadBalancer(final LoadBalancerType type, final int... weights)
+    {
+        return createLoadBalancer(type, new LoadBalancerConfiguration(), weights);
+    }
+
+    private static LoadBalancer createLoadBalancer(final LoadBalancerType type,
+                                                   final LoadBalancerConfiguration loadBalancerConfiguration,
+                                                   final int... weights)
+    {
+        List<IProvider> providerList = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++)
+        {
+            providerList.add(new Provider("Provider-" + (i + 1), () -> true, weights[i]));
+        }
+        return LoadBalancerBuilder.createLoadBalancer(providerList, loadBalancerConfiguration, type);
+    }
+}